@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static de.cuioss.portal.configuration.MetricsConfigKeys.PORTAL_METRICS_ENABLED;
+import static de.cuioss.portal.configuration.MetricsConfigKeys.PORTAL_METRICS_LOG_IN_REQUIRED;
+import static de.cuioss.portal.configuration.MetricsConfigKeys.PORTAL_METRICS_ROLES_REQUIRED;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import de.cuioss.portal.configuration.types.ConfigAsList;
+import de.cuioss.portal.core.servlet.AbstractPortalServlet;
+
+/**
+ * Base class for all servlets below {@code /metrics}. They share the access
+ * configuration of the metrics endpoint, i.e.
+ * {@link de.cuioss.portal.configuration.MetricsConfigKeys#PORTAL_METRICS_ENABLED},
+ * {@link de.cuioss.portal.configuration.MetricsConfigKeys#PORTAL_METRICS_LOG_IN_REQUIRED}
+ * and
+ * {@link de.cuioss.portal.configuration.MetricsConfigKeys#PORTAL_METRICS_ROLES_REQUIRED}.
+ */
+public abstract class AbstractMetricsServlet extends AbstractPortalServlet {
+
+    private static final long serialVersionUID = 2384614502733627064L;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_ENABLED)
+    private Provider<Boolean> serviceEnabled;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_LOG_IN_REQUIRED)
+    private Provider<Boolean> loginRequired;
+
+    @Inject
+    @ConfigAsList(name = PORTAL_METRICS_ROLES_REQUIRED)
+    private Provider<List<String>> requiredRoles;
+
+    @Override
+    public boolean isEnabled() {
+        return serviceEnabled.get();
+    }
+
+    @Override
+    public boolean isLoggedInUserRequired() {
+        return loginRequired.get();
+    }
+
+    @Override
+    public Collection<String> getRequiredRoles() {
+        return requiredRoles.get();
+    }
+}
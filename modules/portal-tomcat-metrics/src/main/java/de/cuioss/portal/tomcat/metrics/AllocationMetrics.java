@@ -0,0 +1,157 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import de.cuioss.portal.tomcat.metrics.RouteTracker.Route;
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+import jdk.jfr.consumer.RecordedEvent;
+
+/**
+ * Attributes the sampled allocation weight of {@value #OBJECT_ALLOCATION_SAMPLE}
+ * events to the request route processed by the allocating thread, as recorded
+ * by {@link ServletMetrics} via {@link RouteTracker}:
+ * <ul>
+ * <li>{@code jvm.jfr.allocation.route}: bytes per route, tagged by
+ * {@code context} and {@code name}</li>
+ * <li>{@code jvm.jfr.allocation.route.class}: bytes per route and allocated
+ * class, additionally tagged by {@code class}</li>
+ * </ul>
+ * Allocations outside of a request are accounted to the route
+ * {@value #NONE}. The cardinality is bounded: Routes beyond
+ * {@value #MAX_ROUTES} are accounted as {@value #OTHER}, classes beyond
+ * {@value #MAX_CLASS_SERIES} series as class {@value #OTHER} of their route.
+ */
+final class AllocationMetrics implements Closeable {
+
+    static final String OBJECT_ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+
+    /** Number of sampled allocation events per second, the JDK default. */
+    static final String THROTTLE = "150/s";
+
+    static final int MAX_ROUTES = 50;
+    static final int MAX_CLASS_SERIES = 200;
+
+    static final String NONE = "none";
+    static final String OTHER = "other";
+
+    private static final Route NO_ROUTE = new Route(NONE, NONE);
+    private static final Route OTHER_ROUTE = new Route(OTHER, OTHER);
+
+    private final ThreadMXBean threadBean;
+    private final Metadata routeMetadata;
+    private final Metadata classMetadata;
+
+    // only accessed by the JFR dispatching thread
+    private final Map<Route, Counter> routeCounters = new ConcurrentHashMap<>();
+    private final Map<RouteAndClass, Counter> classCounters = new ConcurrentHashMap<>();
+
+    private MetricRegistry registry;
+    private ScheduledFuture<?> pruning;
+
+    AllocationMetrics(final ThreadMXBean threadBean, final boolean micrometerFormat) {
+        this.threadBean = requireNonNull(threadBean);
+        routeMetadata = new ExtendedMetadataBuilder().withName("jvm.jfr.allocation.route")
+                .withType(MetricType.COUNTER).withUnit(MetricUnits.BYTES)
+                .withDescription("Sampled allocation weight of the threads processing a route")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                .withOpenMetricsKeyOverride(micrometerFormat ? "jvm_jfr_allocation_route_bytes_total" : null).build();
+        classMetadata = new ExtendedMetadataBuilder().withName("jvm.jfr.allocation.route.class")
+                .withType(MetricType.COUNTER).withUnit(MetricUnits.BYTES)
+                .withDescription("Sampled allocation weight of the threads processing a route per allocated class")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                .withOpenMetricsKeyOverride(micrometerFormat ? "jvm_jfr_allocation_route_class_bytes_total" : null)
+                .build();
+    }
+
+    void bindTo(final MetricRegistry metricRegistry, final JfrMetrics jfrMetrics, final MetricsScheduler scheduler) {
+        registry = requireNonNull(metricRegistry);
+
+        jfrMetrics.configure(OBJECT_ALLOCATION_SAMPLE, "throttle", THROTTLE);
+        jfrMetrics.subscribe(OBJECT_ALLOCATION_SAMPLE, Duration.ZERO, false, this::record);
+
+        RouteTracker.setEnabled(true);
+        pruning = scheduler.schedule("route tracker pruning", () -> RouteTracker.prune(threadBean.getAllThreadIds()),
+                1, TimeUnit.MINUTES);
+    }
+
+    private void record(final RecordedEvent event) {
+        final var objectClass = event.getClass("objectClass");
+        final var thread = event.getThread();
+        Route route = null;
+        if (null != thread) {
+            route = RouteTracker.lookup(thread.getJavaThreadId(), RouteTracker.epochNanos(event.getStartTime()));
+        }
+        record(null == route ? NO_ROUTE : route, null == objectClass ? OTHER : objectClass.getName(),
+                event.getLong("weight"));
+    }
+
+    void record(final Route route, final String className, final long weight) {
+        var routeCounter = routeCounters.get(route);
+        var effectiveRoute = route;
+        if (null == routeCounter) {
+            if (routeCounters.size() >= MAX_ROUTES) {
+                effectiveRoute = OTHER_ROUTE;
+            }
+            routeCounter = routeCounters.computeIfAbsent(effectiveRoute,
+                    key -> registry.counter(routeMetadata, routeTags(key)));
+        }
+        routeCounter.inc(weight);
+
+        var key = new RouteAndClass(effectiveRoute, className);
+        var classCounter = classCounters.get(key);
+        if (null == classCounter) {
+            if (classCounters.size() >= MAX_CLASS_SERIES) {
+                key = new RouteAndClass(effectiveRoute, OTHER);
+            }
+            classCounter = classCounters.computeIfAbsent(key, k -> registry.counter(classMetadata,
+                    new Tag("context", k.route().context()), new Tag("name", k.route().name()),
+                    new Tag("class", k.className())));
+        }
+        classCounter.inc(weight);
+    }
+
+    private static Tag[] routeTags(final Route route) {
+        return new Tag[] { new Tag("context", route.context()), new Tag("name", route.name()) };
+    }
+
+    @Override
+    public void close() {
+        RouteTracker.setEnabled(false);
+        if (null != pruning) {
+            pruning.cancel(false);
+        }
+    }
+
+    private record RouteAndClass(Route route, String className) {
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import de.cuioss.tools.logging.CuiLogger;
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+
+/**
+ * Trend of the buffer pools complementing the current values exported by
+ * {@link JvmMetrics}, to detect leaking direct buffers before the direct memory
+ * is exhausted:
+ * <ul>
+ * <li>{@code jvm.buffer.memory.growth.rate}: growth of the memory used by the
+ * pool in bytes per second within the rate window, negative if shrinking</li>
+ * <li>{@code jvm.buffer.direct.max}: maximum direct memory, i.e.
+ * {@code -XX:MaxDirectMemorySize} or the maximum heap size if not set</li>
+ * <li>{@code jvm.buffer.direct.usage}: ratio of the memory used by the
+ * {@value #DIRECT} pool to the maximum direct memory</li>
+ * <li>{@code jvm.buffer.direct.threshold.exceeded}: number of times the usage
+ * exceeded the configured threshold</li>
+ * </ul>
+ * The pools are sampled by the {@link MetricsScheduler} every
+ * {@value #SAMPLE_INTERVAL_SECONDS} seconds.
+ */
+final class BufferPoolMetrics {
+
+    private static final CuiLogger LOGGER = new CuiLogger(BufferPoolMetrics.class);
+
+    static final String DIRECT = "direct";
+
+    static final long SAMPLE_INTERVAL_SECONDS = 5;
+
+    private final List<BufferPoolMXBean> pools;
+    private final long maxDirectMemory;
+    private final boolean micrometerFormat;
+    private final List<RateWindow> growthRates = new ArrayList<>();
+    private final AtomicLong thresholdCrossings = new AtomicLong();
+
+    private final BufferPoolMXBean directPool;
+
+    private double threshold;
+    private boolean exceeded;
+
+    /**
+     * @param pools            usually the platform buffer pools
+     * @param maxDirectMemory  in bytes, see {@link #maxDirectMemory()}
+     * @param micrometerFormat whether to skip the scope in the OpenMetrics
+     *                         export
+     */
+    BufferPoolMetrics(final List<BufferPoolMXBean> pools, final long maxDirectMemory,
+            final boolean micrometerFormat) {
+        this.pools = List.copyOf(pools);
+        directPool = this.pools.stream().filter(pool -> DIRECT.equals(pool.getName())).findFirst().orElse(null);
+        this.maxDirectMemory = maxDirectMemory;
+        this.micrometerFormat = micrometerFormat;
+    }
+
+    /**
+     * @return the value of {@code -XX:MaxDirectMemorySize}, if not set the
+     *         maximum heap size being the default of the JVM. -1 if the
+     *         option is not available
+     */
+    static long maxDirectMemory() {
+        final var diagnostic = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        if (null == diagnostic) {
+            return -1;
+        }
+        try {
+            final var value = Long.parseLong(diagnostic.getVMOption("MaxDirectMemorySize").getValue());
+            return value > 0 ? value : Runtime.getRuntime().maxMemory();
+        } catch (final IllegalArgumentException e) {
+            LOGGER.debug("Could not determine MaxDirectMemorySize: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * @param registry      to be bound to
+     * @param scheduler     sampling the pools
+     * @param windowSeconds length of the growth rate window
+     * @param threshold     ratio of the maximum direct memory, whose excess is
+     *                      counted
+     */
+    void bindTo(final MetricRegistry registry, final MetricsScheduler scheduler, final long windowSeconds,
+            final double threshold) {
+        requireNonNull(registry);
+        requireNonNull(scheduler);
+        this.threshold = threshold;
+
+        final var windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        final var capacity = (int) Math.max(2, windowSeconds / SAMPLE_INTERVAL_SECONDS + 1);
+        for (final BufferPoolMXBean pool : pools) {
+            final var growthRate = RateWindow.ofGauge(windowNanos, capacity, System::nanoTime);
+            growthRates.add(growthRate);
+            registry.register(new ExtendedMetadataBuilder().withName("jvm.buffer.memory.growth.rate")
+                    .withType(MetricType.GAUGE)
+                    .withDescription("Growth of the memory used by the buffer pool in bytes per second within the "
+                            + "rate window")
+                    .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                    (DoubleGauge) growthRate::getRate, new Tag("id", pool.getName()));
+        }
+
+        if (null != directPool && maxDirectMemory > 0) {
+            registry.register(new ExtendedMetadataBuilder().withName("jvm.buffer.direct.max")
+                    .withType(MetricType.GAUGE).withUnit(MetricUnits.BYTES)
+                    .withDescription("Maximum memory to be used by direct buffers")
+                    .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                    (LongGauge) () -> maxDirectMemory);
+            registry.register(new ExtendedMetadataBuilder().withName("jvm.buffer.direct.usage")
+                    .withType(MetricType.GAUGE)
+                    .withDescription("Ratio of the memory used by direct buffers to the maximum direct memory")
+                    .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                    (DoubleGauge) this::getDirectUsage);
+            registry.register(new ExtendedMetadataBuilder().withName("jvm.buffer.direct.threshold.exceeded")
+                    .withType(MetricType.COUNTER)
+                    .withDescription("Number of times the direct memory usage exceeded its threshold")
+                    .skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                    .withOpenMetricsKeyOverride(micrometerFormat ? "jvm_buffer_direct_threshold_exceeded_total" : null)
+                    .build(), new GetCountOnlyCounter() {
+
+                        @Override
+                        public long getCount() {
+                            return thresholdCrossings.get();
+                        }
+                    });
+        }
+        scheduler.schedule("buffer pools", this::sample, SAMPLE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records the memory used per pool and counts the crossing of the direct
+     * memory threshold.
+     */
+    synchronized void sample() {
+        for (var i = 0; i < growthRates.size(); i++) {
+            growthRates.get(i).record(pools.get(i).getMemoryUsed());
+        }
+        final var usage = getDirectUsage();
+        if (usage > threshold) {
+            if (!exceeded) {
+                exceeded = true;
+                thresholdCrossings.incrementAndGet();
+                LOGGER.debug("Direct memory usage {} exceeded threshold {}", usage, threshold);
+            }
+        } else {
+            exceeded = false;
+        }
+    }
+
+    /**
+     * @return ratio of the memory used by the {@value #DIRECT} pool to the
+     *         maximum direct memory, NaN if not available
+     */
+    double getDirectUsage() {
+        if (null == directPool || maxDirectMemory <= 0) {
+            return Double.NaN;
+        }
+        final var used = directPool.getMemoryUsed();
+        return used < 0 ? Double.NaN : (double) used / maxDirectMemory;
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static de.cuioss.portal.tomcat.metrics.ProcFileReader.MISSING;
+import static de.cuioss.portal.tomcat.metrics.ProcFileReader.key;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import de.cuioss.tools.logging.CuiLogger;
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+
+/**
+ * Container resource metrics read from the cgroup file system. Both the unified
+ * hierarchy (cgroup v2) and the legacy per-controller hierarchy (cgroup v1) are
+ * supported:
+ * <ul>
+ * <li>{@code container.cpu.periods}, {@code container.cpu.throttled.periods}
+ * and {@code container.cpu.throttled.time}: CFS enforcement periods, how many
+ * of them were throttled and the total throttled time</li>
+ * <li>{@code container.cpu.quota}: the CPU limit in cores, -1 if unlimited</li>
+ * <li>{@code container.memory.usage} and {@code container.memory.limit}: -1 if
+ * unlimited</li>
+ * <li>{@code container.memory.events}: number of memory events per {@code type}
+ * like {@code high}, {@code max} or {@code oom_kill}</li>
+ * <li>{@code container.memory.pressure.stalled}: total time tasks were stalled
+ * on memory, {@code kind} {@code some} or {@code full} (PSI, v2 only)</li>
+ * </ul>
+ * Each group is only registered if its file exists. The files are read into
+ * reused buffers by {@link ProcFileReader}, at most once per scrape.
+ */
+final class CgroupMetrics implements Closeable {
+
+    private static final CuiLogger LOGGER = new CuiLogger(CgroupMetrics.class);
+
+    static final Path DEFAULT_ROOT = Paths.get("/sys/fs/cgroup");
+
+    /** cgroup v1 reports "unlimited" as a page aligned {@code Long.MAX_VALUE}. */
+    static final long V1_UNLIMITED = 1L << 62;
+
+    private static final byte[] NR_PERIODS = key("nr_periods");
+    private static final byte[] NR_THROTTLED = key("nr_throttled");
+    private static final byte[] THROTTLED_USEC = key("throttled_usec");
+    private static final byte[] THROTTLED_TIME = key("throttled_time");
+    private static final byte[] SOME = key("some");
+    private static final byte[] FULL = key("full");
+    private static final byte[] TOTAL = key("total=");
+
+    private static final String PRESSURE_DESCRIPTION = "Total time tasks of the container were stalled on memory, "
+            + "kind some: at least one task, full: all non-idle tasks";
+
+    static final List<String> MEMORY_EVENTS = List.of("low", "high", "max", "oom", "oom_kill");
+
+    private final Path root;
+    private final boolean micrometerFormat;
+    private final List<ProcFileReader> readers = new ArrayList<>();
+
+    /**
+     * @param root             of the cgroup file system, usually
+     *                         {@link #DEFAULT_ROOT}
+     * @param micrometerFormat whether to skip the scope in the OpenMetrics
+     *                         export
+     */
+    CgroupMetrics(final Path root, final boolean micrometerFormat) {
+        this.root = requireNonNull(root);
+        this.micrometerFormat = micrometerFormat;
+    }
+
+    /**
+     * @return {@code true} if the unified hierarchy (cgroup v2) is mounted at the
+     *         root
+     */
+    boolean isUnified() {
+        return Files.exists(root.resolve("cgroup.controllers"));
+    }
+
+    /**
+     * @param registry to be bound to
+     */
+    void bindTo(final MetricRegistry registry) {
+        requireNonNull(registry);
+        if (isUnified()) {
+            bindUnified(registry);
+        } else {
+            bindLegacy(registry);
+        }
+    }
+
+    private void bindUnified(final MetricRegistry registry) {
+        final var cpuStat = reader("cpu.stat");
+        if (null != cpuStat) {
+            registerCpuStat(registry, cpuStat, () -> cpuStat.getKeyed(THROTTLED_USEC));
+        }
+        final var cpuMax = reader("cpu.max");
+        if (null != cpuMax) {
+            // "max 100000" if unlimited, "<quota> <period>" otherwise
+            registerQuota(registry, () -> cpuMax.getField(0), () -> cpuMax.getField(1));
+        }
+        final var current = reader("memory.current");
+        if (null != current) {
+            registerMemoryGauge(registry, "container.memory.usage", "Memory usage of the container",
+                    current::getValue);
+        }
+        final var max = reader("memory.max");
+        if (null != max) {
+            registerMemoryGauge(registry, "container.memory.limit", "Memory limit of the container, -1 if unlimited",
+                    max::getValue);
+        }
+        final var events = reader("memory.events");
+        if (null != events) {
+            for (final String type : MEMORY_EVENTS) {
+                final var eventKey = key(type);
+                registerCounter(registry, "container.memory.events", "Number of memory events of the container",
+                        MetricUnits.NONE, () -> events.getKeyed(eventKey), new Tag("type", type));
+            }
+        }
+        final var pressure = reader("memory.pressure");
+        if (null != pressure) {
+            registerCounter(registry, "container.memory.pressure.stalled", PRESSURE_DESCRIPTION,
+                    MetricUnits.MICROSECONDS, () -> pressure.getKeyedAttribute(SOME, TOTAL), new Tag("kind", "some"));
+            registerCounter(registry, "container.memory.pressure.stalled", PRESSURE_DESCRIPTION,
+                    MetricUnits.MICROSECONDS, () -> pressure.getKeyedAttribute(FULL, TOTAL), new Tag("kind", "full"));
+        }
+    }
+
+    private void bindLegacy(final MetricRegistry registry) {
+        final var cpuStat = reader("cpu/cpu.stat");
+        if (null != cpuStat) {
+            registerCpuStat(registry, cpuStat, () -> {
+                final var nanos = cpuStat.getKeyed(THROTTLED_TIME);
+                return nanos < 0 ? MISSING : nanos / 1000;
+            });
+        }
+        final var quota = reader("cpu/cpu.cfs_quota_us");
+        final var period = reader("cpu/cpu.cfs_period_us");
+        if (null != quota && null != period) {
+            registerQuota(registry, quota::getValue, period::getValue);
+        }
+        final var usage = reader("memory/memory.usage_in_bytes");
+        if (null != usage) {
+            registerMemoryGauge(registry, "container.memory.usage", "Memory usage of the container",
+                    usage::getValue);
+        }
+        final var limit = reader("memory/memory.limit_in_bytes");
+        if (null != limit) {
+            registerMemoryGauge(registry, "container.memory.limit", "Memory limit of the container, -1 if unlimited",
+                    () -> {
+                        final var value = limit.getValue();
+                        return value >= V1_UNLIMITED ? MISSING : value;
+                    });
+        }
+        final var failcnt = reader("memory/memory.failcnt");
+        if (null != failcnt) {
+            // number of times the limit was hit, the counterpart of the v2 "max" event
+            registerCounter(registry, "container.memory.events", "Number of memory events of the container",
+                    MetricUnits.NONE, failcnt::getValue, new Tag("type", "max"));
+        }
+    }
+
+    private void registerCpuStat(final MetricRegistry registry, final ProcFileReader cpuStat,
+            final LongSupplier throttledMicros) {
+        registerCounter(registry, "container.cpu.periods", "Number of elapsed CFS enforcement periods",
+                MetricUnits.NONE, () -> cpuStat.getKeyed(NR_PERIODS));
+        registerCounter(registry, "container.cpu.throttled.periods",
+                "Number of CFS enforcement periods the container was throttled in", MetricUnits.NONE,
+                () -> cpuStat.getKeyed(NR_THROTTLED));
+        registerCounter(registry, "container.cpu.throttled.time", "Total time the container was throttled",
+                MetricUnits.MICROSECONDS, throttledMicros);
+    }
+
+    private void registerQuota(final MetricRegistry registry, final LongSupplier quota, final LongSupplier period) {
+        registry.register(new ExtendedMetadataBuilder().withName("container.cpu.quota").withType(MetricType.GAUGE)
+                .withDescription("CPU limit of the container in cores, -1 if unlimited")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                (DoubleGauge) () -> toCores(quota.getAsLong(), period.getAsLong()));
+    }
+
+    static double toCores(final long quota, final long period) {
+        if (quota <= 0 || period <= 0) {
+            return -1;
+        }
+        return (double) quota / period;
+    }
+
+    private void registerMemoryGauge(final MetricRegistry registry, final String name, final String description,
+            final LongSupplier bytes) {
+        registry.register(new ExtendedMetadataBuilder().withName(name).withType(MetricType.GAUGE)
+                .withUnit(MetricUnits.BYTES).withDescription(description)
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                (LongGauge) bytes::getAsLong);
+    }
+
+    private void registerCounter(final MetricRegistry registry, final String name, final String description,
+            final String unit, final LongSupplier count, final Tag... tags) {
+        CumulativeCounter.register(registry, micrometerFormat, name, unit, description, count, tags);
+    }
+
+    private ProcFileReader reader(final String file) {
+        final var reader = new ProcFileReader(root.resolve(file));
+        if (!reader.isReadable()) {
+            LOGGER.debug("cgroup file {} not available", file);
+            return null;
+        }
+        readers.add(reader);
+        return reader;
+    }
+
+    @Override
+    public void close() {
+        readers.forEach(ProcFileReader::close);
+        readers.clear();
+    }
+}
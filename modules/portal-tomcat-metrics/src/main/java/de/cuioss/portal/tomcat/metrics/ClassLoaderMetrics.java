@@ -17,7 +17,6 @@ package de.cuioss.portal.tomcat.metrics;
 
 import java.lang.management.ManagementFactory;
 
-import org.eclipse.microprofile.metrics.Gauge;
 import org.eclipse.microprofile.metrics.MetadataBuilder;
 import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.eclipse.microprofile.metrics.MetricType;
@@ -73,7 +72,7 @@ final class ClassLoaderMetrics {
                                     "The number of classes that are currently loaded in the Java Virtual Machine")
                             .withOpenMetricsKeyOverride("jvm_classes_loaded_classes")
                             .skipsScopeInOpenMetricsExportCompletely(true).build(),
-                    (Gauge<?>) classLoadingBean::getLoadedClassCount);
+                    (LongGauge) classLoadingBean::getLoadedClassCount);
 
             registry.register(
                     new ExtendedMetadataBuilder().withName("jvm.classes.loaded.total").withType(MetricType.GAUGE) // should
@@ -85,7 +84,7 @@ final class ClassLoaderMetrics {
                                     + JAVA_VIRTUAL_MACHINE_HAS_STARTED_EXECUTION)
                             .withOpenMetricsKeyOverride("jvm_classes_loaded_classes_total")
                             .skipsScopeInOpenMetricsExportCompletely(true).build(),
-                    (Gauge<?>) classLoadingBean::getTotalLoadedClassCount);
+                    (LongGauge) classLoadingBean::getTotalLoadedClassCount);
 
             registry.register(new ExtendedMetadataBuilder().withName("jvm.classes.unloaded")
                     .withType(MetricType.COUNTER).withUnit(UNIT_CLASSES)
@@ -106,7 +105,7 @@ final class ClassLoaderMetrics {
                     .withType(MetricType.GAUGE).withDescription("""
                             Displays the number of classes that are currently loaded in the \
                             Java Virtual Machine\
-                            """).build(), (Gauge<?>) classLoadingBean::getLoadedClassCount);
+                            """).build(), (LongGauge) classLoadingBean::getLoadedClassCount);
 
             registry.register(new MetadataBuilder()
                     // required by MP spec
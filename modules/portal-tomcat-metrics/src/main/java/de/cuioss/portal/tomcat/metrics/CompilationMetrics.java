@@ -0,0 +1,172 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+import jdk.jfr.consumer.RecordedEvent;
+
+/**
+ * JIT compiler and code cache metrics, showing the warm-up progress and code
+ * cache exhaustion:
+ * <ul>
+ * <li>{@code jvm.compilation.time}: accumulated compilation time of the JIT
+ * compiler, tagged by {@code compiler}</li>
+ * <li>{@code jvm.code.cache.usage}: ratio of used to maximum size per code
+ * cache {@code segment}, e.g. {@code CodeHeap 'profiled nmethods'}</li>
+ * </ul>
+ * If JFR is available, the compilation and deoptimization events are counted,
+ * too:
+ * <ul>
+ * <li>{@code jvm.jfr.compilations}: number of compiled methods per tiered
+ * compilation {@code level}</li>
+ * <li>{@code jvm.jfr.deoptimizations}: number of deoptimizations per
+ * {@code reason}</li>
+ * </ul>
+ * The events are observed bypassing the event budget of {@link JfrMetrics},
+ * as they are most frequent during warm-up and counting them is cheap.
+ */
+final class CompilationMetrics {
+
+    static final String COMPILATION = "jdk.Compilation";
+    static final String DEOPTIMIZATION = "jdk.Deoptimization";
+
+    /** Upper bound of distinct deoptimization reasons, further are tagged as {@value JfrMetrics#OTHER}. */
+    static final int MAX_REASONS = 32;
+
+    private final CompilationMXBean compilationBean;
+    private final List<MemoryPoolMXBean> codeCachePools = new ArrayList<>();
+    private final boolean micrometerFormat;
+
+    private final Map<String, Counter> compilations = new ConcurrentHashMap<>();
+    private final Map<String, Counter> deoptimizations = new ConcurrentHashMap<>();
+
+    /**
+     * @param compilationBean  may be {@code null} if the JVM has no compiler
+     * @param pools            memory pools, only the code cache segments are
+     *                         considered
+     * @param micrometerFormat whether to skip the scope in the OpenMetrics
+     *                         export
+     */
+    CompilationMetrics(final CompilationMXBean compilationBean, final List<MemoryPoolMXBean> pools,
+            final boolean micrometerFormat) {
+        this.compilationBean = compilationBean;
+        for (final MemoryPoolMXBean pool : pools) {
+            if (isCodeCache(pool)) {
+                codeCachePools.add(pool);
+            }
+        }
+        this.micrometerFormat = micrometerFormat;
+    }
+
+    static boolean isCodeCache(final MemoryPoolMXBean pool) {
+        final var name = pool.getName();
+        return MemoryType.NON_HEAP.equals(pool.getType())
+                && (name.startsWith("CodeHeap") || "Code Cache".equals(name));
+    }
+
+    /**
+     * Registers the compilation time and code cache metrics.
+     *
+     * @param registry to be bound to
+     */
+    void bindTo(final MetricRegistry registry) {
+        requireNonNull(registry);
+
+        if (null != compilationBean && compilationBean.isCompilationTimeMonitoringSupported()) {
+            registry.register(new ExtendedMetadataBuilder().withName("jvm.compilation.time")
+                    .withType(MetricType.COUNTER).withUnit(MetricUnits.MILLISECONDS)
+                    .withDescription("The approximate accumulated elapsed time spent in compilation")
+                    .skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                    .withOpenMetricsKeyOverride(micrometerFormat ? "jvm_compilation_time_milliseconds_total" : null)
+                    .build(), new GetCountOnlyCounter() {
+
+                        @Override
+                        public long getCount() {
+                            return compilationBean.getTotalCompilationTime();
+                        }
+                    }, new Tag("compiler", compilationBean.getName()));
+        }
+
+        for (final MemoryPoolMXBean pool : codeCachePools) {
+            registry.register(new ExtendedMetadataBuilder().withName("jvm.code.cache.usage")
+                    .withType(MetricType.GAUGE)
+                    .withDescription("Ratio of the used to the maximum size of the code cache segment")
+                    .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                    (DoubleGauge) () -> getUsage(pool), new Tag("segment", pool.getName()));
+        }
+    }
+
+    static double getUsage(final MemoryPoolMXBean pool) {
+        final var usage = pool.getUsage();
+        if (null == usage || usage.getMax() <= 0) {
+            return Double.NaN;
+        }
+        return (double) usage.getUsed() / usage.getMax();
+    }
+
+    /**
+     * Observes the JFR compilation and deoptimization events.
+     *
+     * @param registry   to be bound to
+     * @param jfrMetrics to subscribe to
+     */
+    void bindTo(final MetricRegistry registry, final JfrMetrics jfrMetrics) {
+        requireNonNull(registry);
+
+        // the JVM's default threshold of jdk.Compilation only records slow compilations
+        jfrMetrics.observe(COMPILATION, Duration.ZERO,
+                event -> compilations.computeIfAbsent(String.valueOf(event.getShort("compileLevel")),
+                        level -> registry.counter(metadata("jvm.jfr.compilations", "Number of compiled methods"),
+                                new Tag("level", level)))
+                        .inc());
+        jfrMetrics.observe(DEOPTIMIZATION, Duration.ZERO, event -> recordDeoptimization(registry, event));
+    }
+
+    private void recordDeoptimization(final MetricRegistry registry, final RecordedEvent event) {
+        var reason = event.getString("reason");
+        if (null == reason || !deoptimizations.containsKey(reason) && deoptimizations.size() >= MAX_REASONS) {
+            reason = JfrMetrics.OTHER;
+        }
+        deoptimizations.computeIfAbsent(reason,
+                name -> registry.counter(metadata("jvm.jfr.deoptimizations", "Number of deoptimized methods"),
+                        new Tag("reason", name)))
+                .inc();
+    }
+
+    private Metadata metadata(final String name, final String description) {
+        return new ExtendedMetadataBuilder().withName(name).withType(MetricType.COUNTER)
+                .withDescription(description).skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                .withOpenMetricsKeyOverride(micrometerFormat ? name.replace('.', '_') + "_total" : null).build();
+    }
+}
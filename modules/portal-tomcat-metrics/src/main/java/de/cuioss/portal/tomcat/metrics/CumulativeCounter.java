@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+
+/**
+ * Counter reading a cumulative value maintained elsewhere, e.g. by the kernel
+ * or a JFR event handler. A negative value signals a failed read, like
+ * {@link ProcFileReader#MISSING}, and is replaced by the last good value, as a
+ * drop to 0 is taken as a counter reset by {@code rate()} and shows up as a
+ * spike.
+ */
+final class CumulativeCounter extends GetCountOnlyCounter {
+
+    private final LongSupplier count;
+    private final AtomicLong last = new AtomicLong();
+
+    CumulativeCounter(final LongSupplier count) {
+        this.count = count;
+    }
+
+    @Override
+    public long getCount() {
+        final var value = count.getAsLong();
+        if (value < 0) {
+            return last.get();
+        }
+        last.set(value);
+        return value;
+    }
+
+    /**
+     * Registers a counter, in the micrometer format with the
+     * {@code <name>_<unit>_total} key.
+     *
+     * @param registry         to be registered to
+     * @param micrometerFormat whether to skip the scope in the OpenMetrics
+     *                         export
+     * @param name             of the counter
+     * @param unit             of the counter, {@link MetricUnits#NONE} for
+     *                         plain counts
+     * @param description      of the counter
+     * @param count            cumulative value, negative if not available
+     * @param tags             of the counter
+     */
+    static void register(final MetricRegistry registry, final boolean micrometerFormat, final String name,
+            final String unit, final String description, final LongSupplier count, final Tag... tags) {
+        registry.register(new ExtendedMetadataBuilder().withName(name).withType(MetricType.COUNTER).withUnit(unit)
+                .withDescription(description).skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                .withOpenMetricsKeyOverride(micrometerFormat ? openMetricsKey(name, unit) : null).build(),
+                new CumulativeCounter(count), tags);
+    }
+
+    static String openMetricsKey(final String name, final String unit) {
+        return name.replace('.', '_') + (MetricUnits.NONE.equals(unit) ? "" : "_" + unit) + "_total";
+    }
+}
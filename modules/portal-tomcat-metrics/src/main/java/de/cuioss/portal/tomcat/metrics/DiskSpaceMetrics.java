@@ -18,10 +18,20 @@ package de.cuioss.portal.tomcat.metrics;
 import static java.util.Objects.requireNonNull;
 import static org.eclipse.microprofile.metrics.MetricType.GAUGE;
 import static org.eclipse.microprofile.metrics.MetricUnits.BYTES;
+import static org.eclipse.microprofile.metrics.MetricUnits.SECONDS;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
-import org.eclipse.microprofile.metrics.Gauge;
 import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.eclipse.microprofile.metrics.Tag;
 
@@ -32,7 +42,16 @@ import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 /**
- * Registers metrics for free- and total disk space for a given path.
+ * Registers metrics for free- and total disk space for the given paths. Paths
+ * on the same {@link FileStore} are metered once, tagged with the first of
+ * these paths. The values are cached for {@value #DEFAULT_TTL_SECONDS} seconds,
+ * so scrapes do not query the file system.
+ * <p>
+ * If bound with a {@link MetricsScheduler}, the used space is sampled
+ * periodically and the fill rate {@code disk.fill.rate} in bytes per second as
+ * well as the estimated time until the store is full {@code disk.time.to.full}
+ * are exported, too.
+ * </p>
  *
  * @author Sven Haag
  * @see <a href=
@@ -44,8 +63,9 @@ final class DiskSpaceMetrics {
 
     private static final CuiLogger LOGGER = new CuiLogger(DiskSpaceMetrics.class);
 
-    private final Tag[] tags;
-    private final File path;
+    static final long DEFAULT_TTL_SECONDS = 10;
+
+    private final List<File> paths;
     private final boolean micrometerFormat;
 
     /**
@@ -56,9 +76,18 @@ final class DiskSpaceMetrics {
      * @throws NullPointerException if path is null
      */
     DiskSpaceMetrics(final File path, final boolean micrometerFormat) {
-        requireNonNull(path);
-        this.path = path;
-        this.tags = new Tag[] { new Tag("path", path.getAbsolutePath()) };
+        this(Collections.singletonList(requireNonNull(path)), micrometerFormat);
+    }
+
+    /**
+     * Register file paths for metering their free and total disk space.
+     *
+     * @param paths to be metered, not existing paths are skipped
+     *
+     * @throws NullPointerException if paths is null
+     */
+    DiskSpaceMetrics(final List<File> paths, final boolean micrometerFormat) {
+        this.paths = List.copyOf(requireNonNull(paths));
         this.micrometerFormat = micrometerFormat;
     }
 
@@ -71,18 +100,161 @@ final class DiskSpaceMetrics {
         requireNonNull(registry);
 
         final var registryHelper = new RegistryHelper(LOGGER, registry);
+        for (final Store store : resolveStores(System::nanoTime)) {
+            bindSpace(registryHelper, store);
+        }
+    }
+
+    /**
+     * Binds the space metrics and additionally the fill rate and time to full,
+     * sampled by the given scheduler.
+     *
+     * @param registry      to be bound to
+     * @param scheduler     sampling the used space
+     * @param windowSeconds length of the fill rate window
+     */
+    public void bindTo(final MetricRegistry registry, final MetricsScheduler scheduler, final long windowSeconds) {
+        requireNonNull(registry);
+        requireNonNull(scheduler);
+
+        final var registryHelper = new RegistryHelper(LOGGER, registry);
+        final var stores = resolveStores(System::nanoTime);
+        for (final Store store : stores) {
+            bindSpace(registryHelper, store);
+            final var fillRate = fillRateWindow(windowSeconds, System::nanoTime);
+            registryHelper.bindIfNotPresent(
+                    new ExtendedMetadataBuilder().withName("disk.fill.rate")
+                            .withDescription("Growth of the used space in bytes per second within the rate window")
+                            .withType(GAUGE).skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                    (DoubleGauge) fillRate::getRate, store.tags);
+            registryHelper.bindIfNotPresent(
+                    new ExtendedMetadataBuilder().withName("disk.time.to.full")
+                            .withDescription("Estimated time until the usable space is exhausted at the current "
+                                    + "fill rate, NaN if the used space is not growing")
+                            .withUnit(SECONDS).withType(GAUGE)
+                            .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                    (DoubleGauge) () -> getSecondsToFull(store.getUsableSpace(), fillRate.getRate()), store.tags);
+            scheduler.schedule("disk space " + store.tags[0].getTagValue(),
+                    () -> fillRate.record(store.sampleUsedSpace()), DEFAULT_TTL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private void bindSpace(final RegistryHelper registryHelper, final Store store) {
         registryHelper
                 .bindIfNotPresent(
                         new ExtendedMetadataBuilder().withName("disk.free").withDescription("Usable space for path")
                                 .withUnit(BYTES).withType(GAUGE)
                                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                        (Gauge<Long>) path::getUsableSpace, tags);
+                        (LongGauge) store::getUsableSpace, store.tags);
 
         registryHelper
                 .bindIfNotPresent(
                         new ExtendedMetadataBuilder().withName("disk.total").withDescription("Total space for path")
                                 .withUnit(BYTES).withType(GAUGE)
                                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                        (Gauge<Long>) path::getTotalSpace, tags);
+                        (LongGauge) store::getTotalSpace, store.tags);
+    }
+
+    /**
+     * @return a gauge window, as the used space shrinks on deletes and log
+     *         rotation, which must not restart the window
+     */
+    static RateWindow fillRateWindow(final long windowSeconds, final LongSupplier nanoClock) {
+        final var capacity = (int) Math.max(2, windowSeconds / DEFAULT_TTL_SECONDS + 1);
+        return RateWindow.ofGauge(TimeUnit.SECONDS.toNanos(windowSeconds), capacity, nanoClock);
+    }
+
+    static double getSecondsToFull(final long usableSpace, final double fillRate) {
+        if (Double.isNaN(fillRate) || fillRate <= 0 || usableSpace < 0) {
+            return Double.NaN;
+        }
+        return usableSpace / fillRate;
+    }
+
+    /**
+     * @return one store per distinct {@link FileStore} of the existing paths
+     */
+    List<Store> resolveStores(final LongSupplier nanoClock) {
+        final Map<Object, Store> stores = new LinkedHashMap<>();
+        for (final File path : paths) {
+            if (!path.exists()) {
+                LOGGER.debug("Skipping disk space metrics for not existing path {}", path);
+                continue;
+            }
+            Object key;
+            try {
+                key = Files.getFileStore(path.toPath());
+            } catch (final IOException e) {
+                LOGGER.debug("Could not determine file store of {}: {}", path, e.getMessage());
+                key = path.getAbsoluteFile();
+            }
+            stores.putIfAbsent(key, new Store(path, nanoClock));
+        }
+        return new ArrayList<>(stores.values());
+    }
+
+    /**
+     * Space of a single file store, cached for {@link DiskSpaceMetrics#DEFAULT_TTL_SECONDS}.
+     */
+    static final class Store {
+
+        private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(DEFAULT_TTL_SECONDS);
+
+        private final File path;
+        private final Tag[] tags;
+        private final LongSupplier nanoClock;
+
+        private boolean valid;
+        private long readAt;
+        private long usableSpace;
+        private long totalSpace;
+
+        Store(final File path, final LongSupplier nanoClock) {
+            this.path = path;
+            tags = new Tag[] { new Tag("path", path.getAbsolutePath()) };
+            this.nanoClock = nanoClock;
+        }
+
+        synchronized long getUsableSpace() {
+            refresh();
+            return usableSpace;
+        }
+
+        synchronized long getTotalSpace() {
+            refresh();
+            return totalSpace;
+        }
+
+        synchronized long getUsedSpace() {
+            refresh();
+            return totalSpace - usableSpace;
+        }
+
+        /**
+         * Reads the used space bypassing the cache, so the fill rate window
+         * stamps a current value rather than one read up to a TTL ago. The
+         * fresh values are cached for the gauges as well.
+         *
+         * @return the currently used space
+         */
+        synchronized long sampleUsedSpace() {
+            read(nanoClock.getAsLong());
+            return totalSpace - usableSpace;
+        }
+
+        private void refresh() {
+            final var now = nanoClock.getAsLong();
+            if (valid && now - readAt < TTL_NANOS) {
+                return;
+            }
+            read(now);
+        }
+
+        private void read(final long now) {
+            usableSpace = path.getUsableSpace();
+            totalSpace = path.getTotalSpace();
+            readAt = now;
+            valid = true;
+        }
     }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import org.eclipse.microprofile.metrics.Gauge;
+
+/**
+ * {@link Gauge} providing its value as primitive {@code double}. Consumers
+ * aware of this type should call {@link #getDoubleValue()} in order to avoid
+ * boxing, {@link #getValue()} adapts it to the MicroProfile API.
+ * <p>
+ * Note that the SmallRye exporter behind {@link PortalMetricsServlet} only
+ * knows {@link Gauge#getValue()}, so the value is still boxed once per scrape
+ * there, see {@link LongGauge}.
+ * </p>
+ */
+@FunctionalInterface
+public interface DoubleGauge extends Gauge<Double> {
+
+    /**
+     * @return the current value of this gauge, {@link Double#NaN} if not
+     *         available
+     */
+    double getDoubleValue();
+
+    @Override
+    default Double getValue() {
+        return getDoubleValue();
+    }
+}
@@ -18,15 +18,21 @@ package de.cuioss.portal.tomcat.metrics;
 import static java.util.Objects.requireNonNull;
 import static org.eclipse.microprofile.metrics.MetricType.GAUGE;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-import org.eclipse.microprofile.metrics.Gauge;
 import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
 
 import de.cuioss.portal.metrics.RegistryHelper;
 import de.cuioss.tools.logging.CuiLogger;
@@ -34,7 +40,14 @@ import io.smallrye.metrics.ExtendedMetadataBuilder;
 import lombok.experimental.UtilityClass;
 
 /**
- * Registers metrics for file descriptors under Unix operating systems.
+ * Registers metrics for file descriptors under Unix operating systems. The
+ * counts of the {@code UnixOperatingSystemMXBean} are read by {@link MethodHandle}s
+ * resolved once at binding time.
+ * <p>
+ * Optionally, the open descriptors are periodically classified by the target of
+ * their link in {@code /proc/self/fd}, exported as {@code process.files.open.type}
+ * per {@code type}, in order to tell socket leaks from file leaks.
+ * </p>
  *
  * @author Sven Haag
  * @see <a href=
@@ -54,6 +67,11 @@ final class FileDescriptorMetrics {
             "com.ibm.lang.management.UnixOperatingSystemMXBean" // J9
     );
 
+    static final Path DEFAULT_FD_DIRECTORY = Paths.get("/proc/self/fd");
+
+    /** Types of descriptors, the index corresponds to {@link DescriptorTypes#classify(String)}. */
+    static final String[] TYPES = { "socket", "pipe", "file", "anon_inode", "other" };
+
     /**
      * Adds the metrics to the given registry.
      *
@@ -67,45 +85,75 @@ final class FileDescriptorMetrics {
 
         final var osBean = ManagementFactory.getOperatingSystemMXBean();
         final Class<?> osBeanClass = getFirstClassFound();
-        final var openFilesMethod = detectMethod("getOpenFileDescriptorCount", osBean, osBeanClass);
-        final var maxFilesMethod = detectMethod("getMaxFileDescriptorCount", osBean, osBeanClass);
+        final var openFilesHandle = detectHandle("getOpenFileDescriptorCount", osBean, osBeanClass);
+        final var maxFilesHandle = detectHandle("getMaxFileDescriptorCount", osBean, osBeanClass);
         final var registryHelper = new RegistryHelper(LOGGER, registry);
 
-        if (openFilesMethod != null) {
+        if (openFilesHandle != null) {
             registryHelper.bindIfNotPresent(
                     new ExtendedMetadataBuilder().withName("process.files.open")
                             .withDescription("The open file descriptor count").withType(GAUGE)
                             .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                    (Gauge<Double>) () -> invoke(openFilesMethod, osBean));
+                    (LongGauge) () -> invoke(openFilesHandle));
         }
 
-        if (maxFilesMethod != null) {
+        if (maxFilesHandle != null) {
             registryHelper.bindIfNotPresent(
                     new ExtendedMetadataBuilder().withName("process.files.max")
                             .withDescription("The maximum file descriptor count").withType(GAUGE)
                             .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                    (Gauge<Double>) () -> invoke(maxFilesMethod, osBean));
+                    (LongGauge) () -> invoke(maxFilesHandle));
         }
     }
 
-    private static double invoke(final Method method, final OperatingSystemMXBean osBean) {
+    /**
+     * Adds the per type breakdown of the open file descriptors, if the descriptor
+     * directory is readable.
+     *
+     * @param registry         to be bound to
+     * @param micrometerFormat whether to use the micrometer format
+     * @param fdDirectory      usually {@link #DEFAULT_FD_DIRECTORY}
+     * @param scheduler        executing the classification
+     * @param intervalSeconds  between two classifications
+     *
+     * @return the bound breakdown, {@code null} if the directory is not readable
+     */
+    static DescriptorTypes bindTypesTo(final MetricRegistry registry, final boolean micrometerFormat,
+            final Path fdDirectory, final MetricsScheduler scheduler, final long intervalSeconds) {
+        requireNonNull(registry);
+        if (!Files.isReadable(fdDirectory)) {
+            return null;
+        }
+        final var types = new DescriptorTypes(fdDirectory);
+        for (var i = 0; i < TYPES.length; i++) {
+            final var index = i;
+            registry.register(new ExtendedMetadataBuilder().withName("process.files.open.type")
+                    .withDescription("The open file descriptor count per type").withType(GAUGE)
+                    .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                    (LongGauge) () -> types.getCount(index), new Tag("type", TYPES[i]));
+        }
+        scheduler.schedule("file descriptor types", types::scan, intervalSeconds, TimeUnit.SECONDS);
+        return types;
+    }
+
+    private static long invoke(final MethodHandle handle) {
         try {
-            return method != null ? (double) (long) method.invoke(osBean) : Double.NaN;
-        } catch (final IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            return Double.NaN;
+            return (long) handle.invokeExact();
+        } catch (final Throwable e) {
+            LOGGER.debug("Could not read file descriptor count: {}", e.getMessage());
+            return -1L;
         }
     }
 
-    private static Method detectMethod(final String name, final OperatingSystemMXBean osBean,
+    private static MethodHandle detectHandle(final String name, final OperatingSystemMXBean osBean,
             final Class<?> osBeanClass) {
-        if (osBeanClass == null) {
+        if (osBeanClass == null || !osBeanClass.isInstance(osBean)) {
             return null;
         }
         try {
-            // ensure the Bean we have is actually an instance of the interface
-            osBeanClass.cast(osBean);
-            return osBeanClass.getDeclaredMethod(name);
-        } catch (final ClassCastException | NoSuchMethodException | SecurityException e) {
+            return MethodHandles.publicLookup().findVirtual(osBeanClass, name, MethodType.methodType(long.class))
+                    .bindTo(osBean);
+        } catch (final NoSuchMethodException | IllegalAccessException | SecurityException e) {
             return null;
         }
     }
@@ -120,4 +168,61 @@ final class FileDescriptorMetrics {
         }
         return null;
     }
+
+    /**
+     * Counts of the open file descriptors per type, updated by {@link #scan()}.
+     */
+    static final class DescriptorTypes {
+
+        private final Path fdDirectory;
+
+        private volatile long[] counts = new long[TYPES.length];
+
+        DescriptorTypes(final Path fdDirectory) {
+            this.fdDirectory = fdDirectory;
+        }
+
+        long getCount(final int typeIndex) {
+            return counts[typeIndex];
+        }
+
+        void scan() {
+            final var result = new long[TYPES.length];
+            try (var descriptors = Files.newDirectoryStream(fdDirectory)) {
+                for (final Path descriptor : descriptors) {
+                    try {
+                        result[classify(Files.readSymbolicLink(descriptor).toString())]++;
+                    } catch (final IOException e) {
+                        // closed in the meantime
+                        LOGGER.trace("Could not read descriptor {}", descriptor, e);
+                    }
+                }
+            } catch (final IOException e) {
+                LOGGER.debug("Could not list {}: {}", fdDirectory, e.getMessage());
+                return;
+            }
+            counts = result;
+        }
+
+        /**
+         * @param target of the descriptor link, e.g. {@code socket:[1234]}
+         *
+         * @return the index of the type within {@link FileDescriptorMetrics#TYPES}
+         */
+        static int classify(final String target) {
+            if (target.startsWith("socket:")) {
+                return 0;
+            }
+            if (target.startsWith("pipe:")) {
+                return 1;
+            }
+            if (target.startsWith("/")) {
+                return 2;
+            }
+            if (target.startsWith("anon_inode:")) {
+                return 3;
+            }
+            return 4;
+        }
+    }
 }
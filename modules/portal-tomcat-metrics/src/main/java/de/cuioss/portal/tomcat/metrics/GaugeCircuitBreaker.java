@@ -0,0 +1,173 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import de.cuioss.tools.logging.CuiLogger;
+
+/**
+ * Failure state of a single gauge or counter. After
+ * {@link #DEFAULT_FAILURE_THRESHOLD} consecutive failures the breaker opens and
+ * the value provider is not called anymore until {@link #DEFAULT_BACK_OFF_NANOS}
+ * have passed. Afterwards a single call is let through: on success the breaker
+ * closes, on failure it opens again for the next back-off period.
+ * <p>
+ * Opening the breaker is logged exactly once per breakdown, all other failures
+ * are only logged on debug level. The number of currently opened breakers is
+ * available via {@link #getOpenCount()}.
+ * </p>
+ */
+final class GaugeCircuitBreaker {
+
+    private static final CuiLogger LOGGER = new CuiLogger(GaugeCircuitBreaker.class);
+
+    private static final String ERROR_MSG = "Portal-535: Error retrieving metric, {} consecutive failures. Suspending retrieval for {}s.";
+
+    static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+    static final long DEFAULT_BACK_OFF_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    /** Number of breakers being open at the moment, exported as self-metric. */
+    private static final AtomicInteger OPEN_COUNT = new AtomicInteger(0);
+
+    private final int failureThreshold;
+    private final long backOffNanos;
+    private final LongSupplier nanoClock;
+
+    private int consecutiveFailures;
+    private boolean open;
+    private long retryAtNanos;
+
+    GaugeCircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_BACK_OFF_NANOS, System::nanoTime);
+    }
+
+    GaugeCircuitBreaker(final int failureThreshold, final long backOffNanos, final LongSupplier nanoClock) {
+        this.failureThreshold = failureThreshold;
+        this.backOffNanos = backOffNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @param callable to be called, if the breaker is not open
+     * @param fallback to be returned if the breaker is open or the call failed
+     *
+     * @return the result of the given callable or the fallback
+     */
+    synchronized long callLong(final LongCallable callable, final long fallback) {
+        if (isSuspended()) {
+            return fallback;
+        }
+        try {
+            final var result = callable.call();
+            onSuccess();
+            return result;
+        } catch (final Exception e) {
+            onFailure(e);
+            return fallback;
+        }
+    }
+
+    /**
+     * @param callable to be called, if the breaker is not open
+     * @param fallback to be returned if the breaker is open or the call failed
+     *
+     * @return the result of the given callable or the fallback
+     */
+    synchronized double callDouble(final DoubleCallable callable, final double fallback) {
+        if (isSuspended()) {
+            return fallback;
+        }
+        try {
+            final var result = callable.call();
+            onSuccess();
+            return result;
+        } catch (final Exception e) {
+            onFailure(e);
+            return fallback;
+        }
+    }
+
+    synchronized boolean isOpen() {
+        return open;
+    }
+
+    private boolean isSuspended() {
+        return open && nanoClock.getAsLong() - retryAtNanos < 0;
+    }
+
+    private void onSuccess() {
+        consecutiveFailures = 0;
+        if (open) {
+            open = false;
+            OPEN_COUNT.decrementAndGet();
+            LOGGER.info("Portal-535: Metric retrieval recovered.");
+        }
+    }
+
+    private void onFailure(final Exception e) {
+        consecutiveFailures++;
+        if (open) {
+            // half-open probe failed, stay open without logging again
+            retryAtNanos = nanoClock.getAsLong() + backOffNanos;
+            LOGGER.debug("Metric retrieval still failing: {}", e.getMessage());
+        } else if (consecutiveFailures >= failureThreshold) {
+            open = true;
+            retryAtNanos = nanoClock.getAsLong() + backOffNanos;
+            OPEN_COUNT.incrementAndGet();
+            LOGGER.warn(e, ERROR_MSG, consecutiveFailures, TimeUnit.NANOSECONDS.toSeconds(backOffNanos));
+        } else {
+            LOGGER.debug("Error retrieving metric: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of breakers being currently open, i.e. the number of
+     *         gauges and counters that are short-circuited
+     */
+    static int getOpenCount() {
+        return OPEN_COUNT.get();
+    }
+
+    /**
+     * Resets the number of open breakers, to be called when all guarded metrics
+     * have been discarded.
+     */
+    static void resetOpenCount() {
+        OPEN_COUNT.set(0);
+    }
+
+    /**
+     * Value provider returning a primitive {@code long}.
+     */
+    @FunctionalInterface
+    interface LongCallable {
+
+        long call() throws Exception;
+    }
+
+    /**
+     * Value provider returning a primitive {@code double}.
+     */
+    @FunctionalInterface
+    interface DoubleCallable {
+
+        double call() throws Exception;
+    }
+}
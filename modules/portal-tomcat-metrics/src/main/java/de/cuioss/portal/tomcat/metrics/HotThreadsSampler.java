@@ -0,0 +1,151 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+
+/**
+ * Determines the threads consuming most CPU time. The CPU time of all live
+ * threads is sampled twice, {@code interval} apart, and the threads with the
+ * highest difference are reported together with their state and top stack
+ * frames. Threads started during the interval are not taken into account.
+ * <p>
+ * CPU times are kept in primitive {@code long} arrays indexed in parallel to
+ * the array of thread ids, so sampling several hundred threads does not create
+ * any boxed values.
+ * </p>
+ */
+final class HotThreadsSampler {
+
+    private final ThreadMXBean threadBean;
+
+    HotThreadsSampler(final ThreadMXBean threadBean) {
+        this.threadBean = requireNonNull(threadBean);
+    }
+
+    /**
+     * @return {@code true} if the JVM supports and has enabled measuring the CPU
+     *         time of threads
+     */
+    boolean isAvailable() {
+        return threadBean.isThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * Blocks the calling thread for the given interval.
+     *
+     * @param intervalMillis time between the two samples
+     * @param threads        maximum number of threads to be reported
+     * @param frames         maximum number of stack frames per thread
+     *
+     * @return the report, threads sorted by CPU usage descending
+     *
+     * @throws InterruptedException if interrupted while waiting for the second
+     *                              sample
+     */
+    JsonObject sample(final long intervalMillis, final int threads, final int frames) throws InterruptedException {
+        final var ids = threadBean.getAllThreadIds();
+        final var cpuTimes = getCpuTimes(ids);
+        final var start = System.nanoTime();
+
+        TimeUnit.MILLISECONDS.sleep(intervalMillis);
+
+        final var after = getCpuTimes(ids);
+        final var elapsedNanos = System.nanoTime() - start;
+        for (var i = 0; i < ids.length; i++) {
+            // -1: thread died or cpu time not available
+            cpuTimes[i] = cpuTimes[i] < 0 || after[i] < 0 ? -1 : after[i] - cpuTimes[i];
+        }
+
+        final var top = selectTop(cpuTimes, threads);
+        final var topIds = new long[top.length];
+        for (var i = 0; i < top.length; i++) {
+            topIds[i] = ids[top[i]];
+        }
+        final var infos = threadBean.getThreadInfo(topIds, frames);
+
+        final var hotThreads = Json.createArrayBuilder();
+        for (var i = 0; i < top.length; i++) {
+            final var info = infos[i];
+            if (null == info) {
+                // terminated in the meantime
+                continue;
+            }
+            final var cpuTime = cpuTimes[top[i]];
+            hotThreads.add(Json.createObjectBuilder().add("id", info.getThreadId()).add("name", info.getThreadName())
+                    .add("state", info.getThreadState().name())
+                    .add("cpu", Math.round(cpuTime * 10000.0 / elapsedNanos) / 100.0).add("cpuTime", cpuTime)
+                    .add("stackTrace", toStackTrace(info)));
+        }
+        return Json.createObjectBuilder().add("interval", TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .add("sampledThreads", ids.length).add("hotThreads", hotThreads).build();
+    }
+
+    @SuppressWarnings("squid:S1191") // using the bulk operation of the SUN class if present
+    private long[] getCpuTimes(final long[] ids) {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadCpuTime(ids);
+        }
+        final var cpuTimes = new long[ids.length];
+        for (var i = 0; i < ids.length; i++) {
+            cpuTimes[i] = threadBean.getThreadCpuTime(ids[i]);
+        }
+        return cpuTimes;
+    }
+
+    /**
+     * Partial selection sort, cheaper than sorting all threads as only few
+     * threads are requested.
+     *
+     * @return indices of the highest, non-negative values, descending
+     */
+    static int[] selectTop(final long[] values, final int count) {
+        final var selected = new boolean[values.length];
+        final var top = new int[Math.min(count, values.length)];
+        var found = 0;
+        for (; found < top.length; found++) {
+            var max = -1;
+            for (var i = 0; i < values.length; i++) {
+                if (!selected[i] && values[i] >= 0 && (max < 0 || values[i] > values[max])) {
+                    max = i;
+                }
+            }
+            if (max < 0) {
+                break;
+            }
+            selected[max] = true;
+            top[found] = max;
+        }
+        return found < top.length ? Arrays.copyOf(top, found) : top;
+    }
+
+    private static JsonArrayBuilder toStackTrace(final ThreadInfo info) {
+        final var stackTrace = Json.createArrayBuilder();
+        for (final StackTraceElement element : info.getStackTrace()) {
+            stackTrace.add(element.toString());
+        }
+        return stackTrace;
+    }
+}
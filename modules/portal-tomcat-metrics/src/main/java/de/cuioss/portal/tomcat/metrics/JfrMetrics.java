@@ -0,0 +1,445 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import de.cuioss.tools.logging.CuiLogger;
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Aggregates short-lived JVM events that are invisible to the polling MXBean
+ * based binders, using a single continuous JFR {@link RecordingStream}:
+ * <ul>
+ * <li>{@code jvm.jfr.safepoint.duration}: safepoint durations, from the
+ * synchronization until the end of the operation</li>
+ * <li>{@code jvm.jfr.gc.pause.phase}: GC pause phases, tagged by phase</li>
+ * <li>{@code jvm.jfr.thread.park}: thread park latency</li>
+ * <li>{@code jvm.jfr.monitor.enter}: monitor enter latency</li>
+ * <li>{@code jvm.jfr.socket.read}, {@code jvm.jfr.socket.write}: socket I/O
+ * time</li>
+ * <li>{@code jvm.jfr.file.read}, {@code jvm.jfr.file.write}: file I/O time</li>
+ * </ul>
+ * All durations are recorded as histograms in microseconds.
+ * <p>
+ * The overhead is bounded twofold: Park, monitor, socket and file events are
+ * only recorded by the JVM if they exceed the configured threshold, and at most
+ * the configured number of events per second and event type is dispatched to
+ * the handlers, so a flood of one type does not starve the others. The number
+ * of events exceeding that budget is exported as
+ * {@code portal.metrics.jfr.events.dropped}. Safepoints are rare but valuable,
+ * so they are observed without budget.
+ * </p>
+ * <p>
+ * Other binders may {@link #subscribe(String, Duration, boolean, Consumer)} to,
+ * {@link #observe(String, Duration, Consumer)} or
+ * {@link #count(String, Duration, AtomicLong)} further events before the
+ * stream is {@link #start() started}.
+ * </p>
+ */
+class JfrMetrics implements Closeable {
+
+    private static final CuiLogger LOGGER = new CuiLogger(JfrMetrics.class);
+
+    static final String SAFEPOINT_BEGIN = "jdk.SafepointBegin";
+    static final String SAFEPOINT_END = "jdk.SafepointEnd";
+    static final String GC_PHASE_PAUSE = "jdk.GCPhasePause";
+    static final String THREAD_PARK = "jdk.ThreadPark";
+    static final String JAVA_MONITOR_ENTER = "jdk.JavaMonitorEnter";
+    static final String SOCKET_READ = "jdk.SocketRead";
+    static final String SOCKET_WRITE = "jdk.SocketWrite";
+    static final String FILE_READ = "jdk.FileRead";
+    static final String FILE_WRITE = "jdk.FileWrite";
+
+    /** Upper bound of distinct GC phase names, further phases are tagged as {@value #OTHER}. */
+    static final int MAX_GC_PHASES = 32;
+
+    static final String OTHER = "other";
+
+    /** How long already consumed recording data is kept on disk. */
+    private static final Duration MAX_AGE = Duration.ofMinutes(1);
+
+    private final boolean micrometerFormat;
+    private final Duration threshold;
+    private final int maxEventsPerSecond;
+    private final LongSupplier nanoClock;
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final Map<String, Subscription> subscriptions = new LinkedHashMap<>();
+    private final Map<String, Histogram> gcPhaseHistograms = new ConcurrentHashMap<>();
+    private final List<Consumer<Duration>> safepointObservers = new ArrayList<>();
+
+    private RecordingStream stream;
+
+    /**
+     * @param micrometerFormat   whether to skip the scope in the OpenMetrics export
+     * @param threshold          minimum duration of park, monitor and I/O events
+     *                           to be recorded
+     * @param maxEventsPerSecond number of events per second and event type
+     *                           being dispatched at most
+     */
+    JfrMetrics(final boolean micrometerFormat, final Duration threshold, final int maxEventsPerSecond) {
+        this(micrometerFormat, threshold, maxEventsPerSecond, System::nanoTime);
+    }
+
+    JfrMetrics(final boolean micrometerFormat, final Duration threshold, final int maxEventsPerSecond,
+            final LongSupplier nanoClock) {
+        this.micrometerFormat = micrometerFormat;
+        this.threshold = requireNonNull(threshold);
+        this.maxEventsPerSecond = maxEventsPerSecond;
+        this.nanoClock = requireNonNull(nanoClock);
+    }
+
+    /**
+     * @return {@code true} if the running JVM contains the JFR module and JFR is
+     *         not disabled
+     */
+    static boolean isAvailable() {
+        try {
+            return FlightRecorder.isAvailable();
+        } catch (final LinkageError | SecurityException e) {
+            LOGGER.debug("JFR is not available: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @param eventName name of the JFR event type, e.g. {@code jdk.VirtualThreadPinned}
+     *
+     * @return {@code true} if the running JVM knows the event type
+     */
+    static boolean hasEventType(final String eventName) {
+        try {
+            return FlightRecorder.getFlightRecorder().getEventTypes().stream()
+                    .anyMatch(eventType -> eventType.getName().equals(eventName));
+        } catch (final LinkageError | IllegalStateException | SecurityException e) {
+            LOGGER.debug("Could not determine JFR event types: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    void bindTo(final MetricRegistry registry) {
+        requireNonNull(registry);
+
+        final var safepointHistogram = registry.histogram(metadata("jvm.jfr.safepoint.duration",
+                "Time the JVM spent in safepoints, from the synchronization until the end of the operation"));
+        observeSafepoints(duration -> safepointHistogram.update(toMicros(duration)));
+        subscribe(GC_PHASE_PAUSE, Duration.ZERO, false, event -> recordGcPhase(registry, event));
+        subscribe(THREAD_PARK, threshold, false, histogram(registry, "jvm.jfr.thread.park",
+                "Time threads have been parked, e.g. waiting for a lock or a condition"));
+        subscribe(JAVA_MONITOR_ENTER, threshold, false, histogram(registry, "jvm.jfr.monitor.enter",
+                "Time threads have been blocked entering a monitor"));
+        subscribe(SOCKET_READ, threshold, false,
+                histogram(registry, "jvm.jfr.socket.read", "Time threads have been reading from a socket"));
+        subscribe(SOCKET_WRITE, threshold, false,
+                histogram(registry, "jvm.jfr.socket.write", "Time threads have been writing to a socket"));
+        subscribe(FILE_READ, threshold, false,
+                histogram(registry, "jvm.jfr.file.read", "Time threads have been reading from a file"));
+        subscribe(FILE_WRITE, threshold, false,
+                histogram(registry, "jvm.jfr.file.write", "Time threads have been writing to a file"));
+
+        registry.register(new ExtendedMetadataBuilder().withName("portal.metrics.jfr.events.dropped")
+                .withType(MetricType.COUNTER)
+                .withDescription("Number of JFR events not being evaluated due to the event budget")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                .withOpenMetricsKeyOverride(micrometerFormat ? "portal_metrics_jfr_events_dropped_total" : null)
+                .build(), new GetCountOnlyCounter() {
+
+                    @Override
+                    public long getCount() {
+                        return droppedEvents.get();
+                    }
+                });
+    }
+
+    /**
+     * Registers a handler for the given event. Must be called before
+     * {@link #start()}. The handlers are called on the single dispatching thread
+     * of the stream.
+     *
+     * @param eventName  of the JFR event, e.g. {@value #THREAD_PARK}
+     * @param threshold  minimum duration of the event to be recorded. If several
+     *                   handlers subscribe to the same event, the lowest
+     *                   threshold is used
+     * @param stackTrace whether the handler needs the stack trace of the event
+     * @param handler    to be called for each event
+     */
+    synchronized void subscribe(final String eventName, final Duration threshold, final boolean stackTrace,
+            final Consumer<RecordedEvent> handler) {
+        if (null != stream) {
+            throw new IllegalStateException("JFR stream is already started");
+        }
+        subscription(eventName).add(threshold, stackTrace, handler);
+    }
+
+    /**
+     * Observes the given event without dispatching it to a handler. Observing
+     * is not subject to the event budget, so it is suitable for frequent or
+     * rare but valuable events, as long as the observer is cheap. Must be
+     * called before {@link #start()}.
+     *
+     * @param eventName of the JFR event
+     * @param threshold minimum duration of the event to be observed
+     * @param observer  to be called for each event on the single dispatching
+     *                  thread of the stream
+     */
+    synchronized void observe(final String eventName, final Duration threshold,
+            final Consumer<RecordedEvent> observer) {
+        subscription(eventName).addObserver(threshold, observer);
+    }
+
+    /**
+     * Observes the duration of each safepoint, from the synchronization until
+     * the end of the operation. The begin and end events are correlated once
+     * for all observers, without the event budget. Must be called before
+     * {@link #start()}.
+     *
+     * @param observer to be called with the duration of each safepoint on the
+     *                 single dispatching thread of the stream
+     */
+    synchronized void observeSafepoints(final Consumer<Duration> observer) {
+        requireNonNull(observer);
+        if (safepointObservers.isEmpty()) {
+            final var safepoints = new SafepointCorrelator();
+            observe(SAFEPOINT_BEGIN, Duration.ZERO, event -> safepoints
+                    .begin(event.getLong(SafepointCorrelator.SAFEPOINT_ID), event.getStartTime()));
+            observe(SAFEPOINT_END, Duration.ZERO, event -> {
+                final var duration = safepoints.end(event.getLong(SafepointCorrelator.SAFEPOINT_ID),
+                        event.getEndTime());
+                if (null != duration) {
+                    for (final Consumer<Duration> safepointObserver : safepointObservers) {
+                        safepointObserver.accept(duration);
+                    }
+                }
+            });
+        }
+        safepointObservers.add(observer);
+    }
+
+    /**
+     * Counts the given event without dispatching it to a handler. Counting is
+     * not subject to the event budget, so it is suitable for frequent events.
+     * Must be called before {@link #start()}.
+     *
+     * @param eventName of the JFR event
+     * @param threshold minimum duration of the event to be counted
+     * @param counter   to be incremented for each event
+     */
+    synchronized void count(final String eventName, final Duration threshold, final AtomicLong counter) {
+        requireNonNull(counter);
+        observe(eventName, threshold, event -> counter.incrementAndGet());
+    }
+
+    /**
+     * Sets an additional setting of the given event, e.g. the {@code throttle}
+     * of {@code jdk.ObjectAllocationSample}. Must be called before
+     * {@link #start()}.
+     *
+     * @param eventName of the JFR event
+     * @param setting   name of the setting
+     * @param value     of the setting
+     */
+    synchronized void configure(final String eventName, final String setting, final String value) {
+        subscription(eventName).settings.put(setting, value);
+    }
+
+    private Subscription subscription(final String eventName) {
+        if (null != stream) {
+            throw new IllegalStateException("JFR stream is already started");
+        }
+        return subscriptions.computeIfAbsent(eventName,
+                name -> new Subscription(new EventBudget(maxEventsPerSecond, nanoClock)));
+    }
+
+    /**
+     * Starts the recording stream asynchronously.
+     */
+    synchronized void start() {
+        if (null != stream) {
+            return;
+        }
+        stream = new RecordingStream();
+        stream.setMaxAge(MAX_AGE);
+        subscriptions.forEach((eventName, subscription) -> {
+            final var settings = stream.enable(eventName);
+            if (null != subscription.threshold) {
+                settings.withThreshold(subscription.threshold);
+            }
+            if (subscription.stackTrace) {
+                settings.withStackTrace();
+            } else {
+                settings.withoutStackTrace();
+            }
+            subscription.settings.forEach(settings::with);
+            stream.onEvent(eventName, event -> dispatch(subscription, event));
+        });
+        stream.onError(e -> LOGGER.warn(e, "Portal-535: Error evaluating JFR event"));
+        stream.startAsync();
+        LOGGER.debug("Started JFR stream for {}", subscriptions.keySet());
+    }
+
+    private void dispatch(final Subscription subscription, final RecordedEvent event) {
+        for (final Consumer<RecordedEvent> observer : subscription.observers) {
+            observer.accept(event);
+        }
+        if (subscription.handlers.isEmpty()) {
+            return;
+        }
+        if (!subscription.budget.tryAcquire()) {
+            droppedEvents.incrementAndGet();
+            return;
+        }
+        for (final Consumer<RecordedEvent> handler : subscription.handlers) {
+            handler.accept(event);
+        }
+    }
+
+    private void recordGcPhase(final MetricRegistry registry, final RecordedEvent event) {
+        var phase = event.getString("name");
+        if (null == phase || !gcPhaseHistograms.containsKey(phase) && gcPhaseHistograms.size() >= MAX_GC_PHASES) {
+            phase = OTHER;
+        }
+        gcPhaseHistograms.computeIfAbsent(phase,
+                name -> registry.histogram(metadata("jvm.jfr.gc.pause.phase", "Duration of GC pause phases"),
+                        new Tag("phase", name)))
+                .update(toMicros(event.getDuration()));
+    }
+
+    private Consumer<RecordedEvent> histogram(final MetricRegistry registry, final String name,
+            final String description) {
+        final var histogram = registry.histogram(metadata(name, description));
+        return event -> histogram.update(toMicros(event.getDuration()));
+    }
+
+    private Metadata metadata(final String name, final String description) {
+        return new ExtendedMetadataBuilder().withName(name).withType(MetricType.HISTOGRAM)
+                .withUnit(MetricUnits.MICROSECONDS).withDescription(description)
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build();
+    }
+
+    /**
+     * @return the configured threshold for park, monitor and I/O events
+     */
+    Duration getThreshold() {
+        return threshold;
+    }
+
+    private static long toMicros(final Duration duration) {
+        return TimeUnit.NANOSECONDS.toMicros(duration.toNanos());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (null != stream) {
+            stream.close();
+        }
+    }
+
+    /**
+     * Handlers of a single event type together with the combined settings and
+     * the budget of the event type.
+     */
+    private static final class Subscription {
+
+        private final List<Consumer<RecordedEvent>> handlers = new ArrayList<>();
+        private final List<Consumer<RecordedEvent>> observers = new ArrayList<>();
+        private final Map<String, String> settings = new LinkedHashMap<>();
+        private final EventBudget budget;
+        private Duration threshold;
+        private boolean stackTrace;
+
+        Subscription(final EventBudget budget) {
+            this.budget = budget;
+        }
+
+        void add(final Duration handlerThreshold, final boolean handlerStackTrace,
+                final Consumer<RecordedEvent> handler) {
+            handlers.add(requireNonNull(handler));
+            lowerThreshold(handlerThreshold);
+            stackTrace |= handlerStackTrace;
+        }
+
+        void addObserver(final Duration observerThreshold, final Consumer<RecordedEvent> observer) {
+            observers.add(requireNonNull(observer));
+            lowerThreshold(observerThreshold);
+        }
+
+        private void lowerThreshold(final Duration other) {
+            if (null == threshold || other.compareTo(threshold) < 0) {
+                threshold = other;
+            }
+        }
+    }
+
+    /**
+     * Fixed one second window limiting the number of dispatched events. Only
+     * accessed by the single dispatching thread of the stream.
+     */
+    static final class EventBudget {
+
+        private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final int maxEventsPerSecond;
+        private final LongSupplier nanoClock;
+
+        private long windowStart;
+        private int eventsInWindow;
+
+        EventBudget(final int maxEventsPerSecond, final LongSupplier nanoClock) {
+            this.maxEventsPerSecond = maxEventsPerSecond;
+            this.nanoClock = nanoClock;
+            windowStart = nanoClock.getAsLong();
+        }
+
+        /**
+         * @return {@code true} if the event may be dispatched, {@code false} if
+         *         the budget of the current second is exhausted
+         */
+        boolean tryAcquire() {
+            final var now = nanoClock.getAsLong();
+            if (now - windowStart >= WINDOW_NANOS) {
+                windowStart = now;
+                eventsInWindow = 0;
+            }
+            if (eventsInWindow >= maxEventsPerSecond) {
+                return false;
+            }
+            eventsInWindow++;
+            return true;
+        }
+    }
+}
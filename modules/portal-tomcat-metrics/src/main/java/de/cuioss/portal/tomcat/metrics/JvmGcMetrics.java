@@ -19,9 +19,17 @@ import java.io.Closeable;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryPoolMXBean;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.management.ListenerNotFoundException;
@@ -30,7 +38,7 @@ import javax.management.NotificationEmitter;
 import javax.management.NotificationListener;
 import javax.management.openmbean.CompositeData;
 
-import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Counter;
 import org.eclipse.microprofile.metrics.MetricID;
 import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.eclipse.microprofile.metrics.MetricType;
@@ -58,6 +66,27 @@ class JvmGcMetrics implements Closeable {
 
     private static final CuiLogger LOGGER = new CuiLogger(JvmGcMetrics.class);
 
+    static final String CONSUMER_THREAD_NAME = "portal-metrics-gc";
+
+    private static final int NOTIFICATION_QUEUE_CAPACITY = 1024;
+
+    private static final String PAUSE = "jvm.gc.pause";
+
+    private static final String CONCURRENT_PHASE = "jvm.gc.concurrent.phase.time";
+
+    /** Default upper bounds of the pause histogram buckets in seconds. */
+    static final double[] DEFAULT_PAUSE_BUCKETS = { 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5 };
+
+    /** Default window of the maximum pause, as Micrometer's default step expiry. */
+    static final Duration DEFAULT_MAX_WINDOW = Duration.ofMinutes(2);
+
+    static final String INFINITY_BUCKET = "+Inf";
+
+    /** Default sliding window of the GC overhead, as Micrometer's lookback window. */
+    static final Duration DEFAULT_OVERHEAD_WINDOW = Duration.ofMinutes(5);
+
+    private static final int OVERHEAD_BUCKETS = 60;
+
     private String youngGenPoolName;
     private String oldGenPoolName;
 
@@ -65,6 +94,8 @@ class JvmGcMetrics implements Closeable {
     private final AtomicLong liveDataSize = new AtomicLong(0);
     // jvm.gc.max.data.size metric
     private final AtomicLong maxDataSize = new AtomicLong(0);
+    // jvm.gc.live.data.growth and jvm.gc.live.data.exhaustion metrics
+    private final LiveDataTrend liveDataTrend = new LiveDataTrend();
     // jvm.gc.memory.promoted metric
     private final AtomicLong promotedBytes = new AtomicLong(0);
     // jvm.gc.memory.allocated metric
@@ -110,20 +141,61 @@ class JvmGcMetrics implements Closeable {
         }
     }
 
-    // keeps track of maximum gc pause lengths for a given GC cause and action
-    private final Map<CauseAndActionWrapper, AtomicLong> gcPauseMax = new HashMap<>();
-
-    // and the same for concurrent GC phases
-    private final Map<CauseAndActionWrapper, AtomicLong> gcPauseMaxConcurrent = new HashMap<>();
+    // pre-resolved jvm.gc.pause and jvm.gc.concurrent.phase.time metrics per GC
+    // cause and action, only modified by the notification consumer
+    private final Map<CauseAndActionWrapper, PauseMetrics> pauseMetrics = new ConcurrentHashMap<>();
 
     // To keep track of notification listeners that we register so we can clean them
     // up later
     private final Map<NotificationEmitter, NotificationListener> notificationEmitters = new HashMap<>();
 
+    // Notifications are emitted by JMX threads and handed over to this single
+    // consumer, so that the bookkeeping needs no locking
+    private final ThreadPoolExecutor notificationConsumer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(NOTIFICATION_QUEUE_CAPACITY), runnable -> {
+                final var thread = new Thread(runnable, CONSUMER_THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }, (runnable, executor) -> LOGGER.debug("Discarding GC notification, consumer is lagging behind"));
+
+    // young generation usage after the last GC, only modified by the notification consumer
+    private final AtomicLong youngGenSizeAfter = new AtomicLong(0L);
+
     private final boolean micrometerCompatibility;
 
+    // upper bounds of the pause histogram buckets in seconds, ascending
+    private final double[] pauseBuckets;
+
+    private final long maxWindowNanos;
+
+    // accumulated GC time in milliseconds within the overhead window
+    private final SlidingWindowSum gcTime;
+
+    private final boolean overheadIncludesConcurrent;
+
     JvmGcMetrics(final boolean micrometerCompatibility) {
+        this(micrometerCompatibility, DEFAULT_PAUSE_BUCKETS, DEFAULT_MAX_WINDOW, DEFAULT_OVERHEAD_WINDOW, false);
+    }
+
+    /**
+     * @param micrometerCompatibility    whether to export Micrometer compatible
+     *                                   metrics only
+     * @param pauseBuckets               upper bounds of the pause histogram
+     *                                   buckets in seconds, may be empty to
+     *                                   disable the histogram
+     * @param maxWindow                  window of the reported maximum pause
+     * @param overheadWindow             sliding window of {@code jvm.gc.overhead}
+     * @param overheadIncludesConcurrent whether concurrent GC phases count as
+     *                                   overhead, too
+     */
+    JvmGcMetrics(final boolean micrometerCompatibility, final double[] pauseBuckets, final Duration maxWindow,
+            final Duration overheadWindow, final boolean overheadIncludesConcurrent) {
         this.micrometerCompatibility = micrometerCompatibility;
+        this.pauseBuckets = pauseBuckets.clone();
+        Arrays.sort(this.pauseBuckets);
+        maxWindowNanos = maxWindow.toNanos();
+        gcTime = new SlidingWindowSum(overheadWindow.toNanos(), OVERHEAD_BUCKETS, System::nanoTime);
+        this.overheadIncludesConcurrent = overheadIncludesConcurrent;
         for (final MemoryPoolMXBean mbean : ManagementFactory.getMemoryPoolMXBeans()) {
             final var name = mbean.getName();
             if (isYoungGenPool(name)) {
@@ -141,11 +213,26 @@ class JvmGcMetrics implements Closeable {
 
         registry.register(new ExtendedMetadataBuilder().withName("jvm.gc.max.data.size").withType(MetricType.GAUGE)
                 .withUnit(MetricUnits.BYTES).withDescription("Max size of old generation memory pool")
-                .skipsScopeInOpenMetricsExportCompletely(true).build(), (Gauge<?>) this::getMaxDataSize);
+                .skipsScopeInOpenMetricsExportCompletely(true).build(), (LongGauge) this::getMaxDataSize);
 
         registry.register(new ExtendedMetadataBuilder().withName("jvm.gc.live.data.size").withType(MetricType.GAUGE)
                 .withUnit(MetricUnits.BYTES).withDescription("Size of old generation memory pool after a full GC")
-                .skipsScopeInOpenMetricsExportCompletely(true).build(), (Gauge<?>) this::getLiveDataSize);
+                .skipsScopeInOpenMetricsExportCompletely(true).build(), (LongGauge) this::getLiveDataSize);
+
+        registry.register(new ExtendedMetadataBuilder().withName("jvm.gc.live.data.growth")
+                .withType(MetricType.GAUGE).withUnit(MetricUnits.BYTES)
+                .withDescription("Growth of the old generation memory pool after GC per second, linear trend")
+                .skipsScopeInOpenMetricsExportCompletely(true)
+                .withOpenMetricsKeyOverride("jvm_gc_live_data_growth_bytes_per_second").build(),
+                (DoubleGauge) liveDataTrend::getGrowthRate);
+
+        registry.register(new ExtendedMetadataBuilder().withName("jvm.gc.live.data.exhaustion")
+                .withType(MetricType.GAUGE).withUnit(MetricUnits.SECONDS)
+                .withDescription("""
+                        Estimated time until the old generation memory pool is exhausted after GC, \
+                        extrapolating the linear trend. NaN if the live data size is not growing\
+                        """).skipsScopeInOpenMetricsExportCompletely(true).build(),
+                (DoubleGauge) () -> liveDataTrend.getSecondsToExhaustion(getMaxDataSize()));
 
         registry.register(new ExtendedMetadataBuilder().withName("jvm.gc.memory.promoted").withType(MetricType.COUNTER)
                 .withUnit(MetricUnits.BYTES)
@@ -178,31 +265,46 @@ class JvmGcMetrics implements Closeable {
                     }
                 });
 
+        registry.register(new ExtendedMetadataBuilder().withName("jvm.gc.overhead").withType(MetricType.GAUGE)
+                .withUnit(MetricUnits.NONE)
+                .withDescription("""
+                        Ratio of the wall time spent in GC within the sliding window, \
+                        an approximation of the CPU time used by GC activities\
+                        """)
+                .skipsScopeInOpenMetricsExportCompletely(true).build(), (DoubleGauge) this::getGcOverhead);
+
         // start updating the metric values in a listener for GC events
         // Metrics that mimic the jvm.gc.pause timer will be registered lazily as GC
         // events occur
         startWatchingNotifications(registry);
     }
 
-    public Long getLiveDataSize() {
+    public long getLiveDataSize() {
         return liveDataSize.get();
     }
 
-    public Long getMaxDataSize() {
+    public long getMaxDataSize() {
         return maxDataSize.get();
     }
 
-    public Long getPromotedBytes() {
+    /**
+     * @return the ratio of GC time to wall time within the sliding window,
+     *         between 0 and 1
+     */
+    public double getGcOverhead() {
+        final var windowMillis = TimeUnit.NANOSECONDS.toMillis(gcTime.getEffectiveWindowNanos());
+        return windowMillis == 0 ? 0.0 : Math.min(1.0, (double) gcTime.getSum() / windowMillis);
+    }
+
+    public long getPromotedBytes() {
         return promotedBytes.get();
     }
 
-    public Long getAllocatedBytes() {
+    public long getAllocatedBytes() {
         return allocatedBytes.get();
     }
 
     private void startWatchingNotifications(final MetricRegistry registry) {
-        final var youngGenSizeAfter = new AtomicLong(0L);
-
         for (final GarbageCollectorMXBean mbean : ManagementFactory.getGarbageCollectorMXBeans()) {
 
             if (!micrometerCompatibility) {
@@ -216,19 +318,25 @@ class JvmGcMetrics implements Closeable {
                 continue;
             }
 
-            final NotificationListener notificationListener = (notification,
-                    ref) -> handleNotificationListener(registry, youngGenSizeAfter, notification);
+            final NotificationListener notificationListener = (notification, ref) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    notificationConsumer.execute(() -> handleNotification(registry, notification));
+                }
+            };
             final var notificationEmitter = (NotificationEmitter) mbean;
             notificationEmitter.addNotificationListener(notificationListener, null, null);
             notificationEmitters.put(notificationEmitter, notificationListener);
         }
     }
 
-    private void handleNotificationListener(final MetricRegistry registry, final AtomicLong youngGenSizeAfter,
-            Notification notification) {
-        if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
-            return;
-        }
+    /**
+     * Records a GC notification, called by the single notification consumer.
+     *
+     * @param registry     to register the pause metrics of a new GC cause and
+     *                     action to
+     * @param notification a {@link GarbageCollectionNotificationInfo}
+     */
+    void handleNotification(final MetricRegistry registry, final Notification notification) {
         final var cd = (CompositeData) notification.getUserData();
         final var notificationInfo = GarbageCollectionNotificationInfo.from(cd);
 
@@ -237,34 +345,13 @@ class JvmGcMetrics implements Closeable {
         final var gcInfo = notificationInfo.getGcInfo();
         final var duration = gcInfo.getDuration();
 
-        final var metricName = isConcurrentPhase(gcCause) ? "jvm.gc.concurrent.phase.time" : "jvm.gc.pause";
-        final var mapForStoringMax = isConcurrentPhase(gcCause) ? gcPauseMax : gcPauseMaxConcurrent;
-
-        final var tags = new Tag[] { new Tag("action", gcAction), new Tag("cause", gcCause) };
-        final var causeAndAction = new CauseAndActionWrapper(gcCause, gcAction);
-
-        final var pauseSecondsMaxMetricID = new MetricID(metricName + ".seconds.max", tags);
-        final var gcPauseMaxValue = mapForStoringMax.computeIfAbsent(causeAndAction, k -> new AtomicLong(0));
-        if (duration > gcPauseMaxValue.get()) {
-            gcPauseMaxValue.set(duration); // update the maximum GC length if needed
+        pauseMetrics.computeIfAbsent(new CauseAndActionWrapper(gcCause, gcAction),
+                key -> new PauseMetrics(registry, isConcurrentPhase(gcCause) ? CONCURRENT_PHASE : PAUSE, gcCause,
+                        gcAction, pauseBuckets, new TimeWindowMax(maxWindowNanos, System::nanoTime)))
+                .record(duration);
+        if (overheadIncludesConcurrent || !isConcurrentPhase(gcCause)) {
+            gcTime.add(duration);
         }
-        if (!registry.getGauges().containsKey(pauseSecondsMaxMetricID)) {
-            registry.register(
-                    new ExtendedMetadataBuilder().withName(metricName + ".seconds.max").withType(MetricType.GAUGE)
-                            .withUnit(MetricUnits.NONE).withDescription(TIME_SPENT_IN_GC_PAUSE)
-                            .skipsScopeInOpenMetricsExportCompletely(true).build(),
-                    (Gauge<?>) () -> mapForStoringMax.get(causeAndAction).doubleValue() / 1000.0, tags);
-        }
-
-        registry.counter(new ExtendedMetadataBuilder().withName(metricName + ".seconds.count")
-                .withType(MetricType.COUNTER).withUnit(MetricUnits.NONE).withDescription(TIME_SPENT_IN_GC_PAUSE)
-                .skipsScopeInOpenMetricsExportCompletely(true)
-                .withOpenMetricsKeyOverride(metricName.replace(".", "_") + "_seconds_count").build(), tags).inc();
-
-        registry.counter(new ExtendedMetadataBuilder().withName(metricName + ".seconds.sum")
-                .withType(MetricType.COUNTER).withUnit(MetricUnits.MILLISECONDS).withDescription(TIME_SPENT_IN_GC_PAUSE)
-                .skipsScopeInOpenMetricsExportCompletely(true)
-                .withOpenMetricsKeyOverride(metricName.replace(".", "_") + "_seconds_sum").build(), tags).inc(duration);
 
         // Update promotion and allocation counters
         final var before = gcInfo.getMemoryUsageBeforeGc();
@@ -288,6 +375,7 @@ class JvmGcMetrics implements Closeable {
                 liveDataSize.set(oldAfter);
                 final var oldMaxAfter = after.get(oldGenPoolName).getMax();
                 maxDataSize.set(oldMaxAfter);
+                liveDataTrend.record(gcInfo.getEndTime(), oldAfter);
             }
         }
 
@@ -328,7 +416,104 @@ class JvmGcMetrics implements Closeable {
                          this collector. The Java virtual machine implementation may use a high resolution timer\
                          to measure the elapsed time. This attribute may display the same value even if the\s\
                         collection count has been incremented if the collection elapsed time is very short.""").build(),
-                (Gauge<?>) mbean::getCollectionTime, new Tag("name", mbean.getName()));
+                (LongGauge) mbean::getCollectionTime, new Tag("name", mbean.getName()));
+    }
+
+    /**
+     * Mimics the Micrometer timer {@code jvm.gc.pause} (or
+     * {@code jvm.gc.concurrent.phase.time}) for a single GC cause and action with
+     * a gauge for the maximum within a rolling window, a counter, a gauge for the
+     * sum and one cumulative counter per histogram bucket, resolved once. All
+     * values are in seconds like the bucket bounds, the sum is a gauge as
+     * counters only hold whole numbers.
+     */
+    private static final class PauseMetrics {
+
+        private final TimeWindowMax max;
+        private final Counter count;
+        // accumulated duration in milliseconds, only written by the notification consumer
+        private final AtomicLong sumMillis = new AtomicLong();
+        private final double[] bucketBounds;
+        private final Counter[] buckets;
+
+        PauseMetrics(final MetricRegistry registry, final String metricName, final String gcCause,
+                final String gcAction, final double[] bucketBounds, final TimeWindowMax max) {
+            this.max = max;
+            this.bucketBounds = bucketBounds;
+            final var tags = new Tag[] { new Tag("action", gcAction), new Tag("cause", gcCause) };
+
+            if (!registry.getGauges().containsKey(new MetricID(metricName + ".seconds.max", tags))) {
+                registry.register(new ExtendedMetadataBuilder().withName(metricName + ".seconds.max")
+                        .withType(MetricType.GAUGE).withUnit(MetricUnits.NONE).withDescription(TIME_SPENT_IN_GC_PAUSE)
+                        .skipsScopeInOpenMetricsExportCompletely(true).build(),
+                        (DoubleGauge) () -> max.poll() / 1000.0, tags);
+            }
+
+            count = registry.counter(new ExtendedMetadataBuilder().withName(metricName + ".seconds.count")
+                    .withType(MetricType.COUNTER).withUnit(MetricUnits.NONE).withDescription(TIME_SPENT_IN_GC_PAUSE)
+                    .skipsScopeInOpenMetricsExportCompletely(true)
+                    .withOpenMetricsKeyOverride(metricName.replace(".", "_") + "_seconds_count").build(), tags);
+
+            if (!registry.getGauges().containsKey(new MetricID(metricName + ".seconds.sum", tags))) {
+                registry.register(new ExtendedMetadataBuilder().withName(metricName + ".seconds.sum")
+                        .withType(MetricType.GAUGE).withUnit(MetricUnits.NONE).withDescription(TIME_SPENT_IN_GC_PAUSE)
+                        .skipsScopeInOpenMetricsExportCompletely(true).build(),
+                        (DoubleGauge) () -> sumMillis.get() / 1000.0, tags);
+            }
+
+            buckets = new Counter[bucketBounds.length + 1];
+            if (bucketBounds.length > 0) {
+                final var bucketMetadata = new ExtendedMetadataBuilder().withName(metricName + ".seconds.bucket")
+                        .withType(MetricType.COUNTER).withUnit(MetricUnits.NONE)
+                        .withDescription(TIME_SPENT_IN_GC_PAUSE).skipsScopeInOpenMetricsExportCompletely(true)
+                        .withOpenMetricsKeyOverride(metricName.replace(".", "_") + "_seconds_bucket").build();
+                for (var i = 0; i <= bucketBounds.length; i++) {
+                    final var le = i < bucketBounds.length ? formatBucket(bucketBounds[i]) : INFINITY_BUCKET;
+                    buckets[i] = registry.counter(bucketMetadata, tags[0], tags[1], new Tag("le", le));
+                }
+            }
+        }
+
+        void record(final long durationMillis) {
+            max.record(durationMillis);
+            count.inc();
+            sumMillis.addAndGet(durationMillis);
+            if (bucketBounds.length > 0) {
+                final var seconds = durationMillis / 1000.0;
+                // cumulative buckets: each one counts all pauses below its bound
+                for (var i = bucketBounds.length - 1; i >= 0 && seconds <= bucketBounds[i]; i--) {
+                    buckets[i].inc();
+                }
+                buckets[bucketBounds.length].inc();
+            }
+        }
+    }
+
+    /**
+     * @param bound upper bound in seconds
+     *
+     * @return the bound formatted like the {@code le} tag of Micrometer, e.g.
+     *         {@code 0.005} or {@code 1.0}
+     */
+    static String formatBucket(final double bound) {
+        final var plain = BigDecimal.valueOf(bound).stripTrailingZeros().toPlainString();
+        return plain.contains(".") ? plain : plain + ".0";
+    }
+
+    /**
+     * @param values upper bounds in seconds as configured
+     *
+     * @return the valid, positive bounds, invalid ones are logged and skipped
+     */
+    static double[] parsePauseBuckets(final List<String> values) {
+        return values.stream().map(String::trim).filter(value -> !value.isEmpty()).mapToDouble(value -> {
+            try {
+                return Double.parseDouble(value);
+            } catch (final NumberFormatException e) {
+                LOGGER.warn("Ignoring invalid GC pause bucket: {}", value);
+                return -1;
+            }
+        }).filter(bound -> bound > 0 && !Double.isInfinite(bound)).distinct().sorted().toArray();
     }
 
     @Override
@@ -341,6 +526,8 @@ class JvmGcMetrics implements Closeable {
                 LOGGER.trace("Could not close GC metrics listener", e);
             }
         });
+        notificationEmitters.clear();
+        notificationConsumer.shutdownNow();
     }
 
     private boolean isYoungGenPool(final String name) {
@@ -20,7 +20,6 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryPoolMXBean;
 import java.lang.management.MemoryType;
 
-import org.eclipse.microprofile.metrics.Gauge;
 import org.eclipse.microprofile.metrics.Metadata;
 import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.eclipse.microprofile.metrics.MetricType;
@@ -52,7 +51,7 @@ final class JvmMetrics {
                             .withType(MetricType.GAUGE).withUnit("buffers").multi(true)
                             .withDescription("An estimate of the number of buffers in the pool")
                             .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                    (Gauge) bufferPoolBean::getCount, tags);
+                    (LongGauge) bufferPoolBean::getCount, tags);
 
             registry.register(new ExtendedMetadataBuilder()
                     .withName(micrometerFormat ? "jvm.buffer.memory.used" : "buffer.usedMemory")
@@ -61,7 +60,7 @@ final class JvmMetrics {
                     .withDescription(
                             "An estimate of the memory that the Java Virtual Machine is using for this buffer pool")
                     .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                    (Gauge) bufferPoolBean::getMemoryUsed, tags);
+                    (LongGauge) bufferPoolBean::getMemoryUsed, tags);
 
             registry.register(
                     new ExtendedMetadataBuilder()
@@ -69,7 +68,7 @@ final class JvmMetrics {
                             .withType(MetricType.GAUGE).withUnit(MetricUnits.BYTES).multi(true)
                             .withDescription("An estimate of the total capacity of the buffers in this pool")
                             .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                    (Gauge) bufferPoolBean::getTotalCapacity, tags);
+                    (LongGauge) bufferPoolBean::getTotalCapacity, tags);
         }
     }
 
@@ -89,7 +88,7 @@ final class JvmMetrics {
                             .withDisplayName("MemoryPool Usage Used").withType(MetricType.GAUGE)
                             .withUnit(MetricUnits.BYTES).withDescription("The amount of used memory")
                             .multi(micrometerFormat).skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                    (Gauge) () -> memoryPoolMXBean.getUsage().getUsed(), tags);
+                    (LongGauge) () -> memoryPoolMXBean.getUsage().getUsed(), tags);
 
             registry.register(new ExtendedMetadataBuilder()
                     .withName(micrometerFormat ? "jvm.memory.committed" : "memory.committed")
@@ -98,7 +97,7 @@ final class JvmMetrics {
                     .withDescription(
                             "The amount of memory in bytes that is committed for the Java Virtual Machine to use")
                     .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                    (Gauge) () -> memoryPoolMXBean.getUsage().getCommitted(), tags);
+                    (LongGauge) () -> memoryPoolMXBean.getUsage().getCommitted(), tags);
 
             registry.register(
                     new ExtendedMetadataBuilder().withName(micrometerFormat ? "jvm.memory.max" : "memory.max")
@@ -107,7 +106,7 @@ final class JvmMetrics {
                             .withDescription(
                                     "The maximum amount of memory in bytes that can be used for memory management")
                             .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                    (Gauge) () -> memoryPoolMXBean.getUsage().getMax(), tags);
+                    (LongGauge) () -> memoryPoolMXBean.getUsage().getMax(), tags);
 
             registry.register(
                     new ExtendedMetadataBuilder().withName(micrometerFormat ? "jvm.memory.maxUsage" : "memory.maxUsage")
@@ -115,7 +114,7 @@ final class JvmMetrics {
                             .withDisplayName("MemoryPool PeakUsage Used")
                             .withDescription("Peak usage of the memory pool.")
                             .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                    (Gauge) () -> memoryPoolMXBean.getPeakUsage().getUsed(), tags);
+                    (LongGauge) () -> memoryPoolMXBean.getPeakUsage().getUsed(), tags);
         }
     }
 
@@ -133,7 +132,7 @@ final class JvmMetrics {
                 .withDisplayName("Committed Heap Memory").withDescription("""
                         Displays the amount of memory in bytes that is committed for the Java Virtual Machine to use. \
                         This amount of memory is guaranteed for the Java virtual machine to use.\
-                        """).build(), (Gauge) () -> memoryMXBean.getHeapMemoryUsage().getCommitted());
+                        """).build(), (LongGauge) () -> memoryMXBean.getHeapMemoryUsage().getCommitted());
 
         registry.register(Metadata.builder()
                 // required by MP spec
@@ -146,31 +145,31 @@ final class JvmMetrics {
                                 This amount of memory is not guaranteed to be available for memory management if it is greater\s\
                                 than the amount of committed memory. The Java virtual machine may fail to allocate memory even\s\
                                 if the amount of used memory does not exceed this maximum size.""")
-                .build(), (Gauge) () -> memoryMXBean.getHeapMemoryUsage().getMax());
+                .build(), (LongGauge) () -> memoryMXBean.getHeapMemoryUsage().getMax());
 
         registry.register(Metadata.builder()
                 // required by MP spec
                 .withName("memory.usedHeap").withType(MetricType.GAUGE).withUnit(MetricUnits.BYTES)
                 .withDisplayName("Used Heap Memory")
                 .withDescription("Displays the amount of used heap memory in bytes.").build(),
-                (Gauge) () -> memoryMXBean.getHeapMemoryUsage().getUsed());
+                (LongGauge) () -> memoryMXBean.getHeapMemoryUsage().getUsed());
 
         registry.register(Metadata.builder().withName("memory.committedNonHeap").withType(MetricType.GAUGE)
                 .withUnit(MetricUnits.BYTES).withDisplayName("Committed Non Heap Memory").withDescription("""
                         Displays the amount of non heap memory in bytes that is committed for the \
                         Java virtual machine to use.\
-                        """).build(), (Gauge) () -> memoryMXBean.getNonHeapMemoryUsage().getCommitted());
+                        """).build(), (LongGauge) () -> memoryMXBean.getNonHeapMemoryUsage().getCommitted());
 
         registry.register(
                 Metadata.builder().withName("memory.maxNonHeap").withType(MetricType.GAUGE).withUnit(MetricUnits.BYTES)
                         .withDisplayName("Max Non Heap Memory")
                         .withDescription("Displays the maximum amount of used non-heap memory in bytes.").build(),
-                (Gauge) () -> memoryMXBean.getNonHeapMemoryUsage().getMax());
+                (LongGauge) () -> memoryMXBean.getNonHeapMemoryUsage().getMax());
 
         registry.register(
                 Metadata.builder().withName("memory.usedNonHeap").withType(MetricType.GAUGE).withUnit(MetricUnits.BYTES)
                         .withDisplayName("Used Non Heap Memory")
                         .withDescription("Displays the amount of used non-heap memory in bytes.").build(),
-                (Gauge) () -> memoryMXBean.getNonHeapMemoryUsage().getUsed());
+                (LongGauge) () -> memoryMXBean.getNonHeapMemoryUsage().getUsed());
     }
 }
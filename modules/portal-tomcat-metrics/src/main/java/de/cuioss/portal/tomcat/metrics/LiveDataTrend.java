@@ -0,0 +1,110 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+/**
+ * Linear trend of the live data size, i.e. the old generation usage after
+ * collections. The last {@value #CAPACITY} samples are kept in a ring buffer,
+ * on each new sample a least squares regression is computed over them. A
+ * steadily positive growth rate hints at a memory leak long before the heap is
+ * exhausted.
+ * <p>
+ * Samples are recorded by a single thread, the results are read by scrapes.
+ * </p>
+ */
+final class LiveDataTrend {
+
+    static final int CAPACITY = 32;
+
+    /** Minimum number of samples required for an estimate. */
+    static final int MIN_SAMPLES = 3;
+
+    private final long[] timesMillis = new long[CAPACITY];
+    private final long[] sizes = new long[CAPACITY];
+    private int next;
+    private int count;
+
+    // bytes per second, NaN if not enough samples
+    private volatile double growthRate = Double.NaN;
+    // regression value at the time of the latest sample
+    private volatile double fittedSize = Double.NaN;
+
+    /**
+     * @param timeMillis point in time of the sample in milliseconds, e.g. the
+     *                   end time of the collection
+     * @param size       live data size in bytes
+     */
+    synchronized void record(final long timeMillis, final long size) {
+        timesMillis[next] = timeMillis;
+        sizes[next] = size;
+        next = (next + 1) % CAPACITY;
+        if (count < CAPACITY) {
+            count++;
+        }
+        if (count >= MIN_SAMPLES) {
+            regress(timeMillis);
+        }
+    }
+
+    private void regress(final long latestMillis) {
+        // relative to the latest sample in seconds, for numerical stability
+        double sumX = 0;
+        double sumY = 0;
+        double sumXX = 0;
+        double sumXY = 0;
+        for (var i = 0; i < count; i++) {
+            final var x = (timesMillis[i] - latestMillis) / 1000.0;
+            final double y = sizes[i];
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+        }
+        final var denominator = count * sumXX - sumX * sumX;
+        if (denominator == 0) {
+            // all samples at the same time
+            return;
+        }
+        final var slope = (count * sumXY - sumX * sumY) / denominator;
+        growthRate = slope;
+        // intercept at x = 0, i.e. the latest sample
+        fittedSize = (sumY - slope * sumX) / count;
+    }
+
+    /**
+     * @return the growth of the live data size in bytes per second, NaN if there
+     *         are not enough samples
+     */
+    double getGrowthRate() {
+        return growthRate;
+    }
+
+    /**
+     * @param maxSize maximum size of the memory pool in bytes
+     *
+     * @return the estimated seconds until the live data size reaches the given
+     *         maximum, measured from the latest sample. NaN if the live data is
+     *         not growing or the maximum is undefined
+     */
+    double getSecondsToExhaustion(final long maxSize) {
+        final var rate = growthRate;
+        final var fitted = fittedSize;
+        if (maxSize <= 0 || Double.isNaN(rate) || rate <= 0) {
+            return Double.NaN;
+        }
+        return Math.max(0, (maxSize - fitted) / rate);
+    }
+}
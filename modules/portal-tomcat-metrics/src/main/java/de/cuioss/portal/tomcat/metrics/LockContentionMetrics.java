@@ -0,0 +1,266 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+
+/**
+ * Aggregates the time threads are blocked entering a monitor
+ * ({@value JfrMetrics#JAVA_MONITOR_ENTER}), parked
+ * ({@value JfrMetrics#THREAD_PARK}) or virtual threads are pinned to their
+ * carrier ({@value VirtualThreadMetrics#VIRTUAL_THREAD_PINNED}) by monitor
+ * class and top stack frame, using a bounded {@link TopK}. The frames of
+ * {@code java.util.concurrent.locks}, the virtual thread and the JDK internal
+ * park implementation are skipped, so the top frame is the code acquiring the
+ * lock. Parks of idle pool workers or queue consumers, e.g. in
+ * {@code ThreadPoolExecutor.getTask} or {@code LinkedBlockingQueue.take}, are
+ * no contention and ignored, as they would dominate the hotspots otherwise.
+ * Stack traces are only requested for these events, as all of them are
+ * attributed by frame.
+ * <p>
+ * The accumulated time and number of events are exported per kind
+ * ({@code monitor}, {@code park} or {@code pinned}) as
+ * {@code jvm.jfr.contention.time} and {@code jvm.jfr.contention.count}. The
+ * hotspots themselves are reported as JSON by {@link PortalContentionServlet},
+ * as their cardinality is not suitable for metric tags.
+ * </p>
+ */
+final class LockContentionMetrics implements Closeable {
+
+    static final String KIND_MONITOR = "monitor";
+    static final String KIND_PARK = "park";
+    static final String KIND_PINNED = "pinned";
+
+    static final String UNKNOWN = "unknown";
+
+    /** Number of hotspots being tracked. */
+    static final int DEFAULT_CAPACITY = 100;
+
+    private static final String[] SKIPPED_FRAME_PREFIXES = { "java.util.concurrent.locks.", "jdk.internal.misc.",
+            "sun.misc.Unsafe", "java.lang.VirtualThread", "java.lang.System$", "jdk.internal.vm.Continuation" };
+
+    private static final String CONCURRENT_PACKAGE = "java.util.concurrent.";
+
+    /** Methods of {@value #CONCURRENT_PACKAGE} waiting for work rather than for a lock. */
+    private static final Set<String> IDLE_WAIT_METHODS = Set.of("ThreadPoolExecutor.getTask",
+            "ForkJoinPool.awaitWork", "ArrayBlockingQueue.take", "ArrayBlockingQueue.poll",
+            "LinkedBlockingQueue.take", "LinkedBlockingQueue.poll", "LinkedBlockingDeque.takeFirst",
+            "LinkedBlockingDeque.pollFirst", "LinkedTransferQueue.take", "LinkedTransferQueue.poll",
+            "SynchronousQueue.take", "SynchronousQueue.poll", "PriorityBlockingQueue.take",
+            "PriorityBlockingQueue.poll", "DelayQueue.take", "DelayQueue.poll",
+            "ScheduledThreadPoolExecutor$DelayedWorkQueue.take", "ScheduledThreadPoolExecutor$DelayedWorkQueue.poll");
+
+    /** The instance bound by the {@link MetricsInitializer}, read by the servlet. */
+    private static final AtomicReference<LockContentionMetrics> ACTIVE = new AtomicReference<>();
+
+    private final TopK<Hotspot> hotspots;
+    private final boolean micrometerFormat;
+
+    private final AtomicLong monitorNanos = new AtomicLong();
+    private final AtomicLong monitorCount = new AtomicLong();
+    private final AtomicLong parkNanos = new AtomicLong();
+    private final AtomicLong parkCount = new AtomicLong();
+    private final AtomicLong pinnedNanos = new AtomicLong();
+    private final AtomicLong pinnedCount = new AtomicLong();
+
+    /**
+     * @param capacity         number of hotspots being tracked
+     * @param micrometerFormat whether to skip the scope in the OpenMetrics export
+     */
+    LockContentionMetrics(final int capacity, final boolean micrometerFormat) {
+        hotspots = new TopK<>(capacity);
+        this.micrometerFormat = micrometerFormat;
+    }
+
+    /**
+     * @return the currently bound instance, if any
+     */
+    static Optional<LockContentionMetrics> getActive() {
+        return Optional.ofNullable(ACTIVE.get());
+    }
+
+    void bindTo(final MetricRegistry registry, final JfrMetrics jfrMetrics) {
+        requireNonNull(registry);
+
+        registerCounters(registry, KIND_MONITOR, monitorNanos, monitorCount);
+        registerCounters(registry, KIND_PARK, parkNanos, parkCount);
+        registerCounters(registry, KIND_PINNED, pinnedNanos, pinnedCount);
+
+        jfrMetrics.subscribe(JfrMetrics.JAVA_MONITOR_ENTER, jfrMetrics.getThreshold(), true,
+                event -> record(KIND_MONITOR, event, "monitorClass", monitorNanos, monitorCount));
+        jfrMetrics.subscribe(JfrMetrics.THREAD_PARK, jfrMetrics.getThreshold(), true, event -> {
+            if (!isIdleWait(event)) {
+                record(KIND_PARK, event, "parkedClass", parkNanos, parkCount);
+            }
+        });
+        // virtual threads blocking their carrier thread, the event has no lock class
+        jfrMetrics.subscribe(VirtualThreadMetrics.VIRTUAL_THREAD_PINNED, jfrMetrics.getThreshold(), true,
+                event -> record(KIND_PINNED, event, null, pinnedNanos, pinnedCount));
+
+        ACTIVE.set(this);
+    }
+
+    private void registerCounters(final MetricRegistry registry, final String kind, final AtomicLong nanos,
+            final AtomicLong count) {
+        final var tag = new Tag("kind", kind);
+        registry.register(new ExtendedMetadataBuilder().withName("jvm.jfr.contention.time")
+                .withType(MetricType.COUNTER).withUnit(MetricUnits.MILLISECONDS)
+                .withDescription("Accumulated time threads have been blocked on monitors or parked on locks")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                .withOpenMetricsKeyOverride(micrometerFormat ? "jvm_jfr_contention_time_milliseconds_total" : null)
+                .build(), new GetCountOnlyCounter() {
+
+                    @Override
+                    public long getCount() {
+                        return TimeUnit.NANOSECONDS.toMillis(nanos.get());
+                    }
+                }, tag);
+        registry.register(new ExtendedMetadataBuilder().withName("jvm.jfr.contention.count")
+                .withType(MetricType.COUNTER)
+                .withDescription("Number of times threads have been blocked on monitors or parked on locks")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                .withOpenMetricsKeyOverride(micrometerFormat ? "jvm_jfr_contention_count_total" : null).build(),
+                new GetCountOnlyCounter() {
+
+                    @Override
+                    public long getCount() {
+                        return count.get();
+                    }
+                }, tag);
+    }
+
+    private void record(final String kind, final RecordedEvent event, final String classField,
+            final AtomicLong nanos, final AtomicLong count) {
+        final var duration = event.getDuration().toNanos();
+        nanos.addAndGet(duration);
+        count.incrementAndGet();
+        final RecordedClass lockClass = null == classField ? null : event.getClass(classField);
+        add(new Hotspot(kind, null == lockClass ? UNKNOWN : lockClass.getName(), getTopFrame(event)), duration);
+    }
+
+    void add(final Hotspot hotspot, final long nanos) {
+        hotspots.add(hotspot, nanos);
+    }
+
+    private static String getTopFrame(final RecordedEvent event) {
+        final var stackTrace = event.getStackTrace();
+        if (null == stackTrace) {
+            return UNKNOWN;
+        }
+        for (final RecordedFrame frame : stackTrace.getFrames()) {
+            final var type = frame.getMethod().getType().getName();
+            if (!isSkipped(type)) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * @param event a park event
+     * @return whether one of the {@value #CONCURRENT_PACKAGE} frames on top of
+     *         the calling code is waiting for work
+     */
+    private static boolean isIdleWait(final RecordedEvent event) {
+        final var stackTrace = event.getStackTrace();
+        if (null == stackTrace) {
+            return false;
+        }
+        for (final RecordedFrame frame : stackTrace.getFrames()) {
+            final var type = frame.getMethod().getType().getName();
+            if (!isSkipped(type)) {
+                if (!type.startsWith(CONCURRENT_PACKAGE)) {
+                    return false;
+                }
+                if (isIdleWaitMethod(type, frame.getMethod().getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static boolean isIdleWaitMethod(final String type, final String method) {
+        return type.startsWith(CONCURRENT_PACKAGE)
+                && IDLE_WAIT_METHODS.contains(type.substring(CONCURRENT_PACKAGE.length()) + "." + method);
+    }
+
+    static boolean isSkipped(final String type) {
+        for (final String prefix : SKIPPED_FRAME_PREFIXES) {
+            if (type.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param limit maximum number of hotspots
+     *
+     * @return the hotspots with the highest accumulated time, times are in
+     *         milliseconds
+     */
+    JsonObject report(final int limit) {
+        final var result = Json.createArrayBuilder();
+        for (final TopK.Entry<Hotspot> entry : hotspots.top(limit)) {
+            result.add(Json.createObjectBuilder().add("kind", entry.key().kind()).add("class", entry.key().lockClass())
+                    .add("frame", entry.key().frame()).add("time", TimeUnit.NANOSECONDS.toMillis(entry.weight()))
+                    .add("count", entry.count()).add("error", TimeUnit.NANOSECONDS.toMillis(entry.error())));
+        }
+        return Json.createObjectBuilder().add("capacity", hotspots.getCapacity()).add("hotspots", result).build();
+    }
+
+    int getCapacity() {
+        return hotspots.getCapacity();
+    }
+
+    @Override
+    public void close() {
+        ACTIVE.compareAndSet(this, null);
+        hotspots.clear();
+    }
+
+    /**
+     * Aggregation key of contention events.
+     *
+     * @param kind      either {@value #KIND_MONITOR}, {@value #KIND_PARK} or
+     *                  {@value #KIND_PINNED}
+     * @param lockClass class of the monitor or the park blocker
+     * @param frame     top stack frame outside the lock implementation
+     */
+    record Hotspot(String kind, String lockClass, String frame) {
+    }
+}
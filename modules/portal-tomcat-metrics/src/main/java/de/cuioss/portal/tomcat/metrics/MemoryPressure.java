@@ -0,0 +1,37 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+/**
+ * Coarse heap pressure state, maintained by {@link MemoryPressureMetrics} from
+ * memory threshold notifications. Can be read cheaply via
+ * {@link MemoryPressureMetrics#getCurrentPressure()}, e.g. for health checks or
+ * load shedding.
+ */
+public enum MemoryPressure {
+
+    /** No heap pool exceeds its thresholds. */
+    NORMAL,
+
+    /** The usage of a heap pool exceeds its usage threshold. */
+    ELEVATED,
+
+    /**
+     * The usage of a heap pool after a collection exceeds its collection usage
+     * threshold, i.e. the live data itself is close to the limit.
+     */
+    CRITICAL
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+
+import de.cuioss.tools.logging.CuiLogger;
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+
+/**
+ * Push based heap pressure tracking: Instead of polling the memory pools, usage
+ * and collection usage thresholds are set on the tenured heap pools and the
+ * threshold notifications of the {@link java.lang.management.MemoryMXBean}
+ * update
+ * <ul>
+ * <li>{@code jvm.memory.threshold.exceeded}: number of threshold crossings per
+ * pool ({@code id}) and {@code type} ({@code usage} or {@code collection})</li>
+ * <li>{@code jvm.memory.pressure}: the {@link MemoryPressure} ordinal</li>
+ * </ul>
+ * Thresholds already set by others are left untouched and used as they are.
+ * Young generation pools are skipped, as they fill up and exceed any threshold
+ * between two minor collections on a healthy JVM. The platform offers no way
+ * to tell them apart, so they are identified by the names used by the
+ * HotSpot and OpenJ9 collectors.
+ * <p>
+ * As the JVM only notifies about exceeding a threshold, the pressure is
+ * re-evaluated against the flagged pools on read while it is not
+ * {@link MemoryPressure#NORMAL}.
+ * </p>
+ */
+public final class MemoryPressureMetrics implements Closeable {
+
+    private static final CuiLogger LOGGER = new CuiLogger(MemoryPressureMetrics.class);
+
+    static final String TYPE_USAGE = "usage";
+    static final String TYPE_COLLECTION = "collection";
+
+    private static final List<String> YOUNG_POOL_NAMES = List.of("eden", "survivor", "young", "nursery");
+
+    /** The instance bound by the {@link MetricsInitializer}. */
+    private static final AtomicReference<MemoryPressureMetrics> ACTIVE = new AtomicReference<>();
+
+    private final NotificationEmitter memoryBean;
+    private final List<MemoryPoolMXBean> pools = new ArrayList<>();
+    private final double usageThreshold;
+    private final double collectionThreshold;
+    private final boolean micrometerFormat;
+
+    private final Map<String, AtomicLong> usageCrossings = new HashMap<>();
+    private final Map<String, AtomicLong> collectionCrossings = new HashMap<>();
+
+    private volatile MemoryPressure pressure = MemoryPressure.NORMAL;
+
+    private final NotificationListener listener = this::handleNotification;
+
+    /**
+     * @param memoryBean          the platform memory bean emitting the threshold
+     *                            notifications
+     * @param pools               memory pools, only tenured heap pools are
+     *                            considered
+     * @param usageThreshold      ratio of the pool maximum to be set as usage
+     *                            threshold
+     * @param collectionThreshold ratio of the pool maximum to be set as
+     *                            collection usage threshold
+     * @param micrometerFormat    whether to skip the scope in the OpenMetrics
+     *                            export
+     */
+    MemoryPressureMetrics(final NotificationEmitter memoryBean, final List<MemoryPoolMXBean> pools,
+            final double usageThreshold, final double collectionThreshold, final boolean micrometerFormat) {
+        this.memoryBean = requireNonNull(memoryBean);
+        for (final MemoryPoolMXBean pool : pools) {
+            if (isTenured(pool)) {
+                this.pools.add(pool);
+            }
+        }
+        this.usageThreshold = checkRatio(usageThreshold, TYPE_USAGE);
+        this.collectionThreshold = checkRatio(collectionThreshold, TYPE_COLLECTION);
+        this.micrometerFormat = micrometerFormat;
+    }
+
+    /**
+     * @return the given ratio if within (0, 1], otherwise {@code 0}, so no
+     *         threshold is set, as the pool rejects thresholds above its maximum
+     */
+    static double checkRatio(final double ratio, final String type) {
+        if (ratio > 0 && ratio <= 1) {
+            return ratio;
+        }
+        LOGGER.warn("Ignoring invalid memory {} threshold ratio {}, expected a value in (0, 1]", type, ratio);
+        return 0;
+    }
+
+    /**
+     * @param pool to be checked
+     * @return whether the given pool is a heap pool not belonging to the young
+     *         generation
+     */
+    static boolean isTenured(final MemoryPoolMXBean pool) {
+        if (!MemoryType.HEAP.equals(pool.getType())) {
+            return false;
+        }
+        final var name = pool.getName().toLowerCase(Locale.ROOT);
+        return YOUNG_POOL_NAMES.stream().noneMatch(name::contains);
+    }
+
+    /**
+     * @return the heap pressure of the bound instance, {@link MemoryPressure#NORMAL}
+     *         if the metrics are not bound
+     */
+    public static MemoryPressure getCurrentPressure() {
+        final var active = ACTIVE.get();
+        return null == active ? MemoryPressure.NORMAL : active.getPressure();
+    }
+
+    void bindTo(final MetricRegistry registry) {
+        requireNonNull(registry);
+
+        for (final MemoryPoolMXBean pool : pools) {
+            final var max = pool.getUsage().getMax();
+            if (pool.isUsageThresholdSupported()) {
+                if (pool.getUsageThreshold() == 0 && max > 0 && usageThreshold > 0) {
+                    pool.setUsageThreshold((long) (max * usageThreshold));
+                }
+                usageCrossings.put(pool.getName(), registerCounter(registry, pool.getName(), TYPE_USAGE));
+            }
+            if (pool.isCollectionUsageThresholdSupported()) {
+                if (pool.getCollectionUsageThreshold() == 0 && max > 0 && collectionThreshold > 0) {
+                    pool.setCollectionUsageThreshold((long) (max * collectionThreshold));
+                }
+                collectionCrossings.put(pool.getName(), registerCounter(registry, pool.getName(), TYPE_COLLECTION));
+            }
+        }
+
+        registry.register(new ExtendedMetadataBuilder().withName("jvm.memory.pressure").withType(MetricType.GAUGE)
+                .withDescription("Heap pressure derived from memory threshold notifications: "
+                        + "0 = normal, 1 = usage threshold exceeded, 2 = collection usage threshold exceeded")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                (LongGauge) () -> getPressure().ordinal());
+
+        memoryBean.addNotificationListener(listener, null, null);
+        ACTIVE.set(this);
+    }
+
+    private AtomicLong registerCounter(final MetricRegistry registry, final String poolName, final String type) {
+        final var crossings = new AtomicLong();
+        registry.register(new ExtendedMetadataBuilder().withName("jvm.memory.threshold.exceeded")
+                .withType(MetricType.COUNTER)
+                .withDescription("Number of times the usage of the memory pool exceeded its threshold")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                .withOpenMetricsKeyOverride(micrometerFormat ? "jvm_memory_threshold_exceeded_total" : null).build(),
+                new GetCountOnlyCounter() {
+
+                    @Override
+                    public long getCount() {
+                        return crossings.get();
+                    }
+                }, new Tag("id", poolName), new Tag("type", type));
+        return crossings;
+    }
+
+    void handleNotification(final Notification notification, final Object handback) {
+        final var type = notification.getType();
+        final var collection = MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type);
+        if (!collection && !MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type)) {
+            return;
+        }
+        final var info = MemoryNotificationInfo.from((CompositeData) notification.getUserData());
+        final var crossings = (collection ? collectionCrossings : usageCrossings).get(info.getPoolName());
+        if (null != crossings) {
+            // the notification carries the total number of crossings
+            crossings.set(info.getCount());
+        }
+        raise(collection ? MemoryPressure.CRITICAL : MemoryPressure.ELEVATED, info.getPoolName());
+    }
+
+    private synchronized void raise(final MemoryPressure raised, final String poolName) {
+        if (raised.compareTo(pressure) > 0) {
+            pressure = raised;
+            LOGGER.debug("Heap pressure raised to {} by pool '{}'", raised, poolName);
+        }
+    }
+
+    /**
+     * @return the current heap pressure. Only while it is raised, the flagged
+     *         pools are checked whether it has been relieved, which is exclusive
+     *         to raising it on a notification
+     */
+    MemoryPressure getPressure() {
+        if (MemoryPressure.NORMAL == pressure) {
+            return MemoryPressure.NORMAL;
+        }
+        return relieve();
+    }
+
+    private synchronized MemoryPressure relieve() {
+        var current = MemoryPressure.NORMAL;
+        for (final MemoryPoolMXBean pool : pools) {
+            if (collectionCrossings.containsKey(pool.getName()) && pool.isCollectionUsageThresholdExceeded()) {
+                current = MemoryPressure.CRITICAL;
+                break;
+            }
+            if (usageCrossings.containsKey(pool.getName()) && pool.isUsageThresholdExceeded()) {
+                current = MemoryPressure.ELEVATED;
+            }
+        }
+        pressure = current;
+        return current;
+    }
+
+    @Override
+    public void close() {
+        ACTIVE.compareAndSet(this, null);
+        try {
+            memoryBean.removeNotificationListener(listener);
+        } catch (final ListenerNotFoundException e) {
+            LOGGER.trace("Could not remove memory threshold listener", e);
+        }
+    }
+}
@@ -19,23 +19,54 @@ import static de.cuioss.portal.configuration.MetricsConfigKeys.PORTAL_METRICS_EN
 import static de.cuioss.portal.configuration.MetricsConfigKeys.PORTAL_METRICS_MICROMETER_COMPATIBILITY;
 import static de.cuioss.portal.configuration.MetricsConfigKeys.PORTAL_METRICS_OS_SUN_ENABLED;
 import static de.cuioss.portal.configuration.MetricsConfigKeys.PORTAL_METRICS_TOMCAT_ENABLED;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_BUFFER_DIRECT_THRESHOLD;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_BUFFER_RATE_WINDOW;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_CGROUP_ENABLED;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_DISK_PATHS;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_DISK_RATE_WINDOW;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_FILES_TYPES_INTERVAL;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_GC_OVERHEAD_CONCURRENT;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_GC_OVERHEAD_WINDOW;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_GC_PAUSE_BUCKETS;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_GC_PAUSE_MAX_WINDOW;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_IO_RATE_WINDOW;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_ALLOCATION_ENABLED;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_CONTENTION_ENABLED;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_ENABLED;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_MAX_EVENTS_PER_SECOND;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_THRESHOLD;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_VIRTUAL_THREADS_LIFECYCLE;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_MEMORY_COLLECTION_THRESHOLD;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_MEMORY_USAGE_THRESHOLD;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_NMT_INTERVAL;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_TCP_INTERVAL;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_THREADS_CONTENTION_ENABLED;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_THREADS_CONTENTION_INTERVAL;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_WEBAPP_CLASSLOADERS_INTERVAL;
 
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.management.NotificationEmitter;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
 import org.eclipse.microprofile.metrics.annotation.RegistryType;
 
 import de.cuioss.portal.configuration.initializer.ApplicationInitializer;
 import de.cuioss.portal.configuration.initializer.PortalInitializer;
+import de.cuioss.portal.configuration.types.ConfigAsList;
 import de.cuioss.tools.logging.CuiLogger;
+import io.smallrye.metrics.ExtendedMetadataBuilder;
 
 @PortalInitializer
 @ApplicationScoped
@@ -75,6 +106,102 @@ class MetricsInitializer implements ApplicationInitializer {
     @ConfigProperty(name = PORTAL_METRICS_TOMCAT_ENABLED)
     private boolean tomcatMetricsEnabled;
 
+    @Inject
+    @ConfigAsList(name = PORTAL_METRICS_GC_PAUSE_BUCKETS)
+    private List<String> gcPauseBuckets;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_GC_PAUSE_MAX_WINDOW)
+    private long gcPauseMaxWindow;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_GC_OVERHEAD_WINDOW)
+    private long gcOverheadWindow;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_GC_OVERHEAD_CONCURRENT)
+    private boolean gcOverheadConcurrent;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_MEMORY_USAGE_THRESHOLD)
+    private double memoryUsageThreshold;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_MEMORY_COLLECTION_THRESHOLD)
+    private double memoryCollectionThreshold;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_THREADS_CONTENTION_ENABLED)
+    private boolean threadContentionEnabled;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_THREADS_CONTENTION_INTERVAL)
+    private long threadContentionInterval;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_JFR_ENABLED)
+    private boolean jfrEnabled;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_JFR_THRESHOLD)
+    private long jfrThreshold;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_JFR_MAX_EVENTS_PER_SECOND)
+    private int jfrMaxEventsPerSecond;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_JFR_CONTENTION_ENABLED)
+    private boolean jfrContentionEnabled;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_JFR_ALLOCATION_ENABLED)
+    private boolean jfrAllocationEnabled;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_CGROUP_ENABLED)
+    private boolean cgroupEnabled;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_IO_RATE_WINDOW)
+    private long ioRateWindow;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_NMT_INTERVAL)
+    private long nmtInterval;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_JFR_VIRTUAL_THREADS_LIFECYCLE)
+    private boolean jfrVirtualThreadsLifecycle;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_FILES_TYPES_INTERVAL)
+    private long filesTypesInterval;
+
+    @Inject
+    @ConfigAsList(name = PORTAL_METRICS_DISK_PATHS)
+    private List<String> diskPaths;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_DISK_RATE_WINDOW)
+    private long diskRateWindow;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_TCP_INTERVAL)
+    private long tcpInterval;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_BUFFER_RATE_WINDOW)
+    private long bufferRateWindow;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_BUFFER_DIRECT_THRESHOLD)
+    private double bufferDirectThreshold;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_WEBAPP_CLASSLOADERS_INTERVAL)
+    private long webappClassLoadersInterval;
+
     @Inject
     @RegistryType(type = MetricRegistry.Type.BASE)
     private MetricRegistry baseRegistry;
@@ -103,6 +230,7 @@ class MetricsInitializer implements ApplicationInitializer {
             }
         }
         CLOSEABLE_LIST.clear();
+        GaugeCircuitBreaker.resetOpenCount();
         initialized = false;
     }
 
@@ -118,21 +246,122 @@ class MetricsInitializer implements ApplicationInitializer {
             LOGGER.info("Registering MicroProfile metrics");
         }
 
-        final var jvmGcMetrics = new JvmGcMetrics(micrometerCompatibility);
+        final var scheduler = new MetricsScheduler();
+        CLOSEABLE_LIST.add(scheduler);
+
+        final var jvmGcMetrics = new JvmGcMetrics(micrometerCompatibility,
+                JvmGcMetrics.parsePauseBuckets(gcPauseBuckets), Duration.ofSeconds(gcPauseMaxWindow),
+                Duration.ofSeconds(gcOverheadWindow), gcOverheadConcurrent);
         CLOSEABLE_LIST.add(jvmGcMetrics);
         jvmGcMetrics.bindTo(baseRegistry);
 
         JvmMetrics.bindTo(baseRegistry, micrometerCompatibility);
+        new BufferPoolMetrics(ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class),
+                BufferPoolMetrics.maxDirectMemory(), micrometerCompatibility)
+                        .bindTo(baseRegistry, scheduler, bufferRateWindow, bufferDirectThreshold);
+        new NativeMemoryMetrics(() -> NativeMemoryMetrics.summary(ManagementFactory.getPlatformMBeanServer()),
+                micrometerCompatibility).bindTo(baseRegistry, scheduler, nmtInterval);
+        if (ManagementFactory.getMemoryMXBean() instanceof NotificationEmitter) {
+            final var memoryPressureMetrics = new MemoryPressureMetrics(
+                    (NotificationEmitter) ManagementFactory.getMemoryMXBean(),
+                    ManagementFactory.getMemoryPoolMXBeans(), memoryUsageThreshold, memoryCollectionThreshold,
+                    micrometerCompatibility);
+            CLOSEABLE_LIST.add(memoryPressureMetrics);
+            memoryPressureMetrics.bindTo(baseRegistry);
+        }
         ThreadMetrics.bindTo(baseRegistry, micrometerCompatibility);
+        final var virtualThreadMetrics = new VirtualThreadMetrics(micrometerCompatibility);
+        virtualThreadMetrics.bindTo(baseRegistry, ManagementFactory.getPlatformMBeanServer());
+        if (threadContentionEnabled) {
+            final var threadContentionMetrics = new ThreadContentionMetrics(ManagementFactory.getThreadMXBean(),
+                    micrometerCompatibility);
+            CLOSEABLE_LIST.add(threadContentionMetrics);
+            threadContentionMetrics.bindTo(baseRegistry, scheduler, threadContentionInterval);
+        }
         ClassLoaderMetrics.bindTo(baseRegistry, micrometerCompatibility);
+        final var compilationMetrics = new CompilationMetrics(ManagementFactory.getCompilationMXBean(),
+                ManagementFactory.getMemoryPoolMXBeans(), micrometerCompatibility);
+        compilationMetrics.bindTo(baseRegistry);
         RuntimeMetrics.bindTo(baseRegistry, micrometerCompatibility);
         FileDescriptorMetrics.bindTo(baseRegistry, micrometerCompatibility);
+        if (filesTypesInterval > 0) {
+            FileDescriptorMetrics.bindTypesTo(baseRegistry, micrometerCompatibility,
+                    FileDescriptorMetrics.DEFAULT_FD_DIRECTORY, scheduler, filesTypesInterval);
+        }
+        final var processMetrics = new ProcessMetrics(ProcessMetrics.DEFAULT_PROC_SELF, micrometerCompatibility);
+        CLOSEABLE_LIST.add(processMetrics);
+        processMetrics.bindTo(baseRegistry);
+        final var processIoMetrics = new ProcessIoMetrics(ProcessMetrics.DEFAULT_PROC_SELF, micrometerCompatibility);
+        CLOSEABLE_LIST.add(processIoMetrics);
+        processIoMetrics.bindTo(baseRegistry, scheduler, ioRateWindow);
+        if (cgroupEnabled) {
+            final var cgroupMetrics = new CgroupMetrics(CgroupMetrics.DEFAULT_ROOT, micrometerCompatibility);
+            CLOSEABLE_LIST.add(cgroupMetrics);
+            cgroupMetrics.bindTo(baseRegistry);
+        }
         OperatingSystemMetrics.bindTo(baseRegistry, micrometerCompatibility, sunSpecificOSMetricsEnabled);
-        new DiskSpaceMetrics(new File(System.getProperty("user.dir")), micrometerCompatibility).bindTo(baseRegistry);
+        final List<File> diskSpacePaths = new ArrayList<>();
+        diskSpacePaths.add(new File(System.getProperty("user.dir")));
+        diskPaths.stream().filter(path -> !path.isBlank()).map(File::new).forEach(diskSpacePaths::add);
+        new DiskSpaceMetrics(diskSpacePaths, micrometerCompatibility).bindTo(baseRegistry, scheduler, diskRateWindow);
 
         LOGGER.debug("Tomcat metrics enabled: {}", tomcatMetricsEnabled);
         if (tomcatMetricsEnabled) {
-            new TomcatMetrics().bindTo(baseRegistry, micrometerCompatibility);
+            final var tomcatMetrics = new TomcatMetrics();
+            tomcatMetrics.bindTo(baseRegistry, micrometerCompatibility);
+            if (tcpInterval > 0) {
+                final var tcpMetrics = new TcpMetrics(TcpMetrics.DEFAULT_PROC_NET, tomcatMetrics.getConnectorPorts(),
+                        micrometerCompatibility);
+                CLOSEABLE_LIST.add(tcpMetrics);
+                tcpMetrics.bindTo(baseRegistry, scheduler, tcpInterval);
+            }
+            if (webappClassLoadersInterval > 0) {
+                final var webappClassLoaderMetrics = new WebappClassLoaderMetrics(
+                        ManagementFactory.getPlatformMBeanServer(), WebappClassLoaderMetrics::metaspaceUsed,
+                        micrometerCompatibility);
+                CLOSEABLE_LIST.add(webappClassLoaderMetrics);
+                webappClassLoaderMetrics.bindTo(baseRegistry, scheduler, webappClassLoadersInterval);
+            }
+        }
+
+        LOGGER.debug("JFR metrics enabled: {}", jfrEnabled);
+        if (jfrEnabled) {
+            registerJfrMetrics(scheduler, compilationMetrics, virtualThreadMetrics);
+        }
+
+        baseRegistry.register(new ExtendedMetadataBuilder().withName("portal.metrics.gauges.broken")
+                .withType(MetricType.GAUGE)
+                .withDescription("Number of gauges and counters that are suspended due to consecutive failures")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerCompatibility).build(),
+                (LongGauge) GaugeCircuitBreaker::getOpenCount);
+    }
+
+    private void registerJfrMetrics(final MetricsScheduler scheduler, final CompilationMetrics compilationMetrics,
+            final VirtualThreadMetrics virtualThreadMetrics) {
+        if (!JfrMetrics.isAvailable()) {
+            LOGGER.info("JFR metrics are enabled, but JFR is not available in this JVM");
+            return;
+        }
+        final var jfrMetrics = new JfrMetrics(micrometerCompatibility, Duration.ofMillis(jfrThreshold),
+                jfrMaxEventsPerSecond);
+        CLOSEABLE_LIST.add(jfrMetrics);
+        jfrMetrics.bindTo(baseRegistry);
+        if (jfrContentionEnabled) {
+            final var lockContentionMetrics = new LockContentionMetrics(LockContentionMetrics.DEFAULT_CAPACITY,
+                    micrometerCompatibility);
+            CLOSEABLE_LIST.add(lockContentionMetrics);
+            lockContentionMetrics.bindTo(baseRegistry, jfrMetrics);
+        }
+        if (jfrAllocationEnabled) {
+            final var allocationMetrics = new AllocationMetrics(ManagementFactory.getThreadMXBean(),
+                    micrometerCompatibility);
+            CLOSEABLE_LIST.add(allocationMetrics);
+            allocationMetrics.bindTo(baseRegistry, jfrMetrics, scheduler);
         }
+        compilationMetrics.bindTo(baseRegistry, jfrMetrics);
+        new SafepointMetrics(micrometerCompatibility).bindTo(baseRegistry, jfrMetrics);
+        virtualThreadMetrics.bindTo(baseRegistry, jfrMetrics, jfrVirtualThreadsLifecycle);
+        // all consumers have to subscribe before
+        jfrMetrics.start();
     }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.cuioss.tools.logging.CuiLogger;
+
+/**
+ * Single daemon thread executing the periodic scans of metric binders, in
+ * order to keep expensive operations off the scrape path.
+ */
+final class MetricsScheduler implements Closeable {
+
+    private static final CuiLogger LOGGER = new CuiLogger(MetricsScheduler.class);
+
+    static final String THREAD_NAME = "portal-metrics-scheduler";
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final var thread = new Thread(runnable, THREAD_NAME);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Executes the given task immediately and afterwards with the given delay
+     * between the end of one and the start of the next execution. Exceptions
+     * thrown by the task are logged and do not cancel further executions.
+     *
+     * @param name     of the task, used for logging
+     * @param task     to be executed
+     * @param interval between two executions, {@code 0} or less disables the
+     *                 task
+     * @param unit     of the interval
+     *
+     * @return the future for cancelling the task, {@code null} if disabled
+     */
+    ScheduledFuture<?> schedule(final String name, final Runnable task, final long interval, final TimeUnit unit) {
+        return schedule(name, task, 0, interval, unit);
+    }
+
+    /**
+     * Executes the given task after the given initial delay and afterwards with
+     * the given delay between the end of one and the start of the next
+     * execution. Exceptions thrown by the task are logged and do not cancel
+     * further executions.
+     *
+     * @param name         of the task, used for logging
+     * @param task         to be executed
+     * @param initialDelay before the first execution
+     * @param interval     between two executions, {@code 0} or less disables
+     *                     the task
+     * @param unit         of the initial delay and the interval
+     *
+     * @return the future for cancelling the task, {@code null} if disabled
+     */
+    ScheduledFuture<?> schedule(final String name, final Runnable task, final long initialDelay, final long interval,
+            final TimeUnit unit) {
+        if (interval <= 0) {
+            LOGGER.warn("Not scheduling '{}' due to interval {} {}", name, interval, unit);
+            return null;
+        }
+        LOGGER.debug("Scheduling '{}' every {} {}", name, interval, unit);
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (final RuntimeException e) {
+                LOGGER.warn(e, "Portal-535: Error executing metrics task '{}'", name);
+            }
+        }, initialDelay, interval, unit);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
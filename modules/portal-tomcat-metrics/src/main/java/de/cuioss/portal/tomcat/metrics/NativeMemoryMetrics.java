@@ -0,0 +1,197 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import de.cuioss.tools.logging.CuiLogger;
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+
+/**
+ * Native memory of the JVM as reported by Native Memory Tracking (NMT), which
+ * has to be enabled by {@code -XX:NativeMemoryTracking=summary}. The
+ * {@code VM.native_memory summary} diagnostic command is executed periodically
+ * by the {@link MetricsScheduler} and the parsed result is cached between
+ * scrapes:
+ * <ul>
+ * <li>{@code jvm.memory.native.reserved} and
+ * {@code jvm.memory.native.committed}: per NMT {@code category} like
+ * {@code Thread}, {@code Code}, {@code GC}, {@code Internal},
+ * {@code Metaspace} or {@code Other}, and {@code Total}</li>
+ * </ul>
+ * The categories are taken from the first summary, which is executed by the
+ * scheduler as well, so the diagnostic command never blocks the
+ * initialization. Nothing is registered if NMT is disabled. As the JVM omits
+ * categories below 1KB, a category showing up only later is not exported.
+ */
+final class NativeMemoryMetrics {
+
+    private static final CuiLogger LOGGER = new CuiLogger(NativeMemoryMetrics.class);
+
+    static final String DIAGNOSTIC_COMMAND = "com.sun.management:type=DiagnosticCommand";
+
+    static final String TOTAL = "Total";
+
+    /**
+     * Matches e.g. {@code Total: reserved=1234KB, committed=567KB} and
+     * {@code -  Thread (reserved=1234KB, committed=567KB)}, the latter also with
+     * an additional {@code #threads} or similar line.
+     */
+    private static final Pattern CATEGORY = Pattern
+            .compile("^(?:-\\s+(.+?) \\(|(Total): )reserved=(\\d+)KB, committed=(\\d+)KB", Pattern.MULTILINE);
+
+    private final Callable<String> summary;
+    private final boolean micrometerFormat;
+
+    private volatile Map<String, long[]> usage = Collections.emptyMap();
+
+    // guarded by refresh()
+    private MetricRegistry registry;
+    private boolean registered;
+    private boolean disabled;
+
+    private volatile ScheduledFuture<?> refreshing;
+
+    /**
+     * @param summary          executing the NMT summary command, see
+     *                         {@link #summary(MBeanServer)}
+     * @param micrometerFormat whether to skip the scope in the OpenMetrics
+     *                         export
+     */
+    NativeMemoryMetrics(final Callable<String> summary, final boolean micrometerFormat) {
+        this.summary = requireNonNull(summary);
+        this.micrometerFormat = micrometerFormat;
+    }
+
+    /**
+     * @param server providing the diagnostic command MBean
+     *
+     * @return the NMT summary in KB
+     *
+     * @throws JMException if the diagnostic command MBean is not available
+     */
+    static String summary(final MBeanServer server) throws JMException {
+        return (String) server.invoke(new ObjectName(DIAGNOSTIC_COMMAND), "vmNativeMemory",
+                new Object[] { new String[] { "summary", "scale=KB" } }, new String[] { String[].class.getName() });
+    }
+
+    /**
+     * Schedules the periodic refresh, starting immediately. The gauges are
+     * registered by the first refresh.
+     *
+     * @param registry        to be bound to
+     * @param scheduler       executing the summary command
+     * @param intervalSeconds between two summaries, {@code 0} disables the
+     *                        metrics
+     */
+    void bindTo(final MetricRegistry registry, final MetricsScheduler scheduler, final long intervalSeconds) {
+        requireNonNull(scheduler);
+
+        bindTo(registry);
+        refreshing = scheduler.schedule("native memory", this::refresh, intervalSeconds, TimeUnit.SECONDS);
+        synchronized (this) {
+            if (disabled && null != refreshing) {
+                refreshing.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * @param registry the gauges are registered to by the first refresh
+     */
+    synchronized void bindTo(final MetricRegistry registry) {
+        this.registry = requireNonNull(registry);
+    }
+
+    private void registerGauge(final MetricRegistry registry, final String name, final String description,
+            final String category, final int index) {
+        registry.register(new ExtendedMetadataBuilder().withName(name).withType(MetricType.GAUGE)
+                .withUnit(MetricUnits.BYTES).withDescription(description)
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                (LongGauge) () -> {
+                    final var values = usage.get(category);
+                    return null == values ? -1L : values[index];
+                }, new Tag("category", category));
+    }
+
+    synchronized void refresh() {
+        if (disabled) {
+            return;
+        }
+        try {
+            usage = parse(summary.call());
+        } catch (final Exception e) {
+            LOGGER.debug("Could not execute native memory summary: {}", e.getMessage());
+            usage = Collections.emptyMap();
+        }
+        if (!registered) {
+            register();
+        }
+    }
+
+    private void register() {
+        if (usage.isEmpty()) {
+            LOGGER.debug("Native memory tracking not enabled, skipping native memory metrics");
+            disabled = true;
+            if (null != refreshing) {
+                refreshing.cancel(false);
+            }
+            return;
+        }
+        for (final String category : usage.keySet()) {
+            registerGauge(registry, "jvm.memory.native.reserved", "Native memory reserved by the JVM", category, 0);
+            registerGauge(registry, "jvm.memory.native.committed", "Native memory committed by the JVM", category, 1);
+        }
+        registered = true;
+    }
+
+    /**
+     * @param summary output of {@code VM.native_memory summary scale=KB}
+     *
+     * @return reserved and committed bytes per category, empty if NMT is not
+     *         enabled
+     */
+    static Map<String, long[]> parse(final String summary) {
+        if (null == summary) {
+            return Collections.emptyMap();
+        }
+        final Map<String, long[]> result = new HashMap<>();
+        final var matcher = CATEGORY.matcher(summary);
+        while (matcher.find()) {
+            final var category = null != matcher.group(1) ? matcher.group(1).trim() : matcher.group(2);
+            result.put(category, new long[] { Long.parseLong(matcher.group(3)) * 1024,
+                    Long.parseLong(matcher.group(4)) * 1024 });
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
@@ -20,7 +20,6 @@ import static java.util.Objects.requireNonNull;
 import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
 
-import org.eclipse.microprofile.metrics.Gauge;
 import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.eclipse.microprofile.metrics.MetricType;
 import org.eclipse.microprofile.metrics.MetricUnits;
@@ -98,7 +97,7 @@ final class OperatingSystemMetrics {
                         .withType(MetricType.GAUGE).withUnit(MetricUnits.BYTES).withDisplayName("Free swap size")
                         .withDescription("Displays the amount of free swap space in bytes.")
                         .skipsScopeInOpenMetricsExportCompletely(micrometerCompatibility).build(),
-                (Gauge<?>) internalOperatingSystemMXBean::getFreeSwapSpaceSize);
+                (LongGauge) internalOperatingSystemMXBean::getFreeSwapSpaceSize);
     }
 
     private static void registerMemoryFreeSize(final MetricRegistry registry, final boolean micrometerCompatibility,
@@ -108,7 +107,7 @@ final class OperatingSystemMetrics {
                 .withType(MetricType.GAUGE).withUnit(MetricUnits.BYTES).withDisplayName("Free physical memory size")
                 .withDescription("Displays the amount of free physical memory in bytes.")
                 .skipsScopeInOpenMetricsExportCompletely(micrometerCompatibility).build(),
-                (Gauge<?>) internalOperatingSystemMXBean::getFreePhysicalMemorySize);
+                (LongGauge) internalOperatingSystemMXBean::getFreePhysicalMemorySize);
     }
 
     private static void registerProcessCPUTime(final MetricRegistry registry, final boolean micrometerCompatibility,
@@ -122,7 +121,7 @@ final class OperatingSystemMetrics {
                         in nanoseconds. The returned value is of nanoseconds precision but not necessarily\s\
                         nanoseconds accuracy. This method returns -1 if the the platform does not support\s\
                         this operation.""").skipsScopeInOpenMetricsExportCompletely(micrometerCompatibility).build(),
-                (Gauge<?>) internalOperatingSystemMXBean::getProcessCpuTime);
+                (LongGauge) internalOperatingSystemMXBean::getProcessCpuTime);
     }
 
     private static void registerSystemCPUUsage(final MetricRegistry registry, final boolean micrometerCompatibility,
@@ -137,7 +136,7 @@ final class OperatingSystemMetrics {
                         observed. All values between 0.0 and 1.0 are possible depending of the activities going\s\
                         on in the system. If the metric is not available, the method returns a negative value.""")
                 .skipsScopeInOpenMetricsExportCompletely(micrometerCompatibility).build(),
-                (Gauge<?>) internalOperatingSystemMXBean::getSystemCpuLoad);
+                (DoubleGauge) internalOperatingSystemMXBean::getSystemCpuLoad);
     }
 
     private static void registerCPUUsage(final MetricRegistry registry, final boolean micrometerCompatibility,
@@ -157,7 +156,7 @@ final class OperatingSystemMetrics {
                         the JVM process and the whole system. If the Java Virtual Machine recent CPU usage is\s\
                         not available, the method returns a negative value.""")
                 .skipsScopeInOpenMetricsExportCompletely(micrometerCompatibility).build(),
-                (Gauge<?>) internalOperatingSystemMXBean::getProcessCpuLoad);
+                (DoubleGauge) internalOperatingSystemMXBean::getProcessCpuLoad);
     }
 
     private static void registerCPUCount(final MetricRegistry registry, final boolean micrometerCompatibility,
@@ -169,7 +168,7 @@ final class OperatingSystemMetrics {
                         Displays the number of processors available to the Java Virtual Machine. \
                         This value may change during a particular invocation of the virtual machine.\
                         """).skipsScopeInOpenMetricsExportCompletely(micrometerCompatibility).build(),
-                (Gauge<?>) operatingSystemMXBean::getAvailableProcessors);
+                (LongGauge) operatingSystemMXBean::getAvailableProcessors);
     }
 
     private static void registerCPULoadAverage(final MetricRegistry registry, final boolean micrometerCompatibility,
@@ -189,6 +188,6 @@ final class OperatingSystemMetrics {
                                 queried frequently. The load average may be unavailable on some platforms where it is expensive\s\
                                 to implement this method.""")
                 .skipsScopeInOpenMetricsExportCompletely(micrometerCompatibility).build(),
-                (Gauge<?>) operatingSystemMXBean::getSystemLoadAverage);
+                (DoubleGauge) operatingSystemMXBean::getSystemLoadAverage);
     }
 }
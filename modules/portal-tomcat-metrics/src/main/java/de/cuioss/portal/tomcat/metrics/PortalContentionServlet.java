@@ -0,0 +1,82 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import de.cuioss.tools.logging.CuiLogger;
+
+/**
+ * Reports the lock contention hotspots aggregated by
+ * {@link LockContentionMetrics} as JSON. The number of reported hotspots can be
+ * limited by the request parameter {@code top}, defaulting to
+ * {@value #DEFAULT_TOP}. If the JFR metrics or the contention aggregation are
+ * disabled, the servlet responds with HTTP 503.
+ * <p>
+ * Times are in milliseconds, {@code error} is the maximum over-estimation of
+ * {@code time} caused by the bounded aggregation.
+ * </p>
+ *
+ * <pre>
+ * {
+ *   "capacity": 100,
+ *   "hotspots": [
+ *     {
+ *       "kind": "monitor",
+ *       "class": "org.apache.logging.log4j.core.appender.OutputStreamManager",
+ *       "frame": "org.apache.logging.log4j.core.appender.OutputStreamManager.write:263",
+ *       "time": 18734,
+ *       "count": 5120,
+ *       "error": 0
+ *     }
+ *   ]
+ * }
+ * </pre>
+ */
+@ApplicationScoped
+@WebServlet(name = "PortalContentionServlet", urlPatterns = { PortalContentionServlet.URL_PATTERN })
+@SuppressWarnings("squid:S1075") // A hard coded url is the actual use-case
+public class PortalContentionServlet extends AbstractMetricsServlet {
+
+    private static final long serialVersionUID = -6014436092837364511L;
+
+    static final String URL_PATTERN = "/metrics/contention";
+
+    static final int DEFAULT_TOP = 20;
+
+    private static final CuiLogger LOGGER = new CuiLogger(PortalContentionServlet.class);
+
+    @Override
+    public void executeDoGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        final var metrics = LockContentionMetrics.getActive();
+        if (metrics.isEmpty()) {
+            LOGGER.debug("Lock contention metrics are not active");
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        final var top = PortalHotThreadsServlet.getParameter(request, "top", DEFAULT_TOP,
+                metrics.get().getCapacity());
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.toString());
+        response.getWriter().write(metrics.get().report((int) top).toString());
+    }
+}
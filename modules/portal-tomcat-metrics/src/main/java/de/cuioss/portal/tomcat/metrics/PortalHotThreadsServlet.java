@@ -0,0 +1,147 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_HOT_THREADS_COUNT;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_HOT_THREADS_FRAMES;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_HOT_THREADS_INTERVAL;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import de.cuioss.tools.logging.CuiLogger;
+import de.cuioss.tools.string.MoreStrings;
+
+/**
+ * Reports the threads consuming most CPU time as JSON, see
+ * {@link HotThreadsSampler}. The defaults for the sampling interval, the number
+ * of threads and stack frames are configured by
+ * {@link TomcatMetricsConfigKeys#PORTAL_METRICS_HOT_THREADS_INTERVAL},
+ * {@link TomcatMetricsConfigKeys#PORTAL_METRICS_HOT_THREADS_COUNT} and
+ * {@link TomcatMetricsConfigKeys#PORTAL_METRICS_HOT_THREADS_FRAMES} and can be
+ * overridden by the request parameters {@code interval}, {@code threads} and
+ * {@code frames}.
+ * <p>
+ * Only one sampling is executed at a time, concurrent requests are answered
+ * with HTTP 503.
+ * </p>
+ *
+ * <pre>
+ * {
+ *   "interval": 500,
+ *   "sampledThreads": 212,
+ *   "hotThreads": [
+ *     {
+ *       "id": 42,
+ *       "name": "http-nio-8080-exec-1",
+ *       "state": "RUNNABLE",
+ *       "cpu": 97.85,
+ *       "cpuTime": 489250000,
+ *       "stackTrace": [ "java.util.regex.Pattern$Loop.match(Pattern.java:5063)" ]
+ *     }
+ *   ]
+ * }
+ * </pre>
+ */
+@ApplicationScoped
+@WebServlet(name = "PortalHotThreadsServlet", urlPatterns = { PortalHotThreadsServlet.URL_PATTERN })
+@SuppressWarnings("squid:S1075") // A hard coded url is the actual use-case
+public class PortalHotThreadsServlet extends AbstractMetricsServlet {
+
+    private static final long serialVersionUID = 5310826213408617531L;
+
+    static final String URL_PATTERN = "/metrics/hot-threads";
+
+    private static final CuiLogger LOGGER = new CuiLogger(PortalHotThreadsServlet.class);
+
+    static final long MAX_INTERVAL_MILLIS = 30_000L;
+    static final int MAX_THREADS = 100;
+    static final int MAX_FRAMES = 64;
+
+    private static final Lock SAMPLING_LOCK = new ReentrantLock();
+
+    private static final HotThreadsSampler SAMPLER = new HotThreadsSampler(ManagementFactory.getThreadMXBean());
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_HOT_THREADS_INTERVAL)
+    private Provider<Integer> interval;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_HOT_THREADS_COUNT)
+    private Provider<Integer> threads;
+
+    @Inject
+    @ConfigProperty(name = PORTAL_METRICS_HOT_THREADS_FRAMES)
+    private Provider<Integer> frames;
+
+    @Override
+    public void executeDoGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        if (!SAMPLER.isAvailable()) {
+            LOGGER.debug("Thread CPU time measurement is not supported or disabled");
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        if (!SAMPLING_LOCK.tryLock()) {
+            LOGGER.debug("Hot threads sampling already in progress");
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        try {
+            final var report = SAMPLER.sample(
+                    getParameter(request, "interval", interval.get(), MAX_INTERVAL_MILLIS),
+                    (int) getParameter(request, "threads", threads.get(), MAX_THREADS),
+                    (int) getParameter(request, "frames", frames.get(), MAX_FRAMES));
+            response.setContentType("application/json");
+            response.setCharacterEncoding(StandardCharsets.UTF_8.toString());
+            response.getWriter().write(report.toString());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        } finally {
+            SAMPLING_LOCK.unlock();
+        }
+    }
+
+    /**
+     * @return the given request parameter, limited to [0, max], or the default
+     *         if the parameter is not present or not a number
+     */
+    static long getParameter(final HttpServletRequest request, final String name, final long defaultValue,
+            final long max) {
+        final var value = request.getParameter(name);
+        var result = defaultValue;
+        if (!MoreStrings.isBlank(value)) {
+            try {
+                result = Long.parseLong(value.trim());
+            } catch (final NumberFormatException e) {
+                LOGGER.debug("Ignoring invalid value for parameter '{}': {}", name, value);
+            }
+        }
+        return Math.max(0, Math.min(result, max));
+    }
+}
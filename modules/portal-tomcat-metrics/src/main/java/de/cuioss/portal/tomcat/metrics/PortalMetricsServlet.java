@@ -15,13 +15,9 @@
  */
 package de.cuioss.portal.tomcat.metrics;
 
-import static de.cuioss.portal.configuration.MetricsConfigKeys.PORTAL_METRICS_ENABLED;
-import static de.cuioss.portal.configuration.MetricsConfigKeys.PORTAL_METRICS_LOG_IN_REQUIRED;
-import static de.cuioss.portal.configuration.MetricsConfigKeys.PORTAL_METRICS_ROLES_REQUIRED;
 import static de.cuioss.tools.string.MoreStrings.nullToEmpty;
 
 import java.io.IOException;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -29,27 +25,25 @@ import java.util.Map;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
-import javax.inject.Provider;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.eclipse.microprofile.config.inject.ConfigProperty;
-
-import de.cuioss.portal.configuration.types.ConfigAsList;
-import de.cuioss.portal.core.servlet.AbstractPortalServlet;
 import de.cuioss.tools.logging.CuiLogger;
 import de.cuioss.tools.string.MoreStrings;
 import io.smallrye.metrics.MetricsRequestHandler;
 
 /**
- * Entry point for displaying Metrics.
+ * Entry point for displaying Metrics. The exposition is delegated to SmallRye's
+ * {@link MetricsRequestHandler}, which reads gauges via
+ * {@link org.eclipse.microprofile.metrics.Gauge#getValue()}, i.e. boxed, even
+ * for {@link LongGauge} and {@link DoubleGauge}.
  *
  * @author Oliver Wolff
  */
 @ApplicationScoped
 @WebServlet(name = "PortalMetricsServlet", urlPatterns = { PortalMetricsServlet.URL_PATTERN })
-public class PortalMetricsServlet extends AbstractPortalServlet {
+public class PortalMetricsServlet extends AbstractMetricsServlet {
 
     private static final long serialVersionUID = -5941700623068797584L;
 
@@ -60,18 +54,6 @@ public class PortalMetricsServlet extends AbstractPortalServlet {
     @Inject
     private MetricsRequestHandler metricsHandler;
 
-    @Inject
-    @ConfigProperty(name = PORTAL_METRICS_ENABLED)
-    private Provider<Boolean> serviceEnabled;
-
-    @Inject
-    @ConfigProperty(name = PORTAL_METRICS_LOG_IN_REQUIRED)
-    private Provider<Boolean> loginRequired;
-
-    @Inject
-    @ConfigAsList(name = PORTAL_METRICS_ROLES_REQUIRED)
-    private Provider<List<String>> requiredRoles;
-
     @Override
     public void executeDoGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
         final var requestPath = "/metrics" + nullToEmpty(request.getPathInfo());
@@ -108,19 +90,4 @@ public class PortalMetricsServlet extends AbstractPortalServlet {
             resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
         }
     }
-
-    @Override
-    public boolean isEnabled() {
-        return serviceEnabled.get();
-    }
-
-    @Override
-    public boolean isLoggedInUserRequired() {
-        return loginRequired.get();
-    }
-
-    @Override
-    public Collection<String> getRequiredRoles() {
-        return requiredRoles.get();
-    }
 }
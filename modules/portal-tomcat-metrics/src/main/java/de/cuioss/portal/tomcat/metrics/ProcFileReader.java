@@ -0,0 +1,353 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import de.cuioss.tools.logging.CuiLogger;
+
+/**
+ * Reads small pseudo files like {@code /proc/self/status} or the cgroup files
+ * below {@code /sys/fs/cgroup} into a reused direct buffer and parses numbers
+ * from it without creating Strings. The file is read at most once per
+ * time-to-live, so all gauges of a scrape share a single read.
+ * <p>
+ * All accessors return {@link #MISSING} if the file could not be read or the
+ * requested value is not present or not a number, e.g. {@code max} in
+ * {@code memory.max}.
+ * </p>
+ */
+final class ProcFileReader implements Closeable {
+
+    private static final CuiLogger LOGGER = new CuiLogger(ProcFileReader.class);
+
+    static final long MISSING = -1L;
+
+    static final int DEFAULT_CAPACITY = 4096;
+
+    static final long DEFAULT_TTL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path path;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    private ByteBuffer buffer;
+    private FileChannel channel;
+    private boolean valid;
+    private long readAt;
+
+    ProcFileReader(final Path path) {
+        this(path, DEFAULT_CAPACITY, DEFAULT_TTL_NANOS, System::nanoTime);
+    }
+
+    /**
+     * @param path      of the file
+     * @param capacity  initial size of the buffer, grows if the file is larger
+     * @param ttlNanos  how long the content is reused
+     * @param nanoClock to be used, usually {@code System::nanoTime}
+     */
+    ProcFileReader(final Path path, final int capacity, final long ttlNanos, final LongSupplier nanoClock) {
+        this.path = requireNonNull(path);
+        buffer = ByteBuffer.allocateDirect(capacity);
+        this.ttlNanos = ttlNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return {@code true} if the file exists and is readable
+     */
+    boolean isReadable() {
+        return Files.isReadable(path);
+    }
+
+    /**
+     * @param key ASCII bytes of the key, see {@link #key(String)}
+     *
+     * @return the number following the key at the start of a line, separated by
+     *         whitespace or a colon, e.g. {@code nr_throttled 12} or
+     *         {@code VmRSS: 1024 kB}
+     */
+    synchronized long getKeyed(final byte[] key) {
+        if (!refresh()) {
+            return MISSING;
+        }
+        final var line = findLine(key);
+        return line < 0 ? MISSING : parseNumber(skipSeparators(line + key.length));
+    }
+
+    /**
+     * @param key       ASCII bytes of the key at the start of the line
+     * @param attribute ASCII bytes of the attribute within that line, including
+     *                  the separator, e.g. {@code total=}
+     *
+     * @return the number following the attribute, e.g. of
+     *         {@code some avg10=0.00 total=1234}
+     */
+    synchronized long getKeyedAttribute(final byte[] key, final byte[] attribute) {
+        if (!refresh()) {
+            return MISSING;
+        }
+        final var line = findLine(key);
+        if (line < 0) {
+            return MISSING;
+        }
+        final var limit = buffer.limit();
+        for (var i = line + key.length; i < limit && buffer.get(i) != '\n'; i++) {
+            if (matches(i, attribute)) {
+                return parseNumber(i + attribute.length);
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Looks up a value of a table consisting of a header line followed by a
+     * value line, both starting with the same key, like in
+     * {@code /proc/net/netstat}.
+     *
+     * @param key    ASCII bytes of the key at the start of both lines, e.g.
+     *               {@code TcpExt:}
+     * @param column ASCII bytes of the column name within the header line
+     *
+     * @return the number of the given column within the value line
+     */
+    synchronized long getColumn(final byte[] key, final byte[] column) {
+        if (!refresh()) {
+            return MISSING;
+        }
+        final var header = findLine(key);
+        if (header < 0) {
+            return MISSING;
+        }
+        final var limit = buffer.limit();
+        var position = skipSeparators(header + key.length);
+        var index = 0;
+        while (position < limit && buffer.get(position) != '\n') {
+            if (matches(position, column) && (position + column.length >= limit
+                    || isSeparator(buffer.get(position + column.length)))) {
+                var values = header;
+                while (values < limit && buffer.get(values) != '\n') {
+                    values++;
+                }
+                values++;
+                return matches(values, key) ? parseField(values + key.length, index) : MISSING;
+            }
+            while (position < limit && !isSeparator(buffer.get(position))) {
+                position++;
+            }
+            while (position < limit && (buffer.get(position) == ' ' || buffer.get(position) == '\t')) {
+                position++;
+            }
+            index++;
+        }
+        return MISSING;
+    }
+
+    /**
+     * @return the number at the start of the file, e.g. of {@code memory.current}
+     */
+    synchronized long getValue() {
+        if (!refresh()) {
+            return MISSING;
+        }
+        return parseNumber(skipSeparators(0));
+    }
+
+    /**
+     * @param index zero based index of the whitespace separated field
+     *
+     * @return the number of the given field, e.g. {@code 200000} of
+     *         {@code 200000 100000}
+     */
+    synchronized long getField(final int index) {
+        if (!refresh()) {
+            return MISSING;
+        }
+        return parseField(0, index);
+    }
+
+    /**
+     * @param delimiter byte whose last occurrence starts the fields, e.g.
+     *                  {@code ')'} after the command name in
+     *                  {@code /proc/self/stat}
+     * @param index     zero based index of the whitespace separated field after
+     *                  the delimiter
+     *
+     * @return the number of the given field
+     */
+    synchronized long getFieldAfterLast(final byte delimiter, final int index) {
+        if (!refresh()) {
+            return MISSING;
+        }
+        for (var i = buffer.limit() - 1; i >= 0; i--) {
+            if (buffer.get(i) == delimiter) {
+                return parseField(i + 1, index);
+            }
+        }
+        return MISSING;
+    }
+
+    private long parseField(final int start, final int index) {
+        var position = skipSeparators(start);
+        for (var field = 0; field < index && position < buffer.limit(); field++) {
+            while (position < buffer.limit() && !isSeparator(buffer.get(position))) {
+                position++;
+            }
+            position = skipSeparators(position);
+        }
+        return parseNumber(position);
+    }
+
+    private boolean refresh() {
+        final var now = nanoClock.getAsLong();
+        if (valid && now - readAt < ttlNanos) {
+            return true;
+        }
+        readAt = now;
+        try {
+            if (null == channel) {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+            }
+            buffer.clear();
+            var position = 0L;
+            while (channel.read(buffer, position) > 0) {
+                position = buffer.position();
+                if (!buffer.hasRemaining()) {
+                    grow();
+                }
+            }
+            buffer.flip();
+            valid = true;
+        } catch (final IOException e) {
+            LOGGER.debug("Could not read {}: {}", path, e.getMessage());
+            valid = false;
+            closeChannel();
+        }
+        return valid;
+    }
+
+    private void grow() {
+        final var larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+    private int findLine(final byte[] key) {
+        final var limit = buffer.limit();
+        var lineStart = 0;
+        while (lineStart < limit) {
+            if (matches(lineStart, key) && lineStart + key.length < limit
+                    && isKeySeparator(buffer.get(lineStart + key.length))) {
+                return lineStart;
+            }
+            while (lineStart < limit && buffer.get(lineStart) != '\n') {
+                lineStart++;
+            }
+            lineStart++;
+        }
+        return -1;
+    }
+
+    private boolean matches(final int position, final byte[] bytes) {
+        if (position + bytes.length > buffer.limit()) {
+            return false;
+        }
+        for (var i = 0; i < bytes.length; i++) {
+            if (buffer.get(position + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipSeparators(final int start) {
+        var position = start;
+        while (position < buffer.limit() && (isSeparator(buffer.get(position)) || buffer.get(position) == ':')) {
+            position++;
+        }
+        return position;
+    }
+
+    private long parseNumber(final int start) {
+        var position = start;
+        final var limit = buffer.limit();
+        var negative = false;
+        if (position < limit && buffer.get(position) == '-') {
+            negative = true;
+            position++;
+        }
+        var result = 0L;
+        var digits = 0;
+        while (position < limit) {
+            final var b = buffer.get(position);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            result = result * 10 + (b - '0');
+            digits++;
+            position++;
+        }
+        if (digits == 0) {
+            return MISSING;
+        }
+        return negative ? -result : result;
+    }
+
+    private static boolean isSeparator(final byte b) {
+        return b == ' ' || b == '\t' || b == '\n';
+    }
+
+    private static boolean isKeySeparator(final byte b) {
+        return b == ' ' || b == '\t' || b == ':';
+    }
+
+    /**
+     * @param key to be looked up
+     *
+     * @return the ASCII bytes of the given key
+     */
+    static byte[] key(final String key) {
+        return key.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private void closeChannel() {
+        if (null != channel) {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                LOGGER.trace("Could not close {}", path, e);
+            }
+            channel = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closeChannel();
+    }
+}
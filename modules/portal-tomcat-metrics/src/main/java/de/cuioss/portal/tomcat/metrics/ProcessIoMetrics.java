@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static de.cuioss.portal.tomcat.metrics.ProcFileReader.key;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+
+/**
+ * Disk I/O of the process read from {@code /proc/self/io} under Linux. Besides
+ * the cumulative counters
+ * <ul>
+ * <li>{@code process.io.read.bytes} and {@code process.io.write.bytes}: bytes
+ * fetched from or sent to the storage layer</li>
+ * <li>{@code process.io.read.calls} and {@code process.io.write.calls}: number
+ * of read and write system calls</li>
+ * </ul>
+ * a {@code .rate} gauge per counter reports the per-second rate over a sliding
+ * window. The file is sampled by the {@link MetricsScheduler} every
+ * {@value #SAMPLE_INTERVAL_SECONDS} seconds.
+ */
+final class ProcessIoMetrics implements Closeable {
+
+    static final long SAMPLE_INTERVAL_SECONDS = 5;
+
+    private final ProcFileReader io;
+    private final boolean micrometerFormat;
+    private final List<Series> series = new ArrayList<>();
+
+    /**
+     * @param procSelf         the {@code /proc/self} directory, usually
+     *                         {@link ProcessMetrics#DEFAULT_PROC_SELF}
+     * @param micrometerFormat whether to skip the scope in the OpenMetrics
+     *                         export
+     */
+    ProcessIoMetrics(final Path procSelf, final boolean micrometerFormat) {
+        io = new ProcFileReader(requireNonNull(procSelf).resolve("io"));
+        this.micrometerFormat = micrometerFormat;
+    }
+
+    /**
+     * Adds the metrics to the given registry, if the file is readable.
+     *
+     * @param registry      to be bound to
+     * @param scheduler     sampling the rates
+     * @param windowSeconds length of the rate window
+     */
+    void bindTo(final MetricRegistry registry, final MetricsScheduler scheduler, final long windowSeconds) {
+        requireNonNull(registry);
+        requireNonNull(scheduler);
+        if (!io.isReadable()) {
+            return;
+        }
+        final var windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        final var capacity = (int) Math.max(2, windowSeconds / SAMPLE_INTERVAL_SECONDS + 1);
+        final Supplier<RateWindow> rates = () -> new RateWindow(windowNanos, capacity, System::nanoTime);
+        register(registry, new Series("read_bytes", "process.io.read.bytes", MetricUnits.BYTES,
+                "Bytes read from the storage layer by the process", rates.get()));
+        register(registry, new Series("write_bytes", "process.io.write.bytes", MetricUnits.BYTES,
+                "Bytes written to the storage layer by the process", rates.get()));
+        register(registry, new Series("syscr", "process.io.read.calls", MetricUnits.NONE,
+                "Number of read system calls of the process", rates.get()));
+        register(registry, new Series("syscw", "process.io.write.calls", MetricUnits.NONE,
+                "Number of write system calls of the process", rates.get()));
+        scheduler.schedule("process io", this::sample, SAMPLE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void register(final MetricRegistry registry, final Series entry) {
+        series.add(entry);
+        CumulativeCounter.register(registry, micrometerFormat, entry.name, entry.unit, entry.description,
+                () -> io.getKeyed(entry.key));
+        registry.register(new ExtendedMetadataBuilder().withName(entry.name + ".rate").withType(MetricType.GAUGE)
+                .withDescription(entry.description + " per second within the rate window")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                (DoubleGauge) entry.rate::getRate);
+    }
+
+    void sample() {
+        for (final Series entry : series) {
+            entry.rate.record(io.getKeyed(entry.key));
+        }
+    }
+
+    @Override
+    public void close() {
+        io.close();
+    }
+
+    private static final class Series {
+
+        private final byte[] key;
+        private final String name;
+        private final String unit;
+        private final String description;
+        private final RateWindow rate;
+
+        Series(final String key, final String name, final String unit, final String description,
+                final RateWindow rate) {
+            this.key = key(key);
+            this.name = name;
+            this.unit = unit;
+            this.description = description;
+            this.rate = rate;
+        }
+    }
+}
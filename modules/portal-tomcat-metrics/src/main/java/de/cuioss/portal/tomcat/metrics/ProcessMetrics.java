@@ -0,0 +1,136 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static de.cuioss.portal.tomcat.metrics.ProcFileReader.MISSING;
+import static de.cuioss.portal.tomcat.metrics.ProcFileReader.key;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.LongSupplier;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+
+/**
+ * Process metrics read from {@code /proc/self/status} and
+ * {@code /proc/self/stat} under Linux, complementing
+ * {@link OperatingSystemMetrics} and {@link FileDescriptorMetrics}:
+ * <ul>
+ * <li>{@code process.memory.rss} and {@code process.memory.virtual}: resident
+ * set size and virtual memory size</li>
+ * <li>{@code process.threads}: number of native threads</li>
+ * <li>{@code process.context.switches}: {@code type} {@code voluntary} or
+ * {@code involuntary}</li>
+ * <li>{@code process.page.faults}: {@code type} {@code minor} or
+ * {@code major}</li>
+ * </ul>
+ * Each file is read at most once per scrape by a {@link ProcFileReader} shared
+ * by all of its gauges.
+ */
+final class ProcessMetrics implements Closeable {
+
+    static final Path DEFAULT_PROC_SELF = Paths.get("/proc/self");
+
+    private static final byte[] VM_RSS = key("VmRSS");
+    private static final byte[] VM_SIZE = key("VmSize");
+    private static final byte[] THREADS = key("Threads");
+    private static final byte[] VOLUNTARY = key("voluntary_ctxt_switches");
+    private static final byte[] INVOLUNTARY = key("nonvoluntary_ctxt_switches");
+
+    /** Index of minflt in /proc/self/stat, counted from the state after the command. */
+    static final int STAT_MINFLT = 7;
+    /** Index of majflt in /proc/self/stat, counted from the state after the command. */
+    static final int STAT_MAJFLT = 9;
+
+    private final ProcFileReader status;
+    private final ProcFileReader stat;
+    private final boolean micrometerFormat;
+
+    /**
+     * @param procSelf         the {@code /proc/self} directory, usually
+     *                         {@link #DEFAULT_PROC_SELF}
+     * @param micrometerFormat whether to skip the scope in the OpenMetrics
+     *                         export
+     */
+    ProcessMetrics(final Path procSelf, final boolean micrometerFormat) {
+        requireNonNull(procSelf);
+        status = new ProcFileReader(procSelf.resolve("status"));
+        stat = new ProcFileReader(procSelf.resolve("stat"));
+        this.micrometerFormat = micrometerFormat;
+    }
+
+    /**
+     * Adds the metrics to the given registry, if the files are readable.
+     *
+     * @param registry to be bound to
+     */
+    void bindTo(final MetricRegistry registry) {
+        requireNonNull(registry);
+
+        if (status.isReadable()) {
+            registerGauge(registry, "process.memory.rss", "Resident set size of the process", MetricUnits.BYTES,
+                    () -> kiloBytes(status.getKeyed(VM_RSS)));
+            registerGauge(registry, "process.memory.virtual", "Virtual memory size of the process",
+                    MetricUnits.BYTES, () -> kiloBytes(status.getKeyed(VM_SIZE)));
+            registerGauge(registry, "process.threads", "Number of native threads of the process", MetricUnits.NONE,
+                    () -> status.getKeyed(THREADS));
+            registerCounter(registry, "process.context.switches",
+                    "Number of context switches of the process", () -> status.getKeyed(VOLUNTARY),
+                    new Tag("type", "voluntary"));
+            registerCounter(registry, "process.context.switches",
+                    "Number of context switches of the process", () -> status.getKeyed(INVOLUNTARY),
+                    new Tag("type", "involuntary"));
+        }
+        if (stat.isReadable()) {
+            // the command may contain spaces and parentheses, so fields are counted from the last ')'
+            registerCounter(registry, "process.page.faults",
+                    "Number of page faults of the process", () -> stat.getFieldAfterLast((byte) ')', STAT_MINFLT),
+                    new Tag("type", "minor"));
+            registerCounter(registry, "process.page.faults",
+                    "Number of page faults of the process", () -> stat.getFieldAfterLast((byte) ')', STAT_MAJFLT),
+                    new Tag("type", "major"));
+        }
+    }
+
+    private static long kiloBytes(final long value) {
+        return value == MISSING ? MISSING : value * 1024;
+    }
+
+    private void registerGauge(final MetricRegistry registry, final String name, final String description,
+            final String unit, final LongSupplier value) {
+        registry.register(new ExtendedMetadataBuilder().withName(name).withType(MetricType.GAUGE).withUnit(unit)
+                .withDescription(description).skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                (LongGauge) value::getAsLong);
+    }
+
+    private void registerCounter(final MetricRegistry registry, final String name, final String description,
+            final LongSupplier count, final Tag tag) {
+        CumulativeCounter.register(registry, micrometerFormat, name, MetricUnits.NONE, description, count, tag);
+    }
+
+    @Override
+    public void close() {
+        status.close();
+        stat.close();
+    }
+}
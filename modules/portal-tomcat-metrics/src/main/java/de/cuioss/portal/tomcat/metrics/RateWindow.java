@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-second rate of a cumulative value over a sliding time window. The value
+ * is sampled periodically, e.g. by the {@link MetricsScheduler}, into a ring
+ * buffer and the rate is derived from the oldest and the latest sample within
+ * the window. Decreasing values, e.g. after a counter reset, restart the
+ * window, unless the window is created by {@link #ofGauge(long, int, LongSupplier)}
+ * for values going up and down, where the rate may become negative.
+ */
+final class RateWindow {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+    private final boolean cumulative;
+    private final long[] times;
+    private final long[] values;
+
+    private int next;
+    private int size;
+
+    /**
+     * @param windowNanos length of the window in nanoseconds
+     * @param capacity    maximum number of samples kept, should cover the
+     *                    window for the sampling interval
+     * @param nanoClock   to be used, usually {@code System::nanoTime}
+     */
+    RateWindow(final long windowNanos, final int capacity, final LongSupplier nanoClock) {
+        this(windowNanos, capacity, nanoClock, true);
+    }
+
+    private RateWindow(final long windowNanos, final int capacity, final LongSupplier nanoClock,
+            final boolean cumulative) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2, but was " + capacity);
+        }
+        this.windowNanos = windowNanos;
+        this.nanoClock = nanoClock;
+        this.cumulative = cumulative;
+        times = new long[capacity];
+        values = new long[capacity];
+    }
+
+    /**
+     * @param windowNanos length of the window in nanoseconds
+     * @param capacity    maximum number of samples kept, should cover the
+     *                    window for the sampling interval
+     * @param nanoClock   to be used, usually {@code System::nanoTime}
+     *
+     * @return a window for a gauge value, i.e. decreasing values do not
+     *         restart the window
+     */
+    static RateWindow ofGauge(final long windowNanos, final int capacity, final LongSupplier nanoClock) {
+        return new RateWindow(windowNanos, capacity, nanoClock, false);
+    }
+
+    /**
+     * @param value current value, ignored if negative
+     */
+    synchronized void record(final long value) {
+        if (value < 0) {
+            return;
+        }
+        if (cumulative && size > 0 && value < values[latest()]) {
+            size = 0;
+        }
+        times[next] = nanoClock.getAsLong();
+        values[next] = value;
+        next = (next + 1) % times.length;
+        size = Math.min(size + 1, times.length);
+    }
+
+    /**
+     * @return the per-second rate within the window, NaN if there are less than
+     *         two samples within the window
+     */
+    synchronized double getRate() {
+        if (size < 2) {
+            return Double.NaN;
+        }
+        final var now = nanoClock.getAsLong();
+        final var latest = latest();
+        if (now - times[latest] > windowNanos) {
+            return Double.NaN;
+        }
+        var oldest = (next - size + times.length) % times.length;
+        while (oldest != latest && now - times[oldest] > windowNanos) {
+            oldest = (oldest + 1) % times.length;
+        }
+        final var elapsed = times[latest] - times[oldest];
+        if (oldest == latest || elapsed <= 0) {
+            return Double.NaN;
+        }
+        return (values[latest] - values[oldest]) * NANOS_PER_SECOND / elapsed;
+    }
+
+    private int latest() {
+        return (next - 1 + times.length) % times.length;
+    }
+}
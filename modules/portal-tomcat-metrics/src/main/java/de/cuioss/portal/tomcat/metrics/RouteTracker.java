@@ -0,0 +1,154 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the routes processed by each thread, recorded by
+ * {@link ServletMetrics}, in order to attribute asynchronously delivered JFR
+ * events to the route being processed at the time of the event. For each
+ * thread the last {@value #SPANS_PER_THREAD} spans are kept.
+ * <p>
+ * The tracking is disabled by default and enabled by the binder consuming it,
+ * so that requests are not slowed down otherwise.
+ * </p>
+ */
+final class RouteTracker {
+
+    static final int SPANS_PER_THREAD = 32;
+
+    private static final long OPEN = Long.MAX_VALUE;
+
+    private static volatile boolean enabled;
+
+    private static final Map<Long, ThreadSpans> SPANS = new ConcurrentHashMap<>();
+
+    private RouteTracker() {
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void setEnabled(final boolean value) {
+        enabled = value;
+        if (!value) {
+            SPANS.clear();
+        }
+    }
+
+    /**
+     * Marks the start of processing the given route by the current thread.
+     * Must be followed by {@link #exit()}.
+     *
+     * @param route being processed
+     */
+    static void enter(final Route route) {
+        // no ThreadLocal, it would pin the web application class loader to pooled threads
+        SPANS.computeIfAbsent(Thread.currentThread().getId(), threadId -> new ThreadSpans())
+                .enter(route, epochNanos(Instant.now()));
+    }
+
+    /**
+     * Marks the end of processing the current route by the current thread.
+     */
+    static void exit() {
+        final var spans = SPANS.get(Thread.currentThread().getId());
+        if (null != spans) {
+            spans.exit(epochNanos(Instant.now()));
+        }
+    }
+
+    /**
+     * @param threadId   of the thread
+     * @param epochNanos point in time, nanoseconds since the epoch
+     *
+     * @return the route processed by the given thread at the given time, or
+     *         {@code null} if none is known
+     */
+    static Route lookup(final long threadId, final long epochNanos) {
+        final var spans = SPANS.get(threadId);
+        return null == spans ? null : spans.lookup(epochNanos);
+    }
+
+    /**
+     * Discards the spans of terminated threads.
+     *
+     * @param liveThreadIds ids of all live threads
+     */
+    static void prune(final long[] liveThreadIds) {
+        final var sorted = liveThreadIds.clone();
+        Arrays.sort(sorted);
+        SPANS.keySet().removeIf(threadId -> Arrays.binarySearch(sorted, threadId) < 0);
+    }
+
+    static long epochNanos(final Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * Route of a request as reported by {@link ServletMetrics}.
+     *
+     * @param context path of the web application
+     * @param name    servlet path
+     */
+    record Route(String context, String name) {
+    }
+
+    /**
+     * Ring buffer of the spans of a single thread. Written by the thread itself,
+     * read by the JFR dispatching thread.
+     */
+    private static final class ThreadSpans {
+
+        private final Route[] routes = new Route[SPANS_PER_THREAD];
+        private final long[] starts = new long[SPANS_PER_THREAD];
+        private final long[] ends = new long[SPANS_PER_THREAD];
+        private int next;
+
+        synchronized void enter(final Route route, final long now) {
+            routes[next] = route;
+            starts[next] = now;
+            ends[next] = OPEN;
+            next = (next + 1) % SPANS_PER_THREAD;
+        }
+
+        synchronized void exit(final long now) {
+            final var current = (next + SPANS_PER_THREAD - 1) % SPANS_PER_THREAD;
+            if (ends[current] == OPEN) {
+                ends[current] = now;
+            }
+        }
+
+        synchronized Route lookup(final long epochNanos) {
+            // newest first, the spans of a thread do not overlap
+            for (var i = 1; i <= SPANS_PER_THREAD; i++) {
+                final var index = (next + SPANS_PER_THREAD - i) % SPANS_PER_THREAD;
+                if (null == routes[index] || ends[index] < epochNanos) {
+                    return null;
+                }
+                if (starts[index] <= epochNanos) {
+                    return routes[index];
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -19,7 +19,6 @@ import static java.util.Objects.requireNonNull;
 
 import java.lang.management.ManagementFactory;
 
-import org.eclipse.microprofile.metrics.Gauge;
 import org.eclipse.microprofile.metrics.Metadata;
 import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.eclipse.microprofile.metrics.MetricType;
@@ -44,27 +43,27 @@ final class RuntimeMetrics {
                     // .withName("process.runtime")
                     .withName("process.uptime").withDisplayName("JVM Uptime").withType(MetricType.GAUGE)
                     .withUnit(MetricUnits.MILLISECONDS).withDescription("The uptime of the Java Virtual Machine.")
-                    .skipsScopeInOpenMetricsExportCompletely(true).build(), (Gauge) runtimeMXBean::getUptime);
+                    .skipsScopeInOpenMetricsExportCompletely(true).build(), (LongGauge) runtimeMXBean::getUptime);
 
             registry.register(
                     new ExtendedMetadataBuilder().withName("process.start.time").withDisplayName("JVM Starttime")
                             .withType(MetricType.GAUGE).withUnit(MetricUnits.MILLISECONDS)
                             .withDescription("Start time of the process since unix epoch.")
                             .skipsScopeInOpenMetricsExportCompletely(true).build(),
-                    (Gauge) runtimeMXBean::getStartTime);
+                    (LongGauge) runtimeMXBean::getStartTime);
         } else {
             // required metric according to spec 2.3
             registry.register(Metadata.builder().withName("jvm.uptime").withDisplayName("JVM Uptime")
                     .withType(MetricType.GAUGE).withUnit(MetricUnits.MILLISECONDS).withDescription("""
                             Displays the time elapsed since the start of the \
                             Java Virtual Machine in milliseconds.\
-                            """).build(), (Gauge) runtimeMXBean::getUptime);
+                            """).build(), (LongGauge) runtimeMXBean::getUptime);
 
             registry.register(Metadata.builder().withName("jvm.starttime").withDisplayName("JVM Starttime")
                     .withType(MetricType.GAUGE).withUnit(MetricUnits.MILLISECONDS).withDescription("""
                             Displays the start time of the Java Virtual Machine \
                             since unix epoch in milliseconds.\
-                            """).build(), (Gauge) runtimeMXBean::getStartTime);
+                            """).build(), (LongGauge) runtimeMXBean::getStartTime);
         }
     }
 }
@@ -17,71 +17,39 @@ package de.cuioss.portal.tomcat.metrics;
 
 import java.util.concurrent.Callable;
 
-import org.eclipse.microprofile.metrics.Gauge;
-
-import de.cuioss.tools.logging.CuiLogger;
 import lombok.experimental.UtilityClass;
 
 /**
- * Catches and logs exceptions occurred during {@link Callable#call()}.
+ * Catches and logs exceptions occurred during {@link Callable#call()}. Each
+ * gauge is guarded by its own {@link GaugeCircuitBreaker}, so a permanently
+ * failing value provider is short-circuited instead of being called and logged
+ * on every scrape.
  *
  * @author Sven Haag
  */
 @UtilityClass
 final class SafeGauge {
 
-    private static final CuiLogger LOGGER = new CuiLogger(SafeGauge.class);
-
-    private static final String ERROR_MSG = "Portal-535: Error retrieving metric.";
-
     /**
-     * @param callable called in a try-catch statement. the value is directly cast
-     *                 to double.
+     * @param callable called in a try-catch statement. the value must be a
+     *                 {@link Number}.
      *
      * @return gauge with double value
      */
-    static Gauge<Double> doubleGauge(final Callable<Object> callable) {
-        return () -> {
-            try {
-                return (Double) callable.call();
-            } catch (final Exception e) {
-                LOGGER.error(ERROR_MSG, e);
-                return Double.NaN;
-            }
-        };
-    }
-
-    /**
-     * @param callable called in a try-catch statement. the value is directly cast
-     *                 to integer.
-     *
-     * @return gauge with integer value
-     */
-    static Gauge<Integer> intGauge(final Callable<Object> callable) {
-        return () -> {
-            try {
-                return (Integer) callable.call();
-            } catch (final Exception e) {
-                LOGGER.error(ERROR_MSG, e);
-                return 0;
-            }
-        };
+    static DoubleGauge doubleGauge(final Callable<Object> callable) {
+        final var breaker = new GaugeCircuitBreaker();
+        return () -> breaker.callDouble(() -> ((Number) callable.call()).doubleValue(), Double.NaN);
     }
 
     /**
-     * @param callable called in a try-catch statement. the value is directly cast
-     *                 to long.
+     * @param callable called in a try-catch statement. the value must be a
+     *                 {@link Number}, e.g. an {@link Integer} or {@link Long}
+     *                 JMX attribute.
      *
      * @return gauge with long value
      */
-    static Gauge<Long> longGauge(final Callable<Object> callable) {
-        return () -> {
-            try {
-                return (Long) callable.call();
-            } catch (final Exception e) {
-                LOGGER.error(ERROR_MSG, e);
-                return 0L;
-            }
-        };
+    static LongGauge longGauge(final Callable<Object> callable) {
+        final var breaker = new GaugeCircuitBreaker();
+        return () -> breaker.callLong(() -> ((Number) callable.call()).longValue(), 0L);
     }
 }
@@ -17,16 +17,14 @@ package de.cuioss.portal.tomcat.metrics;
 
 import java.util.concurrent.Callable;
 
-import de.cuioss.tools.logging.CuiLogger;
-
 /**
+ * Counter whose value provider is guarded by a {@link GaugeCircuitBreaker}.
+ *
  * @author Sven Haag
  */
 abstract class SafeGetCountOnlyCounter extends GetCountOnlyCounter {
 
-    private static final CuiLogger LOGGER = new CuiLogger(SafeGetCountOnlyCounter.class);
-
-    private static final String ERROR_MSG = "Portal-535: Error retrieving metric.";
+    private final GaugeCircuitBreaker breaker = new GaugeCircuitBreaker();
 
     /**
      * @return callable whose value can be parsed to {@link Long}.
@@ -35,11 +33,6 @@ abstract class SafeGetCountOnlyCounter extends GetCountOnlyCounter {
 
     @Override
     public long getCount() {
-        try {
-            return getValueProvider().call().longValue();
-        } catch (final Exception e) {
-            LOGGER.error(ERROR_MSG, e);
-        }
-        return 0L;
+        return breaker.callLong(() -> getValueProvider().call().longValue(), 0L);
     }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Correlates {@code jdk.SafepointBegin} and {@code jdk.SafepointEnd} by their
+ * {@code safepointId}. The begin event only covers the synchronization, so the
+ * total time of a safepoint lasts from the start of the begin event until the
+ * end of the end event. Only accessed by the single dispatching thread of the
+ * stream.
+ */
+final class SafepointCorrelator {
+
+    static final String SAFEPOINT_ID = "safepointId";
+
+    /** Upper bound of pending safepoints, e.g. if end events got lost. */
+    static final int MAX_PENDING = 64;
+
+    private final Map<Long, Instant> pending = new LinkedHashMap<>(16, 0.75f, false) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Instant> eldest) {
+            return size() > MAX_PENDING;
+        }
+    };
+
+    /**
+     * @param safepointId of the begin event
+     * @param start       start time of the begin event
+     */
+    void begin(final long safepointId, final Instant start) {
+        pending.put(safepointId, start);
+    }
+
+    /**
+     * @param safepointId of the end event
+     * @param end         end time of the end event
+     *
+     * @return the total duration of the safepoint, {@code null} if the begin
+     *         event is unknown
+     */
+    Duration end(final long safepointId, final Instant end) {
+        final var start = pending.remove(safepointId);
+        return null == start ? null : Duration.between(start, end);
+    }
+}
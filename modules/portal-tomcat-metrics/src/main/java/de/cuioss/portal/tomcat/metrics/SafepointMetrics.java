@@ -0,0 +1,123 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+import jdk.jfr.consumer.RecordedEvent;
+
+/**
+ * Safepoint metrics derived from JFR events, complementing the
+ * {@code jvm.jfr.safepoint.duration} histogram of {@link JfrMetrics}:
+ * <ul>
+ * <li>{@code jvm.safepoint.count} and {@code jvm.safepoint.time}: number and
+ * accumulated time of safepoints, from the synchronization until the end of the
+ * operation</li>
+ * <li>{@code jvm.jfr.safepoint.sync}: histogram of the time to safepoint, i.e.
+ * how long it took until all threads reached the safepoint, in
+ * microseconds</li>
+ * <li>{@code jvm.safepoint.sync.time}: accumulated time to safepoint</li>
+ * <li>{@code jvm.jfr.safepoint.operations}: number of VM operations executed
+ * at a safepoint per {@code operation}, e.g. {@code ThreadDump} caused by
+ * {@link ThreadMetrics}</li>
+ * </ul>
+ * Count, times and time to safepoint are observed without the event budget of
+ * {@link JfrMetrics}, so they stay exact during safepoint storms. Count and
+ * time share the safepoint correlation of {@link JfrMetrics}. The HotSpot
+ * runtime counters are not used, as {@code sun.management} is not exported by
+ * the JDK.
+ */
+final class SafepointMetrics {
+
+    static final String SAFEPOINT_STATE_SYNCHRONIZATION = "jdk.SafepointStateSynchronization";
+    static final String EXECUTE_VM_OPERATION = "jdk.ExecuteVMOperation";
+
+    /** Upper bound of distinct VM operations, further are tagged as {@value JfrMetrics#OTHER}. */
+    static final int MAX_OPERATIONS = 32;
+
+    private final boolean micrometerFormat;
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicLong syncNanos = new AtomicLong();
+    private final Map<String, Counter> operations = new ConcurrentHashMap<>();
+
+    /**
+     * @param micrometerFormat whether to skip the scope in the OpenMetrics
+     *                         export
+     */
+    SafepointMetrics(final boolean micrometerFormat) {
+        this.micrometerFormat = micrometerFormat;
+    }
+
+    void bindTo(final MetricRegistry registry, final JfrMetrics jfrMetrics) {
+        requireNonNull(registry);
+
+        CumulativeCounter.register(registry, micrometerFormat, "jvm.safepoint.count", MetricUnits.NONE,
+                "Number of safepoints", count::get);
+        CumulativeCounter.register(registry, micrometerFormat, "jvm.safepoint.time", MetricUnits.MILLISECONDS,
+                "Accumulated time the JVM spent in safepoints", () -> TimeUnit.NANOSECONDS.toMillis(nanos.get()));
+        CumulativeCounter.register(registry, micrometerFormat, "jvm.safepoint.sync.time", MetricUnits.MILLISECONDS,
+                "Accumulated time until all threads reached a safepoint",
+                () -> TimeUnit.NANOSECONDS.toMillis(syncNanos.get()));
+        final var syncHistogram = registry.histogram(new ExtendedMetadataBuilder().withName("jvm.jfr.safepoint.sync")
+                .withType(MetricType.HISTOGRAM).withUnit(MetricUnits.MICROSECONDS)
+                .withDescription("Time until all threads reached a safepoint")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build());
+
+        jfrMetrics.observeSafepoints(duration -> {
+            count.incrementAndGet();
+            nanos.addAndGet(duration.toNanos());
+        });
+        jfrMetrics.observe(SAFEPOINT_STATE_SYNCHRONIZATION, Duration.ZERO, event -> {
+            final var duration = event.getDuration().toNanos();
+            syncNanos.addAndGet(duration);
+            syncHistogram.update(TimeUnit.NANOSECONDS.toMicros(duration));
+        });
+        jfrMetrics.subscribe(EXECUTE_VM_OPERATION, Duration.ZERO, false, event -> recordOperation(registry, event));
+    }
+
+    private void recordOperation(final MetricRegistry registry, final RecordedEvent event) {
+        if (!event.getBoolean("safepoint")) {
+            return;
+        }
+        var operation = event.getString("operation");
+        if (null == operation || !operations.containsKey(operation) && operations.size() >= MAX_OPERATIONS) {
+            operation = JfrMetrics.OTHER;
+        }
+        operations.computeIfAbsent(operation,
+                name -> registry.counter(new ExtendedMetadataBuilder().withName("jvm.jfr.safepoint.operations")
+                        .withType(MetricType.COUNTER)
+                        .withDescription("Number of VM operations executed at a safepoint")
+                        .skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                        .withOpenMetricsKeyOverride(micrometerFormat ? "jvm_jfr_safepoint_operations_total" : null)
+                        .build(), new Tag("operation", name)))
+                .inc();
+    }
+}
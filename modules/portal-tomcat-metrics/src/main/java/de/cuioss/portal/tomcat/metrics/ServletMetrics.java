@@ -44,6 +44,8 @@ import de.cuioss.tools.logging.CuiLogger;
  * <li>A Gauge with the number of concurrent request per context</li>
  * <li>A Gauge with a the number of responses per context and status code</li>
  * </ul>
+ * If enabled, the processed routes are recorded by {@link RouteTracker} for
+ * attributing allocations to them.
  *
  * Example metrics being exported:
  *
@@ -94,7 +96,8 @@ public class ServletMetrics implements Filter {
         if (servletPath.startsWith("faces/pages/") || servletPath.equals("javax.faces.resource")) {
             filterChain.doFilter(servletRequest, servletResponse);
         } else if (!request.isAsyncStarted()) {
-            final var context = new Tag("context", getContext(request));
+            final var contextPath = getContext(request);
+            final var context = new Tag("context", contextPath);
             final var name = new Tag("name", servletPath);
 
             final var servletConcurrentRequest = applicationRegistry.concurrentGauge(
@@ -108,10 +111,17 @@ public class ServletMetrics implements Filter {
                             .withDescription("The time taken fulfilling servlet requests").build(),
                     context, name, new Tag("method", request.getMethod())).time(); // start timer
 
+            final var routeTracked = RouteTracker.isEnabled();
+            if (routeTracked) {
+                RouteTracker.enter(new RouteTracker.Route(contextPath, servletPath));
+            }
             try {
                 // calls the next filter in the chain. returns when servlet has been processed.
                 filterChain.doFilter(servletRequest, servletResponse);
             } finally {
+                if (routeTracked) {
+                    RouteTracker.exit();
+                }
                 timer.stop();
 
                 servletConcurrentRequest.dec();
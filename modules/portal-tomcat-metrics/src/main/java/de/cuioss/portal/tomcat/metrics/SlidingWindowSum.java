@@ -0,0 +1,93 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Sum of the values added within a sliding time window. The window is divided
+ * into a fixed number of buckets, expired buckets are subtracted from a running
+ * sum, so neither adding nor reading iterates over all recorded values.
+ */
+final class SlidingWindowSum {
+
+    private final LongSupplier nanoClock;
+    private final long bucketNanos;
+    private final long windowNanos;
+    private final long[] buckets;
+    private final long startNanos;
+
+    private long sum;
+    // index of the bucket covering the point in time bucketStart
+    private int current;
+    private long bucketStart;
+
+    /**
+     * @param windowNanos length of the window in nanoseconds
+     * @param bucketCount number of buckets, defines the granularity of expiring
+     * @param nanoClock   to be used, usually {@code System::nanoTime}
+     */
+    SlidingWindowSum(final long windowNanos, final int bucketCount, final LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        buckets = new long[bucketCount];
+        bucketNanos = Math.max(1, windowNanos / bucketCount);
+        this.windowNanos = bucketNanos * bucketCount;
+        startNanos = nanoClock.getAsLong();
+        bucketStart = startNanos;
+    }
+
+    synchronized void add(final long value) {
+        expire();
+        buckets[current] += value;
+        sum += value;
+    }
+
+    /**
+     * @return the sum of the values added within the window
+     */
+    synchronized long getSum() {
+        expire();
+        return sum;
+    }
+
+    /**
+     * @return the length of the window in nanoseconds, limited to the time
+     *         passed since creation
+     */
+    synchronized long getEffectiveWindowNanos() {
+        return Math.min(windowNanos, Math.max(1, nanoClock.getAsLong() - startNanos));
+    }
+
+    private void expire() {
+        final var elapsed = nanoClock.getAsLong() - bucketStart;
+        if (elapsed < bucketNanos) {
+            return;
+        }
+        final var steps = elapsed / bucketNanos;
+        if (steps >= buckets.length) {
+            Arrays.fill(buckets, 0);
+            sum = 0;
+        } else {
+            for (var i = 0; i < steps; i++) {
+                current = (current + 1) % buckets.length;
+                sum -= buckets[current];
+                buckets[current] = 0;
+            }
+        }
+        bucketStart += steps * bucketNanos;
+    }
+}
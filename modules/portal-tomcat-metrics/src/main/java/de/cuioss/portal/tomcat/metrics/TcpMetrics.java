@@ -0,0 +1,271 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static de.cuioss.portal.tomcat.metrics.ProcFileReader.key;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import de.cuioss.tools.logging.CuiLogger;
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+
+/**
+ * TCP socket metrics of the connector ports read from {@code /proc/net} under
+ * Linux, reacting to connection storms before the connector statistics do:
+ * <ul>
+ * <li>{@code tcp.connections}: number of sockets per local {@code port} and
+ * {@code state} ({@code established}, {@code time_wait} or
+ * {@code close_wait})</li>
+ * <li>{@code tcp.accept.queue}: number of connections waiting to be accepted
+ * per listening {@code port}</li>
+ * <li>{@code tcp.listen.overflows} and {@code tcp.listen.drops}: number of
+ * times the accept queue overflowed and connections were dropped, from
+ * {@code /proc/net/netstat} of the network namespace</li>
+ * </ul>
+ * {@code tcp} and {@code tcp6} are parsed periodically by the
+ * {@link MetricsScheduler} with a streaming parser working on a reused buffer,
+ * as the tables may become large under load.
+ */
+final class TcpMetrics implements Closeable {
+
+    private static final CuiLogger LOGGER = new CuiLogger(TcpMetrics.class);
+
+    static final Path DEFAULT_PROC_NET = Paths.get("/proc/net");
+
+    static final int STATE_ESTABLISHED = 0x01;
+    static final int STATE_TIME_WAIT = 0x06;
+    static final int STATE_CLOSE_WAIT = 0x08;
+    static final int STATE_LISTEN = 0x0A;
+
+    static final int ESTABLISHED = 0;
+    static final int TIME_WAIT = 1;
+    static final int CLOSE_WAIT = 2;
+    static final int ACCEPT_QUEUE = 3;
+
+    private static final String[] STATE_NAMES = { "established", "time_wait", "close_wait" };
+
+    private static final byte[] TCP_EXT = key("TcpExt:");
+    private static final byte[] LISTEN_OVERFLOWS = key("ListenOverflows");
+    private static final byte[] LISTEN_DROPS = key("ListenDrops");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path[] tables;
+    private final ProcFileReader netstat;
+    private final int[] ports;
+    private final boolean micrometerFormat;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /** Per port index the counts indexed by {@link #ESTABLISHED} to {@link #ACCEPT_QUEUE}. */
+    private volatile long[][] counts;
+
+    /**
+     * @param procNet          usually {@link #DEFAULT_PROC_NET}
+     * @param ports            local ports to be reported, usually the connector
+     *                         ports
+     * @param micrometerFormat whether to skip the scope in the OpenMetrics
+     *                         export
+     */
+    TcpMetrics(final Path procNet, final Collection<Integer> ports, final boolean micrometerFormat) {
+        requireNonNull(procNet);
+        tables = new Path[] { procNet.resolve("tcp"), procNet.resolve("tcp6") };
+        netstat = new ProcFileReader(procNet.resolve("netstat"));
+        this.ports = ports.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+        this.micrometerFormat = micrometerFormat;
+        counts = new long[this.ports.length][4];
+    }
+
+    /**
+     * @param registry        to be bound to
+     * @param scheduler       parsing the socket tables
+     * @param intervalSeconds between two parses
+     */
+    void bindTo(final MetricRegistry registry, final MetricsScheduler scheduler, final long intervalSeconds) {
+        requireNonNull(registry);
+        requireNonNull(scheduler);
+
+        if (netstat.isReadable()) {
+            registerCounter(registry, "tcp.listen.overflows", "Number of times the accept queue of a listening "
+                    + "socket overflowed", LISTEN_OVERFLOWS);
+            registerCounter(registry, "tcp.listen.drops", "Number of connections dropped by listening sockets",
+                    LISTEN_DROPS);
+        }
+        if (0 == ports.length || !Files.isReadable(tables[0])) {
+            return;
+        }
+        for (var i = 0; i < ports.length; i++) {
+            final var index = i;
+            final var portTag = new Tag("port", String.valueOf(ports[i]));
+            for (var state = ESTABLISHED; state <= CLOSE_WAIT; state++) {
+                final var stateIndex = state;
+                registry.register(new ExtendedMetadataBuilder().withName("tcp.connections").withType(MetricType.GAUGE)
+                        .withDescription("Number of TCP sockets of the local port in the given state")
+                        .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                        (LongGauge) () -> counts[index][stateIndex], portTag, new Tag("state", STATE_NAMES[state]));
+            }
+            registry.register(new ExtendedMetadataBuilder().withName("tcp.accept.queue").withType(MetricType.GAUGE)
+                    .withDescription("Number of connections waiting to be accepted by the listening port")
+                    .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                    (LongGauge) () -> counts[index][ACCEPT_QUEUE], portTag);
+        }
+        scheduler.schedule("tcp sockets", this::scan, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private void registerCounter(final MetricRegistry registry, final String name, final String description,
+            final byte[] column) {
+        CumulativeCounter.register(registry, micrometerFormat, name, MetricUnits.NONE, description,
+                () -> netstat.getColumn(TCP_EXT, column));
+    }
+
+    /**
+     * Parses the socket tables and publishes the counts.
+     */
+    synchronized void scan() {
+        final var result = new long[ports.length][4];
+        for (final Path table : tables) {
+            try (var channel = FileChannel.open(table, StandardOpenOption.READ)) {
+                parse(channel, result);
+            } catch (final IOException e) {
+                LOGGER.debug("Could not read {}: {}", table, e.getMessage());
+            }
+        }
+        counts = result;
+    }
+
+    /**
+     * Streaming parser of a {@code /proc/net/tcp} table. Per line only the
+     * local port (field 1), the state (field 3) and the receive queue (field 4)
+     * are parsed from hex, without materializing the line.
+     */
+    private void parse(final FileChannel channel, final long[][] result) throws IOException {
+        var header = true;
+        var field = 0;
+        var inField = false;
+        var afterColon = false;
+        var localPort = 0;
+        var state = 0;
+        var receiveQueue = 0L;
+
+        buffer.clear();
+        while (channel.read(buffer) > 0 || buffer.position() > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                final var b = buffer.get();
+                if (b == '\n') {
+                    if (!header && field >= 4) {
+                        record(result, localPort, state, receiveQueue);
+                    }
+                    header = false;
+                    field = 0;
+                    inField = false;
+                    afterColon = false;
+                    localPort = 0;
+                    state = 0;
+                    receiveQueue = 0;
+                } else if (header) {
+                    // skip the column names
+                } else if (b == ' ' || b == '\t') {
+                    if (inField) {
+                        field++;
+                        inField = false;
+                        afterColon = false;
+                    }
+                } else {
+                    inField = true;
+                    if (b == ':') {
+                        afterColon = true;
+                    } else if (field == 1 && afterColon) {
+                        localPort = localPort << 4 | hex(b);
+                    } else if (field == 3) {
+                        state = state << 4 | hex(b);
+                    } else if (field == 4 && afterColon) {
+                        receiveQueue = receiveQueue << 4 | hex(b);
+                    }
+                }
+            }
+            buffer.clear();
+        }
+    }
+
+    private void record(final long[][] result, final int localPort, final int state, final long receiveQueue) {
+        final var index = Arrays.binarySearch(ports, localPort);
+        if (index < 0) {
+            return;
+        }
+        switch (state) {
+        case STATE_ESTABLISHED:
+            result[index][ESTABLISHED]++;
+            break;
+        case STATE_TIME_WAIT:
+            result[index][TIME_WAIT]++;
+            break;
+        case STATE_CLOSE_WAIT:
+            result[index][CLOSE_WAIT]++;
+            break;
+        case STATE_LISTEN:
+            // for listening sockets the receive queue is the accept queue
+            result[index][ACCEPT_QUEUE] += receiveQueue;
+            break;
+        default:
+            break;
+        }
+    }
+
+    private static int hex(final byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        return 0;
+    }
+
+    /**
+     * @param port  local port
+     * @param index one of {@link #ESTABLISHED} to {@link #ACCEPT_QUEUE}
+     *
+     * @return the count of the latest scan, 0 if the port is not tracked
+     */
+    long getCount(final int port, final int index) {
+        final var portIndex = Arrays.binarySearch(ports, port);
+        return portIndex < 0 ? 0 : counts[portIndex][index];
+    }
+
+    @Override
+    public void close() {
+        netstat.close();
+    }
+}
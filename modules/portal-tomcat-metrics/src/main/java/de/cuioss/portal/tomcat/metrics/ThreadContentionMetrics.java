@@ -0,0 +1,171 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static de.cuioss.portal.metrics.RegistryHelper.THREADS_SUFFIX;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+import de.cuioss.tools.logging.CuiLogger;
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+
+/**
+ * Periodically scans for deadlocked threads and accumulates the number of
+ * times and the time threads have been blocked entering a monitor. The scan is
+ * executed by the {@link MetricsScheduler}, the gauges and counters only read
+ * the result of the last scan.
+ * <p>
+ * The blocked count and time of a thread are lost when it terminates, so the
+ * per-thread values of the previous scan are kept (sorted by thread id) and
+ * only the increase is added to the totals. This keeps the exported counters
+ * monotonic, apart from blocking of threads terminated between two scans.
+ * </p>
+ * <p>
+ * Measuring the blocked time requires thread contention monitoring, which is
+ * enabled on binding if supported by the JVM.
+ * </p>
+ */
+final class ThreadContentionMetrics implements Closeable {
+
+    private static final CuiLogger LOGGER = new CuiLogger(ThreadContentionMetrics.class);
+
+    private static final long[] EMPTY = new long[0];
+
+    private final ThreadMXBean threadBean;
+    private final boolean micrometerFormat;
+
+    private volatile int deadlockedThreads;
+    private final AtomicLong blockedCount = new AtomicLong(0);
+    private final AtomicLong blockedTimeMillis = new AtomicLong(0);
+
+    // guarded by scan()
+    private long[] lastIds = EMPTY;
+    private long[] lastBlockedCounts = EMPTY;
+    private long[] lastBlockedTimes = EMPTY;
+
+    private ScheduledFuture<?> scan;
+
+    ThreadContentionMetrics(final ThreadMXBean threadBean, final boolean micrometerFormat) {
+        this.threadBean = requireNonNull(threadBean);
+        this.micrometerFormat = micrometerFormat;
+    }
+
+    /**
+     * @param registry        to be bound to
+     * @param scheduler       executing the scans
+     * @param intervalSeconds between two scans
+     */
+    void bindTo(final MetricRegistry registry, final MetricsScheduler scheduler, final long intervalSeconds) {
+        requireNonNull(registry);
+
+        if (threadBean.isThreadContentionMonitoringSupported()) {
+            threadBean.setThreadContentionMonitoringEnabled(true);
+        } else {
+            LOGGER.debug("Thread contention monitoring is not supported, blocked time will not be available");
+        }
+
+        registry.register(new ExtendedMetadataBuilder().withName("jvm.threads.deadlocked").withType(MetricType.GAUGE)
+                .withUnit(micrometerFormat ? THREADS_SUFFIX : MetricUnits.NONE)
+                .withDescription("Number of threads deadlocked waiting for monitors or ownable synchronizers")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                (LongGauge) () -> deadlockedThreads);
+
+        registry.register(new ExtendedMetadataBuilder().withName("jvm.threads.blocked.count")
+                .withType(MetricType.COUNTER)
+                .withDescription("Number of times threads have been blocked entering or reentering a monitor")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                .withOpenMetricsKeyOverride(micrometerFormat ? "jvm_threads_blocked_count_total" : null).build(),
+                new GetCountOnlyCounter() {
+
+                    @Override
+                    public long getCount() {
+                        return blockedCount.get();
+                    }
+                });
+
+        registry.register(new ExtendedMetadataBuilder().withName("jvm.threads.blocked.time")
+                .withType(MetricType.COUNTER).withUnit(MetricUnits.MILLISECONDS)
+                .withDescription("Accumulated time threads have been blocked entering or reentering a monitor")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                .withOpenMetricsKeyOverride(micrometerFormat ? "jvm_threads_blocked_time_milliseconds_total" : null)
+                .build(), new GetCountOnlyCounter() {
+
+                    @Override
+                    public long getCount() {
+                        return blockedTimeMillis.get();
+                    }
+                });
+
+        // the first scan accumulates the blocking since the start of the JVM anyway
+        scan = scheduler.schedule("thread contention scan", this::scan, intervalSeconds, intervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    synchronized void scan() {
+        final var deadlocked = threadBean.findDeadlockedThreads();
+        deadlockedThreads = null == deadlocked ? 0 : deadlocked.length;
+
+        final var ids = threadBean.getAllThreadIds();
+        Arrays.sort(ids);
+        final var infos = threadBean.getThreadInfo(ids, 0);
+        final var blockedCounts = new long[ids.length];
+        final var blockedTimes = new long[ids.length];
+
+        var countIncrease = 0L;
+        var timeIncrease = 0L;
+        for (var i = 0; i < ids.length; i++) {
+            final ThreadInfo info = infos[i];
+            if (null == info) {
+                continue;
+            }
+            blockedCounts[i] = info.getBlockedCount();
+            // -1 if contention monitoring is disabled
+            blockedTimes[i] = Math.max(0, info.getBlockedTime());
+
+            final var last = Arrays.binarySearch(lastIds, ids[i]);
+            countIncrease += Math.max(0, blockedCounts[i] - (last < 0 ? 0 : lastBlockedCounts[last]));
+            timeIncrease += Math.max(0, blockedTimes[i] - (last < 0 ? 0 : lastBlockedTimes[last]));
+        }
+        lastIds = ids;
+        lastBlockedCounts = blockedCounts;
+        lastBlockedTimes = blockedTimes;
+
+        blockedCount.addAndGet(countIncrease);
+        blockedTimeMillis.addAndGet(timeIncrease);
+
+        if (deadlockedThreads > 0) {
+            LOGGER.warn("Detected {} deadlocked threads", deadlockedThreads);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (null != scan) {
+            scan.cancel(false);
+        }
+    }
+}
@@ -19,11 +19,7 @@ import static de.cuioss.portal.metrics.RegistryHelper.THREADS_SUFFIX;
 import static java.util.Objects.requireNonNull;
 
 import java.lang.management.ManagementFactory;
-import java.lang.management.ThreadMXBean;
-import java.util.Arrays;
-import java.util.Objects;
 
-import org.eclipse.microprofile.metrics.Gauge;
 import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.eclipse.microprofile.metrics.MetricType;
 import org.eclipse.microprofile.metrics.MetricUnits;
@@ -44,8 +40,8 @@ import lombok.experimental.UtilityClass;
 final class ThreadMetrics {
 
     /**
-     * Registers a {@link Gauge} of type {@link Long}, that counts all threads
-     * according to their {@link Thread.State}.
+     * Registers a {@link LongGauge}, that counts all threads according to their
+     * {@link Thread.State}.
      *
      * @param registry
      *
@@ -64,7 +60,7 @@ final class ThreadMetrics {
                         Displays the peak live thread count since the Java Virtual Machine started or peak\
                          was reset. This includes daemon and non-daemon threads.\
                         """).skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                (Gauge) threadBean::getPeakThreadCount);
+                (LongGauge) threadBean::getPeakThreadCount);
 
         registry.register(new ExtendedMetadataBuilder()
                 // required according to MP spec
@@ -72,31 +68,28 @@ final class ThreadMetrics {
                 .withDisplayName("Daemon Thread Count").withUnit(micrometerFormat ? THREADS_SUFFIX : MetricUnits.NONE)
                 .withDescription("Displays the current number of live daemon threads.")
                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                (Gauge) threadBean::getDaemonThreadCount);
+                (LongGauge) threadBean::getDaemonThreadCount);
 
         registry.register(new ExtendedMetadataBuilder()
                 // required according to MP spec
                 .withName(micrometerFormat ? "jvm.threads.live" : "thread.count").withDisplayName("Thread count")
                 .withType(MetricType.GAUGE).withUnit(micrometerFormat ? THREADS_SUFFIX : MetricUnits.NONE)
                 .withDescription("The current number of live threads including both daemon and non-daemon threads")
-                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(), (Gauge) threadBean::getThreadCount);
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                (LongGauge) threadBean::getThreadCount);
 
         final var threadStatesMetadata = new ExtendedMetadataBuilder()
                 .withName(micrometerFormat ? "jvm.threads.states" : "thread.state.count").withType(MetricType.GAUGE)
                 .withUnit(micrometerFormat ? THREADS_SUFFIX : MetricUnits.NONE)
                 .withDescription("The current number of threads having a particular state")
                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build();
+        final var threadStateCounts = new ThreadStateCounts(threadBean);
         for (final Thread.State state : Thread.State.values()) {
-            registry.register(threadStatesMetadata, (Gauge) () -> getThreadStateCount(threadBean, state),
+            registry.register(threadStatesMetadata, (LongGauge) () -> threadStateCounts.getCount(state),
                     new Tag("state", getStateTagValue(state)));
         }
     }
 
-    private static long getThreadStateCount(final ThreadMXBean threadBean, final Thread.State state) {
-        return Arrays.stream(threadBean.getThreadInfo(threadBean.getAllThreadIds())).filter(Objects::nonNull)
-                .filter(threadInfo -> threadInfo.getThreadState() == state).count();
-    }
-
     private static String getStateTagValue(final Thread.State state) {
         return state.name().toLowerCase().replace("_", "-");
     }
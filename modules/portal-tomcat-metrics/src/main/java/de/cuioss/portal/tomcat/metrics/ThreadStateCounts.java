@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts the live threads per {@link Thread.State} from a single
+ * {@link ThreadMXBean#getThreadInfo(long[], int)} snapshot. The snapshot is
+ * shared by all state gauges and reused for {@link #DEFAULT_TTL_NANOS}, so one
+ * scrape results in one thread dump instead of one per state.
+ */
+final class ThreadStateCounts {
+
+    static final long DEFAULT_TTL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Thread.State[] STATES = Thread.State.values();
+
+    private final ThreadMXBean threadBean;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    private final long[] counts = new long[STATES.length];
+    private boolean initialized;
+    private long takenAtNanos;
+
+    ThreadStateCounts(final ThreadMXBean threadBean) {
+        this(threadBean, DEFAULT_TTL_NANOS, System::nanoTime);
+    }
+
+    ThreadStateCounts(final ThreadMXBean threadBean, final long ttlNanos, final LongSupplier nanoClock) {
+        this.threadBean = requireNonNull(threadBean);
+        this.ttlNanos = ttlNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @param state to be counted
+     *
+     * @return the number of live threads in the given state, taken from a
+     *         snapshot not older than the configured ttl
+     */
+    synchronized long getCount(final Thread.State state) {
+        final var now = nanoClock.getAsLong();
+        if (!initialized || now - takenAtNanos >= ttlNanos) {
+            takeSnapshot();
+            takenAtNanos = now;
+            initialized = true;
+        }
+        return counts[state.ordinal()];
+    }
+
+    private void takeSnapshot() {
+        Arrays.fill(counts, 0L);
+        // maxDepth 0: no stack traces needed for counting
+        for (final ThreadInfo threadInfo : threadBean.getThreadInfo(threadBean.getAllThreadIds(), 0)) {
+            if (null != threadInfo) {
+                counts[threadInfo.getThreadState().ordinal()]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Maximum of the values recorded within a rolling time window, following the
+ * semantics of Micrometer's {@code TimeWindowMax}: The window is divided into
+ * {@value #BUFFER_LENGTH} overlapping buffers, each recording the maximum for
+ * the whole window length. The buffers are rotated every window length divided
+ * by {@value #BUFFER_LENGTH}, so a value is reported for at least the window
+ * length and afterwards decays.
+ */
+final class TimeWindowMax {
+
+    static final int BUFFER_LENGTH = 3;
+
+    private final LongSupplier nanoClock;
+    private final long rotationNanos;
+    private final long[] buffers = new long[BUFFER_LENGTH];
+
+    private int current;
+    private long lastRotation;
+
+    /**
+     * @param windowNanos length of the window in nanoseconds
+     * @param nanoClock   to be used, usually {@code System::nanoTime}
+     */
+    TimeWindowMax(final long windowNanos, final LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        rotationNanos = Math.max(1, windowNanos / BUFFER_LENGTH);
+        lastRotation = nanoClock.getAsLong();
+    }
+
+    synchronized void record(final long value) {
+        rotate();
+        for (var i = 0; i < BUFFER_LENGTH; i++) {
+            if (value > buffers[i]) {
+                buffers[i] = value;
+            }
+        }
+    }
+
+    /**
+     * @return the maximum recorded within the window, {@code 0} if nothing has
+     *         been recorded
+     */
+    synchronized long poll() {
+        rotate();
+        return buffers[current];
+    }
+
+    private void rotate() {
+        final var elapsed = nanoClock.getAsLong() - lastRotation;
+        if (elapsed < rotationNanos) {
+            return;
+        }
+        final var rotations = elapsed / rotationNanos;
+        if (rotations >= BUFFER_LENGTH) {
+            Arrays.fill(buffers, 0);
+        } else {
+            for (var i = 0; i < rotations; i++) {
+                buffers[current] = 0;
+                current = (current + 1) % BUFFER_LENGTH;
+            }
+        }
+        lastRotation += rotations * rotationNanos;
+    }
+}
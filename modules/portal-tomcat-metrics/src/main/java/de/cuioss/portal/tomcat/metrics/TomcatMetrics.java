@@ -18,9 +18,12 @@ package de.cuioss.portal.tomcat.metrics;
 import static de.cuioss.portal.metrics.RegistryHelper.THREADS_SUFFIX;
 
 import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 
 import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
 import javax.management.ObjectInstance;
 import javax.management.ObjectName;
 
@@ -61,6 +64,26 @@ class TomcatMetrics {
         addRequestProcessorMetrics(registry, micrometerFormat);
     }
 
+    /**
+     * @return the ports of the registered connectors, empty if not running in
+     *         Tomcat
+     */
+    Set<Integer> getConnectorPorts() {
+        final Set<Integer> ports = new TreeSet<>();
+        try {
+            for (final ObjectName objectName : server.queryNames(new ObjectName(JMX_DOMAIN + ":type=Connector,*"),
+                    null)) {
+                final var port = objectName.getKeyProperty("port");
+                if (null != port && port.matches("\\d+")) {
+                    ports.add(Integer.valueOf(port));
+                }
+            }
+        } catch (final MalformedObjectNameException e) {
+            LOGGER.error(ERROR_MSG, e);
+        }
+        return ports;
+    }
+
     private void addSessionMetrics(final MetricRegistry registry, final boolean micrometerFormat) {
         try {
             final var filterName = new ObjectName(JMX_DOMAIN + ":type=Manager,context=*,host=*");
@@ -76,7 +99,7 @@ class TomcatMetrics {
                         new ExtendedMetadataBuilder().withName("tomcat.sessions.active.current.sessions")
                                 .withType(MetricType.GAUGE).withDescription("Number of active sessions at this moment")
                                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                        SafeGauge.intGauge(() -> server.getAttribute(objectName, "activeSessions")), hostTag,
+                        SafeGauge.longGauge(() -> server.getAttribute(objectName, "activeSessions")), hostTag,
                         contextTag);
 
                 registry.register(
@@ -119,7 +142,7 @@ class TomcatMetrics {
                                 .withType(MetricType.GAUGE).withUnit(MetricUnits.SECONDS)
                                 .withDescription("Average time an expired session had been alive")
                                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                        SafeGauge.intGauge(() -> server.getAttribute(objectName, "sessionAverageAliveTime")), hostTag,
+                        SafeGauge.longGauge(() -> server.getAttribute(objectName, "sessionAverageAliveTime")), hostTag,
                         contextTag);
 
                 registry.register(
@@ -127,29 +150,29 @@ class TomcatMetrics {
                                 .withUnit(MetricUnits.SECONDS)
                                 .withDescription("Maximum time an expired session had been alive")
                                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                        SafeGauge.intGauge(() -> server.getAttribute(objectName, "sessionMaxAliveTime")), hostTag,
+                        SafeGauge.longGauge(() -> server.getAttribute(objectName, "sessionMaxAliveTime")), hostTag,
                         contextTag);
 
                 registry.register(
                         new ExtendedMetadataBuilder().withName("tomcat.sessions.expireRate").withType(MetricType.GAUGE)
                                 .withDescription("Session expiration rate in sessions per minute")
                                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                        SafeGauge.intGauge(() -> server.getAttribute(objectName, "sessionExpireRate")), hostTag,
+                        SafeGauge.longGauge(() -> server.getAttribute(objectName, "sessionExpireRate")), hostTag,
                         contextTag);
 
                 registry.register(
                         new ExtendedMetadataBuilder().withName("tomcat.sessions.active.max.sessions")
                                 .withType(MetricType.GAUGE).withDescription("Maximum number of active sessions so far")
                                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                        SafeGauge.intGauge(() -> server.getAttribute(objectName, "maxActive")), hostTag, contextTag);
+                        SafeGauge.longGauge(() -> server.getAttribute(objectName, "maxActive")), hostTag, contextTag);
 
                 registry.register(
                         new ExtendedMetadataBuilder().withName("tomcat.context.state.started")
                                 .withType(MetricType.GAUGE)
                                 .withDescription("Indication if the lifecycle state of this context is STARTED")
                                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                        SafeGauge
-                                .intGauge(() -> server.getAttribute(objectName, "stateName").equals("STARTED") ? 1 : 0),
+                        SafeGauge.longGauge(
+                                () -> server.getAttribute(objectName, "stateName").equals("STARTED") ? 1 : 0),
                         hostTag, contextTag);
             }
         } catch (final Exception e) {
@@ -171,13 +194,13 @@ class TomcatMetrics {
                 registry.register(
                         new ExtendedMetadataBuilder().withName("tomcat.servlet.errorCount").withType(MetricType.GAUGE)
                                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                        SafeGauge.intGauge(() -> server.getAttribute(objectName, "errorCount")),
+                        SafeGauge.longGauge(() -> server.getAttribute(objectName, "errorCount")),
                         new Tag("name", servletName));
 
                 registry.register(
                         new ExtendedMetadataBuilder().withName("tomcat.servlet.requestCount").withType(MetricType.GAUGE)
                                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                        SafeGauge.intGauge(() -> server.getAttribute(objectName, "requestCount")),
+                        SafeGauge.longGauge(() -> server.getAttribute(objectName, "requestCount")),
                         new Tag("name", servletName));
 
                 registry.register(
@@ -254,13 +277,13 @@ class TomcatMetrics {
                         new ExtendedMetadataBuilder().withName("tomcat.global.errorCount").withType(MetricType.GAUGE)
                                 .withDescription("The number of error request served by this request processor")
                                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                        SafeGauge.intGauge(() -> server.getAttribute(objectName, "errorCount")), nameTag);
+                        SafeGauge.longGauge(() -> server.getAttribute(objectName, "errorCount")), nameTag);
 
                 registry.register(
                         new ExtendedMetadataBuilder().withName("tomcat.global.requestCount").withType(MetricType.GAUGE)
                                 .withDescription("The number of requests served by this request processor")
                                 .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                        SafeGauge.intGauge(() -> server.getAttribute(objectName, "requestCount")), nameTag);
+                        SafeGauge.longGauge(() -> server.getAttribute(objectName, "requestCount")), nameTag);
 
                 registry.register(
                         new ExtendedMetadataBuilder().withName("tomcat.global.max").withType(MetricType.GAUGE)
@@ -309,7 +332,7 @@ class TomcatMetrics {
                         .withType(MetricType.GAUGE).withUnit(micrometerFormat ? THREADS_SUFFIX : MetricUnits.NONE)
                         .withDescription("Maximum number of concurrent connections served by this pool.")
                         .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                SafeGauge.intGauge(() -> server.getAttribute(objectName, "maxConnections")), nameTag,
+                SafeGauge.longGauge(() -> server.getAttribute(objectName, "maxConnections")), nameTag,
                 new Tag("pool", threadPoolName));
     }
 
@@ -334,7 +357,7 @@ class TomcatMetrics {
                         .withType(MetricType.GAUGE).withUnit(micrometerFormat ? THREADS_SUFFIX : MetricUnits.NONE)
                         .withDescription("Maximum number of threads allowed in this pool.")
                         .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                SafeGauge.intGauge(() -> server.getAttribute(objectName, "maxThreads")), nameTag);
+                SafeGauge.longGauge(() -> server.getAttribute(objectName, "maxThreads")), nameTag);
     }
 
     private void registerThreadBusy(final MetricRegistry registry, final boolean micrometerFormat,
@@ -345,7 +368,7 @@ class TomcatMetrics {
                         .withType(MetricType.GAUGE).withUnit(micrometerFormat ? THREADS_SUFFIX : MetricUnits.NONE)
                         .withDescription("Number of busy threads in this pool.")
                         .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                SafeGauge.intGauge(() -> server.getAttribute(objectName, "currentThreadsBusy")), nameTag);
+                SafeGauge.longGauge(() -> server.getAttribute(objectName, "currentThreadsBusy")), nameTag);
     }
 
     private void registerThreadCurrent(final MetricRegistry registry, final boolean micrometerFormat,
@@ -356,6 +379,6 @@ class TomcatMetrics {
                         .withType(MetricType.GAUGE).withUnit(micrometerFormat ? THREADS_SUFFIX : MetricUnits.NONE)
                         .withDescription("Number threads in this pool.")
                         .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
-                SafeGauge.intGauge(() -> server.getAttribute(objectName, "currentThreadCount")), nameTag);
+                SafeGauge.longGauge(() -> server.getAttribute(objectName, "currentThreadCount")), nameTag);
     }
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Configuration keys of the Tomcat specific metrics, complementing
+ * {@link de.cuioss.portal.configuration.MetricsConfigKeys}. The defaults are
+ * defined in {@code META-INF/microprofile-config.properties}.
+ */
+@UtilityClass
+public final class TomcatMetricsConfigKeys {
+
+    /**
+     * Default sampling interval in milliseconds of the hot threads endpoint. Can
+     * be overridden per request with the parameter {@code interval}.
+     */
+    public static final String PORTAL_METRICS_HOT_THREADS_INTERVAL = "portal.metrics.hotThreads.interval";
+
+    /**
+     * Default number of threads reported by the hot threads endpoint. Can be
+     * overridden per request with the parameter {@code threads}.
+     */
+    public static final String PORTAL_METRICS_HOT_THREADS_COUNT = "portal.metrics.hotThreads.threads";
+
+    /**
+     * Default number of stack frames per thread reported by the hot threads
+     * endpoint. Can be overridden per request with the parameter {@code frames}.
+     */
+    public static final String PORTAL_METRICS_HOT_THREADS_FRAMES = "portal.metrics.hotThreads.frames";
+
+    /**
+     * Enables the periodic scan for deadlocked and blocked threads, see
+     * {@link ThreadContentionMetrics}. Enabling it enables thread contention
+     * monitoring of the JVM.
+     */
+    public static final String PORTAL_METRICS_THREADS_CONTENTION_ENABLED = "portal.metrics.threads.contention.enabled";
+
+    /**
+     * Interval in seconds between two scans for deadlocked and blocked threads.
+     * {@code 0} disables the scan.
+     */
+    public static final String PORTAL_METRICS_THREADS_CONTENTION_INTERVAL = "portal.metrics.threads.contention.interval";
+
+    /**
+     * Enables the JFR event streaming metrics, see {@link JfrMetrics}. Requires a
+     * JVM with the {@code jdk.jfr} module.
+     */
+    public static final String PORTAL_METRICS_JFR_ENABLED = "portal.metrics.jfr.enabled";
+
+    /**
+     * Threshold in milliseconds below which thread park, monitor enter, socket
+     * and file I/O events are not recorded.
+     */
+    public static final String PORTAL_METRICS_JFR_THRESHOLD = "portal.metrics.jfr.threshold";
+
+    /**
+     * Maximum number of JFR events evaluated per second and event type, further
+     * events are dropped and counted.
+     */
+    public static final String PORTAL_METRICS_JFR_MAX_EVENTS_PER_SECOND = "portal.metrics.jfr.maxEventsPerSecond";
+
+    /**
+     * Enables the aggregation of lock contention hotspots from JFR events, see
+     * {@link LockContentionMetrics}. Only effective if
+     * {@link #PORTAL_METRICS_JFR_ENABLED} is set.
+     */
+    public static final String PORTAL_METRICS_JFR_CONTENTION_ENABLED = "portal.metrics.jfr.contention.enabled";
+
+    /**
+     * Enables the attribution of sampled allocations to request routes, see
+     * {@link AllocationMetrics}. Only effective if
+     * {@link #PORTAL_METRICS_JFR_ENABLED} is set.
+     */
+    public static final String PORTAL_METRICS_JFR_ALLOCATION_ENABLED = "portal.metrics.jfr.allocation.enabled";
+
+    /**
+     * Upper bounds in seconds of the GC pause histogram buckets, separated by
+     * ','. An empty value disables the histogram, see {@link JvmGcMetrics}.
+     */
+    public static final String PORTAL_METRICS_GC_PAUSE_BUCKETS = "portal.metrics.gc.pause.buckets";
+
+    /**
+     * Window in seconds of the maximum GC pause, i.e. how long a pause is
+     * reported as maximum at least.
+     */
+    public static final String PORTAL_METRICS_GC_PAUSE_MAX_WINDOW = "portal.metrics.gc.pause.maxWindow";
+
+    /**
+     * Sliding window in seconds of the GC overhead {@code jvm.gc.overhead}.
+     */
+    public static final String PORTAL_METRICS_GC_OVERHEAD_WINDOW = "portal.metrics.gc.overhead.window";
+
+    /**
+     * Whether concurrent GC phases count as GC overhead, too. By default only
+     * pauses are considered.
+     */
+    public static final String PORTAL_METRICS_GC_OVERHEAD_CONCURRENT = "portal.metrics.gc.overhead.concurrent";
+
+    /**
+     * Ratio of the maximum of a heap pool to be set as its usage threshold, see
+     * {@link MemoryPressureMetrics}. Values outside (0, 1] are ignored.
+     */
+    public static final String PORTAL_METRICS_MEMORY_USAGE_THRESHOLD = "portal.metrics.memory.usageThreshold";
+
+    /**
+     * Ratio of the maximum of a heap pool to be set as its collection usage
+     * threshold, see {@link MemoryPressureMetrics}. Values outside (0, 1] are
+     * ignored.
+     */
+    public static final String PORTAL_METRICS_MEMORY_COLLECTION_THRESHOLD = "portal.metrics.memory.collectionThreshold";
+
+    /**
+     * Whether to register the container resource metrics read from the cgroup file
+     * system, see {@link CgroupMetrics}.
+     */
+    public static final String PORTAL_METRICS_CGROUP_ENABLED = "portal.metrics.cgroup.enabled";
+
+    /**
+     * Sliding window in seconds of the per-second rates of {@link ProcessIoMetrics}.
+     */
+    public static final String PORTAL_METRICS_IO_RATE_WINDOW = "portal.metrics.io.rateWindow";
+
+    /**
+     * Interval in seconds of executing the native memory tracking summary, see
+     * {@link NativeMemoryMetrics}. Only used if the JVM runs with
+     * {@code -XX:NativeMemoryTracking=summary}. {@code 0} disables the
+     * native memory metrics.
+     */
+    public static final String PORTAL_METRICS_NMT_INTERVAL = "portal.metrics.nmt.interval";
+
+    /**
+     * Whether to count started and ended virtual threads, see
+     * {@link VirtualThreadMetrics}. Requires {@link #PORTAL_METRICS_JFR_ENABLED}.
+     */
+    public static final String PORTAL_METRICS_JFR_VIRTUAL_THREADS_LIFECYCLE = "portal.metrics.jfr.virtualThreads.lifecycle";
+
+    /**
+     * Interval in seconds of classifying the open file descriptors by type, see
+     * {@link FileDescriptorMetrics}. {@code 0} disables the classification.
+     */
+    public static final String PORTAL_METRICS_FILES_TYPES_INTERVAL = "portal.metrics.files.types.interval";
+
+    /**
+     * Paths whose disk space is metered in addition to {@code user.dir}, separated
+     * by ','. Paths on the same file store are metered once, see
+     * {@link DiskSpaceMetrics}.
+     */
+    public static final String PORTAL_METRICS_DISK_PATHS = "portal.metrics.disk.paths";
+
+    /**
+     * Sliding window in seconds of the disk fill rate, see {@link DiskSpaceMetrics}.
+     */
+    public static final String PORTAL_METRICS_DISK_RATE_WINDOW = "portal.metrics.disk.rateWindow";
+
+    /**
+     * Interval in seconds of counting the TCP sockets of the connector ports, see
+     * {@link TcpMetrics}. {@code 0} disables the counting. Requires
+     * {@code portal.metrics.tomcat.enabled}.
+     */
+    public static final String PORTAL_METRICS_TCP_INTERVAL = "portal.metrics.tcp.interval";
+
+    /**
+     * Length in seconds of the window the growth rate of the buffer pools is
+     * computed over, see {@link BufferPoolMetrics}.
+     */
+    public static final String PORTAL_METRICS_BUFFER_RATE_WINDOW = "portal.metrics.buffer.rateWindow";
+
+    /**
+     * Ratio of {@code -XX:MaxDirectMemorySize} whose excess by the direct buffers
+     * is counted, see {@link BufferPoolMetrics}.
+     */
+    public static final String PORTAL_METRICS_BUFFER_DIRECT_THRESHOLD = "portal.metrics.buffer.direct.threshold";
+
+    /**
+     * Interval in seconds of discovering stopped webapp class loaders not being
+     * collected, see {@link WebappClassLoaderMetrics}. {@code 0} disables the
+     * detection. Requires {@code portal.metrics.tomcat.enabled}.
+     */
+    public static final String PORTAL_METRICS_WEBAPP_CLASSLOADERS_INTERVAL = "portal.metrics.webapp.classloaders.interval";
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded aggregation of weights per key, keeping track of the heaviest keys
+ * only (Space-Saving algorithm). If the capacity is exhausted, the key with the
+ * lowest weight is evicted and its weight is inherited by the new key as
+ * {@link Entry#error()}. Thereby the weight of a key is over-estimated by at
+ * most its error, while keys heavier than the total weight divided by the
+ * capacity are guaranteed to be tracked.
+ *
+ * @param <K> type of the key, must implement {@link Object#equals(Object)} and
+ *        {@link Object#hashCode()}
+ */
+final class TopK<K> {
+
+    private final int capacity;
+    private final Map<K, Counter> counters;
+
+    TopK(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * @param key    to be accounted
+     * @param weight to be added to the key
+     */
+    synchronized void add(final K key, final long weight) {
+        var counter = counters.get(key);
+        if (null == counter) {
+            counter = new Counter();
+            if (counters.size() >= capacity) {
+                final var evicted = evictMinimum();
+                counter.weight = evicted.weight;
+                counter.error = evicted.weight;
+            }
+            counters.put(key, counter);
+        }
+        counter.weight += weight;
+        counter.count++;
+    }
+
+    private Counter evictMinimum() {
+        Map.Entry<K, Counter> minimum = null;
+        for (final Map.Entry<K, Counter> entry : counters.entrySet()) {
+            if (null == minimum || entry.getValue().weight < minimum.getValue().weight) {
+                minimum = entry;
+            }
+        }
+        // capacity is positive, so there is at least one entry
+        counters.remove(minimum.getKey());
+        return minimum.getValue();
+    }
+
+    /**
+     * @param limit maximum number of entries to be returned
+     *
+     * @return snapshot of the heaviest entries, in descending order of weight
+     */
+    synchronized List<Entry<K>> top(final int limit) {
+        final List<Entry<K>> result = new ArrayList<>(counters.size());
+        counters.forEach((key, counter) -> result.add(new Entry<>(key, counter.weight, counter.count, counter.error)));
+        result.sort(Comparator.comparingLong(Entry<K>::weight).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, Math.max(0, limit))) : result;
+    }
+
+    synchronized void clear() {
+        counters.clear();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Snapshot of a tracked key.
+     *
+     * @param key    the key
+     * @param weight accumulated weight, over-estimated by at most {@code error}
+     * @param count  number of additions since the key is tracked
+     * @param error  weight inherited from the evicted key
+     * @param <K>    type of the key
+     */
+    record Entry<K>(K key, long weight, long count, long error) {
+    }
+
+    private static final class Counter {
+
+        private long weight;
+        private long count;
+        private long error;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+
+/**
+ * Virtual thread metrics, as {@link ThreadMetrics} only covers platform
+ * threads. Each metric is only registered if the running JVM knows the
+ * corresponding JFR event type or scheduler MBean, so nothing is exported on
+ * JVMs not supporting virtual threads:
+ * <ul>
+ * <li>{@code jvm.threads.virtual.pinned}: histogram of the time virtual
+ * threads were pinned to their carrier thread, exceeding the JFR threshold, in
+ * microseconds. The pinning frames are aggregated by
+ * {@link LockContentionMetrics}</li>
+ * <li>{@code jvm.threads.virtual.submit.failed}: number of virtual threads that
+ * could not be scheduled</li>
+ * <li>{@code jvm.threads.virtual.started} and
+ * {@code jvm.threads.virtual.ended}: only if the lifecycle events are
+ * enabled, as recording them is costly for short-lived virtual threads</li>
+ * <li>{@code jvm.threads.virtual.scheduler.parallelism},
+ * {@code jvm.threads.virtual.scheduler.pool.size},
+ * {@code jvm.threads.virtual.mounted} and {@code jvm.threads.virtual.queued}:
+ * from the virtual thread scheduler MBean</li>
+ * </ul>
+ */
+final class VirtualThreadMetrics {
+
+    static final String VIRTUAL_THREAD_START = "jdk.VirtualThreadStart";
+    static final String VIRTUAL_THREAD_END = "jdk.VirtualThreadEnd";
+    static final String VIRTUAL_THREAD_PINNED = "jdk.VirtualThreadPinned";
+    static final String VIRTUAL_THREAD_SUBMIT_FAILED = "jdk.VirtualThreadSubmitFailed";
+
+    static final String SCHEDULER_OBJECT_NAME = "jdk.management:type=VirtualThreadScheduler";
+
+    private final boolean micrometerFormat;
+
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong ended = new AtomicLong();
+    private final AtomicLong submitFailed = new AtomicLong();
+
+    /**
+     * @param micrometerFormat whether to skip the scope in the OpenMetrics
+     *                         export
+     */
+    VirtualThreadMetrics(final boolean micrometerFormat) {
+        this.micrometerFormat = micrometerFormat;
+    }
+
+    /**
+     * Registers the gauges of the virtual thread scheduler MBean, if available.
+     *
+     * @param registry to be bound to
+     * @param server   providing the scheduler MBean
+     */
+    void bindTo(final MetricRegistry registry, final MBeanServer server) {
+        requireNonNull(registry);
+
+        final ObjectName objectName;
+        try {
+            objectName = new ObjectName(SCHEDULER_OBJECT_NAME);
+        } catch (final MalformedObjectNameException e) {
+            throw new IllegalStateException(e);
+        }
+        if (!server.isRegistered(objectName)) {
+            return;
+        }
+        registerGauge(registry, "jvm.threads.virtual.scheduler.parallelism",
+                "Target parallelism of the virtual thread scheduler", server, objectName, "Parallelism");
+        registerGauge(registry, "jvm.threads.virtual.scheduler.pool.size",
+                "Number of carrier threads of the virtual thread scheduler", server, objectName, "PoolSize");
+        registerGauge(registry, "jvm.threads.virtual.mounted", "Number of virtual threads mounted on a carrier",
+                server, objectName, "MountedVirtualThreadCount");
+        registerGauge(registry, "jvm.threads.virtual.queued", "Number of virtual threads queued to the scheduler",
+                server, objectName, "QueuedVirtualThreadCount");
+    }
+
+    private void registerGauge(final MetricRegistry registry, final String name, final String description,
+            final MBeanServer server, final ObjectName objectName, final String attribute) {
+        registry.register(new ExtendedMetadataBuilder().withName(name).withType(MetricType.GAUGE)
+                .withDescription(description).skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                SafeGauge.longGauge(() -> server.getAttribute(objectName, attribute)));
+    }
+
+    /**
+     * Subscribes to the virtual thread JFR events known to the running JVM.
+     *
+     * @param registry   to be bound to
+     * @param jfrMetrics to subscribe to
+     * @param lifecycle  whether to count started and ended virtual threads
+     */
+    void bindTo(final MetricRegistry registry, final JfrMetrics jfrMetrics, final boolean lifecycle) {
+        bindTo(registry, jfrMetrics, lifecycle, JfrMetrics::hasEventType);
+    }
+
+    /**
+     * @param registry   to be bound to
+     * @param jfrMetrics to subscribe to
+     * @param lifecycle  whether to count started and ended virtual threads
+     * @param eventTypes tells whether a JFR event type is known
+     */
+    void bindTo(final MetricRegistry registry, final JfrMetrics jfrMetrics, final boolean lifecycle,
+            final Predicate<String> eventTypes) {
+        requireNonNull(registry);
+
+        if (eventTypes.test(VIRTUAL_THREAD_PINNED)) {
+            bindPinned(registry, jfrMetrics);
+        }
+        if (eventTypes.test(VIRTUAL_THREAD_SUBMIT_FAILED)) {
+            registerCounter(registry, "jvm.threads.virtual.submit.failed",
+                    "Number of virtual threads failed to schedule", submitFailed);
+            jfrMetrics.count(VIRTUAL_THREAD_SUBMIT_FAILED, Duration.ZERO, submitFailed);
+        }
+        if (lifecycle && eventTypes.test(VIRTUAL_THREAD_START) && eventTypes.test(VIRTUAL_THREAD_END)) {
+            registerCounter(registry, "jvm.threads.virtual.started", "Number of started virtual threads", started);
+            registerCounter(registry, "jvm.threads.virtual.ended", "Number of ended virtual threads", ended);
+            jfrMetrics.count(VIRTUAL_THREAD_START, Duration.ZERO, started);
+            jfrMetrics.count(VIRTUAL_THREAD_END, Duration.ZERO, ended);
+        }
+    }
+
+    private void bindPinned(final MetricRegistry registry, final JfrMetrics jfrMetrics) {
+        final var pinned = registry.histogram(new ExtendedMetadataBuilder().withName("jvm.threads.virtual.pinned")
+                .withType(MetricType.HISTOGRAM).withUnit(MetricUnits.MICROSECONDS)
+                .withDescription("Time virtual threads have been pinned to their carrier thread")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build());
+        jfrMetrics.subscribe(VIRTUAL_THREAD_PINNED, jfrMetrics.getThreshold(), false,
+                event -> pinned.update(TimeUnit.NANOSECONDS.toMicros(event.getDuration().toNanos())));
+    }
+
+    private void registerCounter(final MetricRegistry registry, final String name, final String description,
+            final AtomicLong count) {
+        CumulativeCounter.register(registry, micrometerFormat, name, MetricUnits.NONE, description, count::get);
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.MalformedObjectNameException;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import de.cuioss.tools.logging.CuiLogger;
+import io.smallrye.metrics.ExtendedMetadataBuilder;
+
+/**
+ * Detects webapp class loaders being leaked by redeploys:
+ * <ul>
+ * <li>{@code tomcat.webapp.classloaders.stopped}: number of stopped webapp
+ * class loaders not being garbage collected yet. A value staying above 0 after
+ * full GCs indicates a leak</li>
+ * <li>{@code tomcat.webapp.redeploys{context}}: number of redeploys per
+ * context</li>
+ * <li>{@code tomcat.webapp.redeploy.metaspace.growth{context}}: growth of the
+ * used metaspace since the first deployment of the webapp containing this
+ * module divided by its number of redeploys, i.e. roughly the classes of the
+ * webapp if its class loader leaks</li>
+ * </ul>
+ * Webapp class loaders are discovered when their MBean registers, including
+ * the ones registered before binding, by resolving the {@code loader}
+ * attribute of the corresponding {@code WebModule} MBean. So a loader is
+ * tracked independent of the path it is leaked by, e.g. statics, thread
+ * locals, JDBC drivers or timers. Context class loaders of the running threads
+ * and the class loader of this module are tracked as well. Loaders are only
+ * held by {@link WeakReference}s and their lifecycle state is read via the
+ * public {@code getStateName()} of Tomcat's {@code WebappClassLoaderBase}, so
+ * there is no dependency to Catalina.
+ * Redeploys of other contexts are derived from an unregistration followed by a
+ * registration of the class loader MBean of the same context and are only kept
+ * by this instance. As the metrics are rebound on the redeploy of the webapp
+ * containing this module, its own metaspace baseline and number of redeploys
+ * are kept as system properties scoped by its context name, so that several
+ * webapps bundling this module do not share them.
+ */
+final class WebappClassLoaderMetrics implements Closeable {
+
+    private static final CuiLogger LOGGER = new CuiLogger(WebappClassLoaderMetrics.class);
+
+    static final String METASPACE_BASELINE_PROPERTY = "portal.metrics.webapp.metaspace.baseline";
+    static final String REDEPLOYS_PROPERTY = "portal.metrics.webapp.redeploys";
+
+    private static final String CONTEXT_TAG = "context";
+    private static final String LOADER_PATTERN = "Catalina:type=*WebappClassLoader,*";
+    private static final Set<String> STOPPED_STATES = Set.of("STOPPING", "STOPPED", "DESTROYING", "DESTROYED");
+
+    private final MBeanServer server;
+    private final LongSupplier metaspaceUsed;
+    private final boolean micrometerFormat;
+    private final String ownContext;
+    private final List<WeakReference<ClassLoader>> loaders = new ArrayList<>();
+    // keyed by the loader classes provided by the container, guarded by this
+    private final Map<Class<?>, Optional<Method>> stateMethods = new HashMap<>();
+    private final Set<String> stoppedContexts = new HashSet<>();
+    private final Map<String, AtomicLong> redeploys = new ConcurrentHashMap<>();
+    private final NotificationListener listener = this::handleNotification;
+
+    private MetricRegistry registry;
+    private ObjectName loaderPattern;
+    private volatile int stoppedLoaders;
+
+    /**
+     * @param server           emitting the registration of the class loader
+     *                         MBeans
+     * @param metaspaceUsed    usually {@link #metaspaceUsed()}
+     * @param micrometerFormat whether to skip the scope in the OpenMetrics
+     *                         export
+     */
+    WebappClassLoaderMetrics(final MBeanServer server, final LongSupplier metaspaceUsed,
+            final boolean micrometerFormat) {
+        this(server, metaspaceUsed, WebappClassLoaderMetrics.class.getClassLoader(), micrometerFormat);
+    }
+
+    /**
+     * @param server           emitting the registration of the class loader
+     *                         MBeans
+     * @param metaspaceUsed    usually {@link #metaspaceUsed()}
+     * @param ownLoader        the class loader of the webapp containing this
+     *                         module, no own redeploys are counted if it is no
+     *                         webapp class loader
+     * @param micrometerFormat whether to skip the scope in the OpenMetrics
+     *                         export
+     */
+    WebappClassLoaderMetrics(final MBeanServer server, final LongSupplier metaspaceUsed, final ClassLoader ownLoader,
+            final boolean micrometerFormat) {
+        this.server = requireNonNull(server);
+        this.metaspaceUsed = requireNonNull(metaspaceUsed);
+        this.micrometerFormat = micrometerFormat;
+        ownContext = contextName(ownLoader);
+        track(ownLoader);
+    }
+
+    /**
+     * @return the used metaspace in bytes, -1 if there is no metaspace pool
+     */
+    static long metaspaceUsed() {
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if ("Metaspace".equals(pool.getName())) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param loader to be asked for its context
+     * @return the context name of the given webapp class loader as used by the
+     *         class loader MBean, i.e. starting with a slash, {@code null} if it
+     *         is no webapp class loader
+     */
+    static String contextName(final ClassLoader loader) {
+        if (!isWebappClassLoader(loader)) {
+            return null;
+        }
+        try {
+            final var name = String.valueOf(loader.getClass().getMethod("getContextName").invoke(loader));
+            return name.startsWith("/") ? name : "/" + name;
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            LOGGER.debug("Could not read the context name of the class loader: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param registry        to be bound to
+     * @param scheduler       discovering the class loaders
+     * @param intervalSeconds between two discoveries
+     */
+    void bindTo(final MetricRegistry registry, final MetricsScheduler scheduler, final long intervalSeconds) {
+        this.registry = requireNonNull(registry);
+        requireNonNull(scheduler);
+
+        if (null != ownContext) {
+            bindOwnContext();
+        }
+        try {
+            loaderPattern = new ObjectName(LOADER_PATTERN);
+            server.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, listener,
+                    notification -> notification instanceof MBeanServerNotification, null);
+            server.queryNames(loaderPattern, null).forEach(this::trackRegistered);
+        } catch (final MalformedObjectNameException | InstanceNotFoundException e) {
+            LOGGER.debug("Could not listen to class loader registrations: {}", e.getMessage());
+        }
+
+        registry.register(new ExtendedMetadataBuilder().withName("tomcat.webapp.classloaders.stopped")
+                .withType(MetricType.GAUGE)
+                .withDescription("Number of stopped webapp class loaders not being garbage collected yet")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(), (LongGauge) () -> stoppedLoaders);
+        scheduler.schedule("webapp class loaders", this::scan, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private void bindOwnContext() {
+        final var baselineProperty = scoped(METASPACE_BASELINE_PROPERTY, ownContext);
+        if (null == System.getProperty(baselineProperty)) {
+            System.setProperty(baselineProperty, String.valueOf(metaspaceUsed.getAsLong()));
+        } else {
+            // the webapp containing this module has been redeployed, its listener was already removed
+            final var redeploysProperty = scoped(REDEPLOYS_PROPERTY, ownContext);
+            System.setProperty(redeploysProperty, String.valueOf(Long.getLong(redeploysProperty, 0L) + 1));
+        }
+        registry.register(redeploysMetadata(), new GetCountOnlyCounter() {
+
+            @Override
+            public long getCount() {
+                return getOwnRedeploys();
+            }
+        }, new Tag(CONTEXT_TAG, ownContext));
+        registry.register(new ExtendedMetadataBuilder().withName("tomcat.webapp.redeploy.metaspace.growth")
+                .withType(MetricType.GAUGE).withUnit(MetricUnits.BYTES)
+                .withDescription("Growth of the used metaspace since the first deployment per redeploy, "
+                        + "NaN before the first redeploy")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat).build(),
+                (DoubleGauge) this::getMetaspaceGrowthPerRedeploy, new Tag(CONTEXT_TAG, ownContext));
+    }
+
+    private Metadata redeploysMetadata() {
+        return new ExtendedMetadataBuilder().withName("tomcat.webapp.redeploys").withType(MetricType.COUNTER)
+                .withDescription("Number of webapp redeploys per context")
+                .skipsScopeInOpenMetricsExportCompletely(micrometerFormat)
+                .withOpenMetricsKeyOverride(micrometerFormat ? "tomcat_webapp_redeploys_total" : null).build();
+    }
+
+    static String scoped(final String property, final String context) {
+        return property + "[" + context + "]";
+    }
+
+    void handleNotification(final Notification notification, final Object handback) {
+        final var name = ((MBeanServerNotification) notification).getMBeanName();
+        final var context = name.getKeyProperty(CONTEXT_TAG);
+        if (null == loaderPattern || !loaderPattern.apply(name) || null == context) {
+            return;
+        }
+        if (MBeanServerNotification.REGISTRATION_NOTIFICATION.equals(notification.getType())) {
+            trackRegistered(name);
+        }
+        // redeploys of the own context are counted on rebinding
+        if (context.equals(ownContext)) {
+            return;
+        }
+        final var key = name.getKeyProperty("host") + context;
+        final boolean redeployed;
+        synchronized (stoppedContexts) {
+            if (MBeanServerNotification.UNREGISTRATION_NOTIFICATION.equals(notification.getType())) {
+                stoppedContexts.add(key);
+                return;
+            }
+            redeployed = MBeanServerNotification.REGISTRATION_NOTIFICATION.equals(notification.getType())
+                    && stoppedContexts.remove(key);
+        }
+        if (redeployed) {
+            LOGGER.debug("Redeploy of context '{}'", key);
+            redeploys.computeIfAbsent(context, this::registerRedeploys).incrementAndGet();
+        }
+    }
+
+    private AtomicLong registerRedeploys(final String context) {
+        final var count = new AtomicLong();
+        registry.register(redeploysMetadata(), new GetCountOnlyCounter() {
+
+            @Override
+            public long getCount() {
+                return count.get();
+            }
+        }, new Tag(CONTEXT_TAG, context));
+        return count;
+    }
+
+    /**
+     * Tracks the class loader registered under the given MBean name. As the
+     * MBean of the class loader does not expose the instance, it is resolved
+     * via the {@code loader} attribute of the {@code WebModule} MBean of the same
+     * host and context, which is registered before the class loader is started.
+     *
+     * @param loaderName name of the class loader MBean
+     */
+    private void trackRegistered(final ObjectName loaderName) {
+        try {
+            final var webModules = new ObjectName(loaderName.getDomain() + ":j2eeType=WebModule,name=//"
+                    + loaderName.getKeyProperty("host") + loaderName.getKeyProperty(CONTEXT_TAG) + ",*");
+            for (final ObjectName webModule : server.queryNames(webModules, null)) {
+                final var loader = server.getAttribute(webModule, "loader");
+                final var classLoader = loader.getClass().getMethod("getClassLoader").invoke(loader);
+                if (classLoader instanceof ClassLoader) {
+                    track((ClassLoader) classLoader);
+                }
+            }
+        } catch (final JMException | ReflectiveOperationException | RuntimeException e) {
+            LOGGER.debug("Could not resolve the class loader of '{}': {}", loaderName, e.getMessage());
+        }
+    }
+
+    /**
+     * Tracks the webapp class loaders of the running threads and counts the
+     * stopped ones.
+     */
+    synchronized void scan() {
+        var group = Thread.currentThread().getThreadGroup();
+        while (null != group.getParent()) {
+            group = group.getParent();
+        }
+        final var threads = new Thread[group.activeCount() * 2 + 16];
+        final var count = group.enumerate(threads, true);
+        for (var i = 0; i < count; i++) {
+            track(threads[i].getContextClassLoader());
+        }
+
+        var stopped = 0;
+        final var iterator = loaders.iterator();
+        while (iterator.hasNext()) {
+            final var loader = iterator.next().get();
+            if (null == loader) {
+                iterator.remove();
+            } else if (isStopped(loader)) {
+                stopped++;
+            }
+        }
+        stoppedLoaders = stopped;
+    }
+
+    /**
+     * @param loader to be tracked weakly, ignored if it is not a webapp class
+     *               loader or already tracked
+     */
+    synchronized void track(final ClassLoader loader) {
+        if (!isWebappClassLoader(loader)) {
+            return;
+        }
+        for (final WeakReference<ClassLoader> reference : loaders) {
+            if (reference.get() == loader) {
+                return;
+            }
+        }
+        loaders.add(new WeakReference<>(loader));
+    }
+
+    static boolean isWebappClassLoader(final ClassLoader loader) {
+        if (null == loader) {
+            return false;
+        }
+        for (Class<?> type = loader.getClass(); null != type; type = type.getSuperclass()) {
+            if (type.getSimpleName().contains("WebappClassLoader")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isStopped(final ClassLoader loader) {
+        final var stateMethod = stateMethods.computeIfAbsent(loader.getClass(), type -> {
+            try {
+                return Optional.of(type.getMethod("getStateName"));
+            } catch (final NoSuchMethodException e) {
+                LOGGER.debug("Class loader {} provides no state", type.getName());
+                return Optional.empty();
+            }
+        });
+        if (stateMethod.isEmpty()) {
+            return false;
+        }
+        try {
+            return STOPPED_STATES.contains(String.valueOf(stateMethod.get().invoke(loader)));
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            LOGGER.trace("Could not read the state of the class loader", e);
+            return false;
+        }
+    }
+
+    int getStoppedLoaders() {
+        return stoppedLoaders;
+    }
+
+    /**
+     * @return the number of redeploys of the webapp containing this module
+     */
+    long getOwnRedeploys() {
+        return null == ownContext ? 0 : Long.getLong(scoped(REDEPLOYS_PROPERTY, ownContext), 0L);
+    }
+
+    /**
+     * @param context as named by the class loader MBean
+     * @return the number of redeploys of the given other context observed by
+     *         this instance
+     */
+    long getRedeploys(final String context) {
+        final var count = redeploys.get(context);
+        return null == count ? 0 : count.get();
+    }
+
+    double getMetaspaceGrowthPerRedeploy() {
+        final var ownRedeploys = getOwnRedeploys();
+        final var baseline = null == ownContext ? -1L
+                : Long.getLong(scoped(METASPACE_BASELINE_PROPERTY, ownContext), -1L);
+        final var used = metaspaceUsed.getAsLong();
+        if (0 == ownRedeploys || baseline < 0 || used < 0) {
+            return Double.NaN;
+        }
+        return (double) (used - baseline) / ownRedeploys;
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, listener);
+        } catch (final InstanceNotFoundException | ListenerNotFoundException e) {
+            LOGGER.trace("Could not remove class loader registration listener", e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+import de.cuioss.portal.tomcat.metrics.RouteTracker.Route;
+
+class AllocationMetricsTest {
+
+    private MetricRegistry registry;
+    private MetricsScheduler scheduler;
+    private JfrMetrics jfrMetrics;
+    private AllocationMetrics underTest;
+
+    @BeforeEach
+    void bind() {
+        registry = new PortalTestMetricRegistry();
+        scheduler = new MetricsScheduler();
+        jfrMetrics = new JfrMetrics(true, Duration.ofMillis(10), 100);
+        underTest = new AllocationMetrics(ManagementFactory.getThreadMXBean(), true);
+        underTest.bindTo(registry, jfrMetrics, scheduler);
+    }
+
+    @AfterEach
+    void close() {
+        underTest.close();
+        jfrMetrics.close();
+        scheduler.close();
+    }
+
+    @Test
+    void shouldEnableRouteTracking() {
+        assertTrue(RouteTracker.isEnabled());
+        underTest.close();
+        assertFalse(RouteTracker.isEnabled());
+    }
+
+    @Test
+    void shouldAccumulatePerRouteAndClass() {
+        final var route = new Route("/app", "foo");
+        underTest.record(route, "byte[]", 100);
+        underTest.record(route, "byte[]", 50);
+        underTest.record(route, "java.lang.String", 10);
+
+        assertEquals(160, registry.getCounters()
+                .get(new MetricID("jvm.jfr.allocation.route", new Tag("context", "/app"), new Tag("name", "foo")))
+                .getCount());
+        assertEquals(150, registry.getCounters().get(new MetricID("jvm.jfr.allocation.route.class",
+                new Tag("context", "/app"), new Tag("name", "foo"), new Tag("class", "byte[]"))).getCount());
+    }
+
+    @Test
+    void shouldBoundRoutes() {
+        for (var i = 0; i < AllocationMetrics.MAX_ROUTES + 10; i++) {
+            underTest.record(new Route("/app", "route" + i), "byte[]", 1);
+        }
+
+        final var routes = registry.getCounters().keySet().stream()
+                .filter(id -> "jvm.jfr.allocation.route".equals(id.getName())).count();
+        assertEquals(AllocationMetrics.MAX_ROUTES + 1, routes);
+        assertEquals(10, registry.getCounters().get(new MetricID("jvm.jfr.allocation.route",
+                new Tag("context", AllocationMetrics.OTHER), new Tag("name", AllocationMetrics.OTHER))).getCount());
+    }
+}
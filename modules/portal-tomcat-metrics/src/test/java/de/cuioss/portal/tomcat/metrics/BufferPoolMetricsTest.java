@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class BufferPoolMetricsTest {
+
+    private final MetricRegistry registry = new PortalTestMetricRegistry();
+
+    private final MetricsScheduler scheduler = new MetricsScheduler();
+
+    private final AtomicLong directUsed = new AtomicLong(100);
+
+    @AfterEach
+    void closeScheduler() {
+        scheduler.close();
+    }
+
+    @Test
+    void shouldRegisterMetrics() {
+        new BufferPoolMetrics(List.of(pool("direct", directUsed), pool("mapped", new AtomicLong())), 1000, false)
+                .bindTo(registry, scheduler, 60, 0.9);
+
+        assertTrue(registry.getGauges()
+                .containsKey(new MetricID("jvm.buffer.memory.growth.rate", new Tag("id", "direct"))));
+        assertTrue(registry.getGauges()
+                .containsKey(new MetricID("jvm.buffer.memory.growth.rate", new Tag("id", "mapped"))));
+        assertEquals(1000L, registry.getGauges().get(new MetricID("jvm.buffer.direct.max")).getValue());
+        assertEquals(0.1, (Double) registry.getGauges().get(new MetricID("jvm.buffer.direct.usage")).getValue(),
+                0.001);
+    }
+
+    @Test
+    void shouldCountThresholdCrossings() {
+        final var underTest = new BufferPoolMetrics(List.of(pool("direct", directUsed)), 1000, false);
+        underTest.bindTo(registry, scheduler, 60, 0.9);
+        final var crossings = registry.getCounters().get(new MetricID("jvm.buffer.direct.threshold.exceeded"));
+
+        directUsed.set(950);
+        underTest.sample();
+        underTest.sample();
+        assertEquals(1, crossings.getCount());
+
+        directUsed.set(500);
+        underTest.sample();
+        directUsed.set(901);
+        underTest.sample();
+        assertEquals(2, crossings.getCount());
+    }
+
+    @Test
+    void shouldSkipDirectMetricsWithoutMaximum() {
+        new BufferPoolMetrics(List.of(pool("direct", directUsed)), -1, false).bindTo(registry, scheduler, 60, 0.9);
+
+        assertFalse(registry.getGauges().containsKey(new MetricID("jvm.buffer.direct.usage")));
+        assertFalse(registry.getCounters().containsKey(new MetricID("jvm.buffer.direct.threshold.exceeded")));
+    }
+
+    @Test
+    void shouldDetermineMaxDirectMemory() {
+        final var max = BufferPoolMetrics.maxDirectMemory();
+        if (null != ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class)) {
+            assertTrue(max > 0);
+        }
+    }
+
+    private static BufferPoolMXBean pool(final String name, final AtomicLong used) {
+        return new BufferPoolMXBean() {
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public long getCount() {
+                return 1;
+            }
+
+            @Override
+            public long getTotalCapacity() {
+                return used.get();
+            }
+
+            @Override
+            public long getMemoryUsed() {
+                return used.get();
+            }
+
+            @Override
+            public ObjectName getObjectName() {
+                return null;
+            }
+        };
+    }
+}
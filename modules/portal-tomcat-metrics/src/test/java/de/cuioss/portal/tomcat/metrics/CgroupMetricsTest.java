@@ -0,0 +1,135 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+import io.smallrye.metrics.MetricsRegistryImpl;
+
+class CgroupMetricsTest {
+
+    @TempDir
+    Path root;
+
+    private final MetricRegistry registry = new PortalTestMetricRegistry();
+
+    private void write(final String file, final String content) throws IOException {
+        final var path = root.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+    }
+
+    private void writeUnifiedHierarchy() throws IOException {
+        write("cgroup.controllers", "cpu memory\n");
+        write("cpu.stat", "usage_usec 100\nnr_periods 50\nnr_throttled 7\nthrottled_usec 3000\n");
+        write("cpu.max", "150000 100000\n");
+        write("memory.current", "1048576\n");
+        write("memory.max", "max\n");
+        write("memory.events", "low 0\nhigh 3\nmax 2\noom 1\noom_kill 1\n");
+        write("memory.pressure", "some avg10=0.00 avg60=0.00 avg300=0.00 total=4711\n"
+                + "full avg10=0.00 avg60=0.00 avg300=0.00 total=42\n");
+    }
+
+    @Test
+    void shouldReadUnifiedHierarchy() throws IOException {
+        writeUnifiedHierarchy();
+
+        try (var underTest = new CgroupMetrics(root, false)) {
+            assertTrue(underTest.isUnified());
+            underTest.bindTo(registry);
+
+            assertEquals(50, registry.getCounters().get(new MetricID("container.cpu.periods")).getCount());
+            assertEquals(7, registry.getCounters().get(new MetricID("container.cpu.throttled.periods")).getCount());
+            assertEquals(3000, registry.getCounters().get(new MetricID("container.cpu.throttled.time")).getCount());
+            assertEquals(1.5, registry.getGauges().get(new MetricID("container.cpu.quota")).getValue());
+            assertEquals(1048576L, registry.getGauges().get(new MetricID("container.memory.usage")).getValue());
+            assertEquals(-1L, registry.getGauges().get(new MetricID("container.memory.limit")).getValue());
+            assertEquals(3, registry.getCounters()
+                    .get(new MetricID("container.memory.events", new Tag("type", "high"))).getCount());
+            assertEquals(1, registry.getCounters()
+                    .get(new MetricID("container.memory.events", new Tag("type", "oom_kill"))).getCount());
+            assertEquals(4711, registry.getCounters()
+                    .get(new MetricID("container.memory.pressure.stalled", new Tag("kind", "some"))).getCount());
+            assertEquals(42, registry.getCounters()
+                    .get(new MetricID("container.memory.pressure.stalled", new Tag("kind", "full"))).getCount());
+        }
+    }
+
+    @Test
+    void shouldRegisterConsistentMetadata() throws IOException {
+        writeUnifiedHierarchy();
+
+        for (final boolean micrometerFormat : new boolean[] { false, true }) {
+            // in contrast to the test registry, the SmallRye registry rejects differing metadata per name
+            final MetricRegistry smallRyeRegistry = new MetricsRegistryImpl(MetricRegistry.Type.BASE);
+            try (var underTest = new CgroupMetrics(root, micrometerFormat)) {
+                assertDoesNotThrow(() -> underTest.bindTo(smallRyeRegistry));
+            }
+            assertEquals(2, smallRyeRegistry.getCounters().keySet().stream()
+                    .filter(id -> "container.memory.pressure.stalled".equals(id.getName())).count());
+        }
+    }
+
+    @Test
+    void shouldReadLegacyHierarchy() throws IOException {
+        write("cpu/cpu.stat", "nr_periods 10\nnr_throttled 2\nthrottled_time 5000000\n");
+        write("cpu/cpu.cfs_quota_us", "-1\n");
+        write("cpu/cpu.cfs_period_us", "100000\n");
+        write("memory/memory.usage_in_bytes", "2048\n");
+        write("memory/memory.limit_in_bytes", "9223372036854771712\n");
+        write("memory/memory.failcnt", "4\n");
+
+        try (var underTest = new CgroupMetrics(root, false)) {
+            assertFalse(underTest.isUnified());
+            underTest.bindTo(registry);
+
+            assertEquals(2, registry.getCounters().get(new MetricID("container.cpu.throttled.periods")).getCount());
+            assertEquals(5000, registry.getCounters().get(new MetricID("container.cpu.throttled.time")).getCount());
+            assertEquals(-1.0, registry.getGauges().get(new MetricID("container.cpu.quota")).getValue());
+            assertEquals(2048L, registry.getGauges().get(new MetricID("container.memory.usage")).getValue());
+            assertEquals(-1L, registry.getGauges().get(new MetricID("container.memory.limit")).getValue());
+            assertEquals(4, registry.getCounters()
+                    .get(new MetricID("container.memory.events", new Tag("type", "max"))).getCount());
+        }
+    }
+
+    @Test
+    void shouldSkipMissingFiles() throws IOException {
+        write("cgroup.controllers", "cpu\n");
+        write("cpu.max", "max 100000\n");
+
+        try (var underTest = new CgroupMetrics(root, false)) {
+            underTest.bindTo(registry);
+
+            assertEquals(1, registry.getMetrics().size());
+            assertEquals(-1.0, registry.getGauges().get(new MetricID("container.cpu.quota")).getValue());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.Test;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class CompilationMetricsTest {
+
+    private final MetricRegistry registry = new PortalTestMetricRegistry();
+
+    private static MemoryPoolMXBean pool(final String name, final MemoryType type, final MemoryUsage usage) {
+        final var pool = EasyMock.niceMock(MemoryPoolMXBean.class);
+        EasyMock.expect(pool.getName()).andStubReturn(name);
+        EasyMock.expect(pool.getType()).andStubReturn(type);
+        EasyMock.expect(pool.getUsage()).andStubReturn(usage);
+        EasyMock.replay(pool);
+        return pool;
+    }
+
+    @Test
+    void shouldReportCodeCacheUsage() {
+        final var codeHeap = pool("CodeHeap 'profiled nmethods'", MemoryType.NON_HEAP,
+                new MemoryUsage(0, 250, 500, 1000));
+        final var metaspace = pool("Metaspace", MemoryType.NON_HEAP, new MemoryUsage(0, 10, 10, -1));
+
+        new CompilationMetrics(null, List.of(codeHeap, metaspace), false).bindTo(registry);
+
+        assertEquals(1, registry.getGauges().size());
+        assertEquals(0.25, registry.getGauges()
+                .get(new MetricID("jvm.code.cache.usage", new Tag("segment", "CodeHeap 'profiled nmethods'")))
+                .getValue());
+    }
+
+    @Test
+    void shouldDetectCodeCache() {
+        assertTrue(CompilationMetrics.isCodeCache(pool("Code Cache", MemoryType.NON_HEAP, null)));
+        assertFalse(CompilationMetrics.isCodeCache(pool("CodeHeap", MemoryType.HEAP, null)));
+        assertTrue(Double.isNaN(CompilationMetrics.getUsage(pool("Code Cache", MemoryType.NON_HEAP,
+                new MemoryUsage(0, 10, 10, -1)))));
+    }
+
+    @Test
+    void shouldBindToPlatformBeans() {
+        final var compilationBean = ManagementFactory.getCompilationMXBean();
+        new CompilationMetrics(compilationBean, ManagementFactory.getMemoryPoolMXBeans(), false).bindTo(registry);
+
+        if (null != compilationBean && compilationBean.isCompilationTimeMonitoringSupported()) {
+            assertTrue(registry.getCounters().containsKey(
+                    new MetricID("jvm.compilation.time", new Tag("compiler", compilationBean.getName()))));
+        }
+        assertFalse(registry.getGauges().isEmpty());
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.junit.jupiter.api.Test;
+
+class CumulativeCounterTest {
+
+    @Test
+    void shouldKeepLastValueOnFailedRead() {
+        final var value = new AtomicLong(ProcFileReader.MISSING);
+        final var underTest = new CumulativeCounter(value::get);
+        assertEquals(0, underTest.getCount());
+
+        value.set(42);
+        assertEquals(42, underTest.getCount());
+        value.set(ProcFileReader.MISSING);
+        assertEquals(42, underTest.getCount());
+        value.set(50);
+        assertEquals(50, underTest.getCount());
+    }
+
+    @Test
+    void shouldDeriveOpenMetricsKey() {
+        assertEquals("tcp_listen_drops_total", CumulativeCounter.openMetricsKey("tcp.listen.drops", MetricUnits.NONE));
+        assertEquals("jvm_safepoint_time_milliseconds_total",
+                CumulativeCounter.openMetricsKey("jvm.safepoint.time", MetricUnits.MILLISECONDS));
+    }
+}
@@ -15,6 +15,33 @@
  */
 package de.cuioss.portal.tomcat.metrics;
 
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_BUFFER_DIRECT_THRESHOLD;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_BUFFER_RATE_WINDOW;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_CGROUP_ENABLED;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_DISK_PATHS;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_DISK_RATE_WINDOW;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_FILES_TYPES_INTERVAL;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_GC_OVERHEAD_CONCURRENT;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_GC_OVERHEAD_WINDOW;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_GC_PAUSE_BUCKETS;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_GC_PAUSE_MAX_WINDOW;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_HOT_THREADS_COUNT;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_HOT_THREADS_FRAMES;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_HOT_THREADS_INTERVAL;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_IO_RATE_WINDOW;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_ALLOCATION_ENABLED;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_CONTENTION_ENABLED;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_ENABLED;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_MAX_EVENTS_PER_SECOND;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_THRESHOLD;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_VIRTUAL_THREADS_LIFECYCLE;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_MEMORY_COLLECTION_THRESHOLD;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_MEMORY_USAGE_THRESHOLD;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_NMT_INTERVAL;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_TCP_INTERVAL;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_THREADS_CONTENTION_ENABLED;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_THREADS_CONTENTION_INTERVAL;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_WEBAPP_CLASSLOADERS_INTERVAL;
 import static de.cuioss.tools.collect.CollectionLiterals.immutableList;
 
 import java.util.List;
@@ -41,8 +68,24 @@ class DefaultConfigTest extends AbstractConfigurationKeyVerifierTest {
                 MetricsConfigKeys.PORTAL_METRICS_APP_NAME);
     }
 
+    /**
+     * Keys defined in {@link TomcatMetricsConfigKeys} are not part of
+     * {@link MetricsConfigKeys}.
+     */
     @Override
     public List<String> getConfigurationKeysIgnoreList() {
-        return immutableList("mp.metrics.tags");
+        return immutableList("mp.metrics.tags", PORTAL_METRICS_HOT_THREADS_INTERVAL, PORTAL_METRICS_HOT_THREADS_COUNT,
+                PORTAL_METRICS_HOT_THREADS_FRAMES, PORTAL_METRICS_THREADS_CONTENTION_ENABLED,
+                PORTAL_METRICS_THREADS_CONTENTION_INTERVAL, PORTAL_METRICS_JFR_ENABLED, PORTAL_METRICS_JFR_THRESHOLD,
+                PORTAL_METRICS_JFR_MAX_EVENTS_PER_SECOND, PORTAL_METRICS_JFR_CONTENTION_ENABLED,
+                PORTAL_METRICS_JFR_ALLOCATION_ENABLED, PORTAL_METRICS_GC_PAUSE_BUCKETS,
+                PORTAL_METRICS_GC_PAUSE_MAX_WINDOW, PORTAL_METRICS_GC_OVERHEAD_WINDOW,
+                PORTAL_METRICS_GC_OVERHEAD_CONCURRENT, PORTAL_METRICS_MEMORY_USAGE_THRESHOLD,
+                PORTAL_METRICS_MEMORY_COLLECTION_THRESHOLD, PORTAL_METRICS_CGROUP_ENABLED,
+                PORTAL_METRICS_IO_RATE_WINDOW, PORTAL_METRICS_NMT_INTERVAL,
+                PORTAL_METRICS_JFR_VIRTUAL_THREADS_LIFECYCLE, PORTAL_METRICS_FILES_TYPES_INTERVAL,
+                PORTAL_METRICS_DISK_PATHS, PORTAL_METRICS_DISK_RATE_WINDOW, PORTAL_METRICS_TCP_INTERVAL,
+                PORTAL_METRICS_BUFFER_RATE_WINDOW, PORTAL_METRICS_BUFFER_DIRECT_THRESHOLD,
+                PORTAL_METRICS_WEBAPP_CLASSLOADERS_INTERVAL);
     }
 }
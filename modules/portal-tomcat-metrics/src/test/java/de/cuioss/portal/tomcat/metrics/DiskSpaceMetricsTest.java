@@ -15,12 +15,22 @@
  */
 package de.cuioss.portal.tomcat.metrics;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
 
@@ -42,4 +52,73 @@ class DiskSpaceMetricsTest {
 
         assertNotNull(registry.getGauges().firstKey().getTags().get("path"));
     }
+
+    @Test
+    void shouldMeterEachFileStoreOnce(@TempDir final Path dir) throws IOException {
+        final var sub = Files.createDirectory(dir.resolve("sub")).toFile();
+        final var underTest = new DiskSpaceMetrics(List.of(dir.toFile(), sub, dir.resolve("absent").toFile()), true);
+
+        assertEquals(1, underTest.resolveStores(System::nanoTime).size());
+    }
+
+    @Test
+    void shouldRegisterFillRate(@TempDir final Path dir) {
+        final var registry = new PortalTestMetricRegistry();
+        try (var scheduler = new MetricsScheduler()) {
+            new DiskSpaceMetrics(List.of(dir.toFile()), true).bindTo(registry, scheduler, 300);
+        }
+
+        final var tag = new Tag("path", dir.toFile().getAbsolutePath());
+        assertTrue(registry.getGauges().containsKey(new MetricID("disk.free", tag)));
+        assertTrue(registry.getGauges().containsKey(new MetricID("disk.fill.rate", tag)));
+        assertTrue(registry.getGauges().containsKey(new MetricID("disk.time.to.full", tag)));
+    }
+
+    @Test
+    void shouldSampleUsedSpaceBypassingCache(@TempDir final Path dir) {
+        final var usable = new AtomicLong(1000);
+        final var path = new File(dir.toFile(), "store") {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public long getUsableSpace() {
+                return usable.get();
+            }
+
+            @Override
+            public long getTotalSpace() {
+                return 5000;
+            }
+        };
+        final var store = new DiskSpaceMetrics.Store(path, () -> 0L);
+
+        assertEquals(4000, store.getUsedSpace());
+        usable.set(400);
+        assertEquals(4000, store.getUsedSpace());
+        assertEquals(4600, store.sampleUsedSpace());
+        assertEquals(400, store.getUsableSpace());
+    }
+
+    @Test
+    void shouldKeepFillRateWindowOnShrinkingSpace() {
+        final var clock = new AtomicLong();
+        final var fillRate = DiskSpaceMetrics.fillRateWindow(300, clock::get);
+
+        fillRate.record(1000);
+        clock.set(TimeUnit.SECONDS.toNanos(10));
+        fillRate.record(500);
+        clock.set(TimeUnit.SECONDS.toNanos(20));
+        fillRate.record(2000);
+
+        assertEquals(50.0, fillRate.getRate(), 0.001);
+    }
+
+    @Test
+    void shouldEstimateTimeToFull() {
+        assertEquals(100.0, DiskSpaceMetrics.getSecondsToFull(1000, 10.0));
+        assertTrue(Double.isNaN(DiskSpaceMetrics.getSecondsToFull(1000, 0.0)));
+        assertTrue(Double.isNaN(DiskSpaceMetrics.getSecondsToFull(1000, -5.0)));
+        assertTrue(Double.isNaN(DiskSpaceMetrics.getSecondsToFull(1000, Double.NaN)));
+    }
 }
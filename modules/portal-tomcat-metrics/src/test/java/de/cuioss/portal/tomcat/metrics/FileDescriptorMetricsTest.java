@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class FileDescriptorMetricsTest {
+
+    @TempDir
+    Path fdDirectory;
+
+    private final MetricRegistry registry = new PortalTestMetricRegistry();
+
+    private final MetricsScheduler scheduler = new MetricsScheduler();
+
+    @AfterEach
+    void closeScheduler() {
+        scheduler.close();
+    }
+
+    private static String type(final String target) {
+        return FileDescriptorMetrics.TYPES[FileDescriptorMetrics.DescriptorTypes.classify(target)];
+    }
+
+    @Test
+    void shouldClassifyTargets() {
+        assertEquals("socket", type("socket:[1]"));
+        assertEquals("pipe", type("pipe:[2]"));
+        assertEquals("file", type("/var/log/app.log"));
+        assertEquals("anon_inode", type("anon_inode:[eventfd]"));
+        assertEquals("other", type("net:[3]"));
+    }
+
+    @Test
+    void shouldCountDescriptorTypes() throws IOException {
+        Files.createSymbolicLink(fdDirectory.resolve("0"), Paths.get("/dev/null"));
+        Files.createSymbolicLink(fdDirectory.resolve("1"), Paths.get("socket:[4711]"));
+        Files.createSymbolicLink(fdDirectory.resolve("2"), Paths.get("socket:[4712]"));
+        Files.createSymbolicLink(fdDirectory.resolve("3"), Paths.get("pipe:[815]"));
+
+        final var types = FileDescriptorMetrics.bindTypesTo(registry, false, fdDirectory, scheduler, 3600);
+        assertNotNull(types);
+        types.scan();
+
+        assertEquals(2L, registry.getGauges()
+                .get(new MetricID("process.files.open.type", new Tag("type", "socket"))).getValue());
+        assertEquals(1L, registry.getGauges()
+                .get(new MetricID("process.files.open.type", new Tag("type", "pipe"))).getValue());
+        assertEquals(1L, registry.getGauges()
+                .get(new MetricID("process.files.open.type", new Tag("type", "file"))).getValue());
+        assertEquals(0L, registry.getGauges()
+                .get(new MetricID("process.files.open.type", new Tag("type", "anon_inode"))).getValue());
+    }
+
+    @Test
+    void shouldSkipMissingDirectory() {
+        assertNull(FileDescriptorMetrics.bindTypesTo(registry, false, fdDirectory.resolve("absent"), scheduler, 60));
+    }
+}
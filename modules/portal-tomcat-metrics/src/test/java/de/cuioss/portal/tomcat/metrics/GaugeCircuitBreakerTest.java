@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.cuioss.test.juli.LogAsserts;
+import de.cuioss.test.juli.TestLogLevel;
+import de.cuioss.test.juli.junit5.EnableTestLogger;
+
+@EnableTestLogger(rootLevel = TestLogLevel.DEBUG)
+class GaugeCircuitBreakerTest {
+
+    private static final long BACK_OFF = 1000L;
+
+    private final AtomicLong clock = new AtomicLong(0);
+
+    private final AtomicInteger calls = new AtomicInteger(0);
+
+    @AfterEach
+    void resetCount() {
+        GaugeCircuitBreaker.resetOpenCount();
+    }
+
+    @Test
+    void shouldOpenAfterConsecutiveFailures() {
+        final var underTest = new GaugeCircuitBreaker(3, BACK_OFF, clock::get);
+
+        for (var i = 0; i < 3; i++) {
+            assertEquals(-1L, underTest.callLong(this::fail, -1L));
+        }
+        assertTrue(underTest.isOpen());
+        assertEquals(1, GaugeCircuitBreaker.getOpenCount());
+        LogAsserts.assertSingleLogMessagePresentContaining(TestLogLevel.WARN, "Portal-535");
+
+        // short-circuited, the value provider must not be called
+        assertEquals(-1L, underTest.callLong(this::fail, -1L));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void shouldRecoverAfterBackOff() {
+        final var underTest = new GaugeCircuitBreaker(1, BACK_OFF, clock::get);
+        underTest.callLong(this::fail, -1L);
+        assertTrue(underTest.isOpen());
+
+        clock.addAndGet(BACK_OFF);
+        assertEquals(42L, underTest.callLong(() -> 42L, -1L));
+        assertFalse(underTest.isOpen());
+        assertEquals(0, GaugeCircuitBreaker.getOpenCount());
+    }
+
+    @Test
+    void shouldStayOpenIfProbeFails() {
+        final var underTest = new GaugeCircuitBreaker(1, BACK_OFF, clock::get);
+        underTest.callLong(this::fail, -1L);
+
+        clock.addAndGet(BACK_OFF);
+        underTest.callLong(this::fail, -1L);
+        assertTrue(underTest.isOpen());
+        assertEquals(1, GaugeCircuitBreaker.getOpenCount());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void shouldResetFailuresOnSuccess() {
+        final var underTest = new GaugeCircuitBreaker(2, BACK_OFF, clock::get);
+        underTest.callLong(this::fail, -1L);
+        underTest.callLong(() -> 1L, -1L);
+        underTest.callLong(this::fail, -1L);
+        assertFalse(underTest.isOpen());
+    }
+
+    private long fail() {
+        calls.incrementAndGet();
+        throw new IllegalStateException("boom");
+    }
+}
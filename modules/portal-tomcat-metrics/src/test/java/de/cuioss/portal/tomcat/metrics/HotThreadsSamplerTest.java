@@ -0,0 +1,55 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+class HotThreadsSamplerTest {
+
+    private final HotThreadsSampler underTest = new HotThreadsSampler(ManagementFactory.getThreadMXBean());
+
+    @Test
+    void shouldSelectHighestValues() {
+        assertArrayEquals(new int[] { 3, 1 }, HotThreadsSampler.selectTop(new long[] { 5, 7, -1, 9, 0 }, 2));
+    }
+
+    @Test
+    void shouldIgnoreUnavailableValues() {
+        assertArrayEquals(new int[] { 1 }, HotThreadsSampler.selectTop(new long[] { -1, 3, -1 }, 5));
+        assertArrayEquals(new int[0], HotThreadsSampler.selectTop(new long[0], 5));
+    }
+
+    @Test
+    void shouldReportHotThreads() throws InterruptedException {
+        assertTrue(underTest.isAvailable());
+
+        final var report = underTest.sample(10, 3, 2);
+
+        assertTrue(report.getInt("sampledThreads") > 0);
+        final var hotThreads = report.getJsonArray("hotThreads");
+        assertFalse(hotThreads.isEmpty());
+        assertTrue(hotThreads.size() <= 3);
+        final var hottest = hotThreads.getJsonObject(0);
+        assertTrue(hottest.containsKey("cpu"));
+        assertTrue(hottest.getJsonArray("stackTrace").size() <= 2);
+    }
+}
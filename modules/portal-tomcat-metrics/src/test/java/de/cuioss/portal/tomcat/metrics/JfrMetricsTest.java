@@ -0,0 +1,83 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class JfrMetricsTest {
+
+    @Test
+    void shouldRegisterMetrics() {
+        final MetricRegistry registry = new PortalTestMetricRegistry();
+        try (var underTest = new JfrMetrics(true, Duration.ofMillis(10), 100)) {
+            underTest.bindTo(registry);
+        }
+
+        assertTrue(registry.getHistograms().containsKey(new MetricID("jvm.jfr.safepoint.duration")));
+        assertTrue(registry.getHistograms().containsKey(new MetricID("jvm.jfr.thread.park")));
+        assertTrue(registry.getHistograms().containsKey(new MetricID("jvm.jfr.monitor.enter")));
+        assertTrue(registry.getHistograms().containsKey(new MetricID("jvm.jfr.socket.read")));
+        assertTrue(registry.getHistograms().containsKey(new MetricID("jvm.jfr.file.write")));
+        assertTrue(registry.getCounters().containsKey(new MetricID("portal.metrics.jfr.events.dropped")));
+    }
+
+    @Test
+    void shouldRejectSubscriptionAfterStart() {
+        assumeTrue(JfrMetrics.isAvailable());
+        try (var underTest = new JfrMetrics(true, Duration.ofMillis(10), 100)) {
+            underTest.start();
+            assertThrows(IllegalStateException.class,
+                    () -> underTest.subscribe(JfrMetrics.THREAD_PARK, Duration.ZERO, false, event -> {
+                    }));
+            assertThrows(IllegalStateException.class,
+                    () -> underTest.count(JfrMetrics.THREAD_PARK, Duration.ZERO, new AtomicLong()));
+            assertThrows(IllegalStateException.class,
+                    () -> underTest.observe(JfrMetrics.SAFEPOINT_END, Duration.ZERO, event -> {
+                    }));
+        }
+    }
+
+    @Test
+    void shouldLimitEventsPerSecond() {
+        final var clock = new AtomicLong();
+        final var budget = new JfrMetrics.EventBudget(2, clock::get);
+
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertFalse(budget.tryAcquire());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+    }
+}
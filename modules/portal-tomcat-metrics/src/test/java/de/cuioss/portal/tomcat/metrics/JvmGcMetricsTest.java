@@ -0,0 +1,171 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static de.cuioss.tools.collect.CollectionLiterals.immutableList;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class JvmGcMetricsTest {
+
+    @Test
+    void shouldRecordPausesFromNotifications() throws InterruptedException {
+        final MetricRegistry registry = new PortalTestMetricRegistry();
+        try (var underTest = new JvmGcMetrics(true)) {
+            underTest.bindTo(registry);
+            assertFalse(registry.getGauges().isEmpty());
+
+            // the pause metrics are registered before the pause is recorded by the consumer
+            final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            var recorded = hasRecordedPauses(registry);
+            while (!recorded && System.nanoTime() - deadline < 0) {
+                System.gc();
+                TimeUnit.MILLISECONDS.sleep(50);
+                recorded = hasRecordedPauses(registry);
+            }
+
+            // a pause of another cause may be registered but not yet recorded afterwards
+            assertTrue(recorded);
+            assertTrue(hasPauseMetrics(registry));
+            assertTrue(registry.getCounters().keySet().stream()
+                    .anyMatch(id -> id.getName().endsWith(".seconds.bucket")
+                            && JvmGcMetrics.INFINITY_BUCKET.equals(id.getTags().get("le"))));
+
+            final var overhead = (Double) registry.getGauges().get(new MetricID("jvm.gc.overhead")).getValue();
+            assertTrue(overhead >= 0.0 && overhead <= 1.0);
+        }
+    }
+
+    @Test
+    void shouldDisableHistogramWithoutBuckets() throws InterruptedException {
+        final var notification = captureGcNotification();
+        final MetricRegistry registry = new PortalTestMetricRegistry();
+        try (var underTest = new JvmGcMetrics(true, new double[0], Duration.ofMinutes(1),
+                JvmGcMetrics.DEFAULT_OVERHEAD_WINDOW, false)) {
+            underTest.handleNotification(registry, notification);
+
+            assertTrue(hasPauseMetrics(registry));
+            assertTrue(registry.getCounters().entrySet().stream()
+                    .anyMatch(entry -> entry.getKey().getName().endsWith(".seconds.count")
+                            && 1 == entry.getValue().getCount()));
+            assertFalse(registry.getCounters().keySet().stream()
+                    .anyMatch(id -> id.getName().endsWith(".seconds.bucket")));
+        }
+    }
+
+    @Test
+    void shouldRecordPausesInSeconds() throws InterruptedException {
+        final var notification = captureGcNotification();
+        final var durationMillis = GarbageCollectionNotificationInfo
+                .from((CompositeData) notification.getUserData()).getGcInfo().getDuration();
+        final MetricRegistry registry = new PortalTestMetricRegistry();
+        try (var underTest = new JvmGcMetrics(true, new double[] { 0.001, 3600 }, Duration.ofMinutes(1),
+                JvmGcMetrics.DEFAULT_OVERHEAD_WINDOW, false)) {
+            underTest.handleNotification(registry, notification);
+            underTest.handleNotification(registry, notification);
+
+            final var sum = registry.getGauges().entrySet().stream()
+                    .filter(entry -> entry.getKey().getName().endsWith(".seconds.sum")).findFirst().orElseThrow();
+            assertEquals(2 * durationMillis / 1000.0, (Double) sum.getValue().getValue(), 0.0001);
+            final var hourBucket = registry.getCounters().entrySet().stream()
+                    .filter(entry -> entry.getKey().getName().endsWith(".seconds.bucket")
+                            && "3600.0".equals(entry.getKey().getTags().get("le")))
+                    .findFirst().orElseThrow();
+            assertEquals(2, hourBucket.getValue().getCount());
+        }
+    }
+
+    @Test
+    void shouldParsePauseBuckets() {
+        assertArrayEquals(new double[] { 0.01, 0.5, 2 },
+                JvmGcMetrics.parsePauseBuckets(immutableList(" 0.5", "2", "0.01", "", "invalid", "-1", "0.5")));
+    }
+
+    @Test
+    void shouldFormatBucketsLikeMicrometer() {
+        assertEquals("0.005", JvmGcMetrics.formatBucket(0.005));
+        assertEquals("0.0001", JvmGcMetrics.formatBucket(0.0001));
+        assertEquals("1.0", JvmGcMetrics.formatBucket(1));
+        assertEquals("10.0", JvmGcMetrics.formatBucket(10));
+    }
+
+    /**
+     * @return a notification of a GC triggered by this method, in order to
+     *         drive {@link JvmGcMetrics#handleNotification} without racing the
+     *         notification consumer
+     */
+    private static Notification captureGcNotification() throws InterruptedException {
+        final var captured = new LinkedBlockingQueue<Notification>();
+        final NotificationListener listener = (notification, handback) -> {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                captured.offer(notification);
+            }
+        };
+        final var emitters = ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .filter(NotificationEmitter.class::isInstance).map(NotificationEmitter.class::cast).toList();
+        emitters.forEach(emitter -> emitter.addNotificationListener(listener, null, null));
+        try {
+            final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            Notification notification = null;
+            while (null == notification && System.nanoTime() - deadline < 0) {
+                System.gc();
+                notification = captured.poll(100, TimeUnit.MILLISECONDS);
+            }
+            assertNotNull(notification);
+            return notification;
+        } finally {
+            for (final NotificationEmitter emitter : emitters) {
+                try {
+                    emitter.removeNotificationListener(listener);
+                } catch (final ListenerNotFoundException e) {
+                    // already removed
+                }
+            }
+        }
+    }
+
+    private static boolean hasRecordedPauses(final MetricRegistry registry) {
+        final var counts = registry.getCounters().entrySet().stream()
+                .filter(entry -> entry.getKey().getName().endsWith(".seconds.count")).toList();
+        return !counts.isEmpty() && counts.stream().allMatch(entry -> entry.getValue().getCount() > 0);
+    }
+
+    private static boolean hasPauseMetrics(final MetricRegistry registry) {
+        return registry.getGauges().keySet().stream().anyMatch(id -> id.getName().endsWith(".seconds.max"));
+    }
+}
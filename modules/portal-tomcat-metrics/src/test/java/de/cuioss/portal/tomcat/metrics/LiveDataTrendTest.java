@@ -0,0 +1,61 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LiveDataTrendTest {
+
+    private final LiveDataTrend underTest = new LiveDataTrend();
+
+    @Test
+    void shouldRequireMinimumSamples() {
+        underTest.record(0, 100);
+        underTest.record(1_000, 200);
+        assertTrue(Double.isNaN(underTest.getGrowthRate()));
+        assertTrue(Double.isNaN(underTest.getSecondsToExhaustion(1_000)));
+    }
+
+    @Test
+    void shouldEstimateLinearGrowth() {
+        // 100 bytes per second
+        for (var i = 0; i < 10; i++) {
+            underTest.record(i * 1_000L, 1_000 + i * 100L);
+        }
+        assertEquals(100.0, underTest.getGrowthRate(), 0.0001);
+        // latest sample is 1_900, 100 bytes per second up to 2_900
+        assertEquals(10.0, underTest.getSecondsToExhaustion(2_900), 0.0001);
+        assertTrue(Double.isNaN(underTest.getSecondsToExhaustion(-1)));
+    }
+
+    @Test
+    void shouldFollowLatestSamples() {
+        for (var i = 0; i < LiveDataTrend.CAPACITY; i++) {
+            underTest.record(i * 1_000L, 5_000 - i * 10L);
+        }
+        assertEquals(-10.0, underTest.getGrowthRate(), 0.0001);
+        assertTrue(Double.isNaN(underTest.getSecondsToExhaustion(10_000)));
+
+        final var offset = LiveDataTrend.CAPACITY * 1_000L;
+        for (var i = 0; i < LiveDataTrend.CAPACITY; i++) {
+            underTest.record(offset + i * 1_000L, 1_000 + i * 50L);
+        }
+        assertEquals(50.0, underTest.getGrowthRate(), 0.0001);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.json.JsonObject;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.Test;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class LockContentionMetricsTest {
+
+    @Test
+    void shouldRegisterMetricsAndBeActive() {
+        final MetricRegistry registry = new PortalTestMetricRegistry();
+        try (var jfrMetrics = new JfrMetrics(true, Duration.ofMillis(10), 100);
+                var underTest = new LockContentionMetrics(10, true)) {
+            underTest.bindTo(registry, jfrMetrics);
+
+            assertTrue(registry.getCounters()
+                    .containsKey(new MetricID("jvm.jfr.contention.time", new Tag("kind", "monitor"))));
+            assertTrue(registry.getCounters()
+                    .containsKey(new MetricID("jvm.jfr.contention.count", new Tag("kind", "park"))));
+            assertEquals(underTest, LockContentionMetrics.getActive().orElse(null));
+
+            underTest.close();
+            assertFalse(LockContentionMetrics.getActive().isPresent());
+        }
+    }
+
+    @Test
+    void shouldReportHotspots() {
+        try (var underTest = new LockContentionMetrics(10, false)) {
+            underTest.add(new LockContentionMetrics.Hotspot("monitor", "com.acme.Cache", "com.acme.Cache.get:42"),
+                    TimeUnit.MILLISECONDS.toNanos(5));
+            underTest.add(new LockContentionMetrics.Hotspot("park", "unknown", "com.acme.Pool.borrow:7"),
+                    TimeUnit.MILLISECONDS.toNanos(20));
+
+            final var hotspots = underTest.report(1).getJsonArray("hotspots");
+            assertEquals(1, hotspots.size());
+            assertEquals("com.acme.Pool.borrow:7", hotspots.getJsonObject(0).getString("frame"));
+            assertEquals(20, hotspots.getJsonObject(0).getJsonNumber("time").longValue());
+        }
+    }
+
+    @Test
+    void shouldIgnoreIdleQueueWaits() throws InterruptedException {
+        assumeTrue(JfrMetrics.isAvailable());
+        final var queue = new LinkedBlockingQueue<String>();
+        final var consumer = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    queue.poll(30, TimeUnit.MILLISECONDS);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.setDaemon(true);
+        try (var jfrMetrics = new JfrMetrics(false, Duration.ofMillis(10), 1000);
+                var underTest = new LockContentionMetrics(10, false)) {
+            underTest.bindTo(new PortalTestMetricRegistry(), jfrMetrics);
+            jfrMetrics.start();
+            consumer.start();
+
+            final var lock = new ReentrantLock();
+            final var lockClass = ReentrantLock.class.getName() + "$NonfairSync";
+            final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            List<JsonObject> hotspots;
+            do {
+                lock.lock();
+                final var contender = new Thread(() -> {
+                    lock.lock();
+                    lock.unlock();
+                });
+                try {
+                    contender.start();
+                    TimeUnit.MILLISECONDS.sleep(40);
+                } finally {
+                    lock.unlock();
+                }
+                contender.join();
+                hotspots = underTest.report(10).getJsonArray("hotspots").getValuesAs(JsonObject.class);
+            } while (hotspots.stream().noneMatch(hotspot -> lockClass.equals(hotspot.getString("class")))
+                    && System.nanoTime() < deadline);
+
+            assertTrue(hotspots.stream().anyMatch(hotspot -> lockClass.equals(hotspot.getString("class"))));
+            // the top frame of the consumer's parks is the queue itself
+            assertTrue(hotspots.stream().noneMatch(
+                    hotspot -> hotspot.getString("frame").startsWith(LinkedBlockingQueue.class.getName() + ".poll")));
+        } finally {
+            consumer.interrupt();
+            consumer.join();
+        }
+    }
+
+    @Test
+    void shouldDetectIdleWaitMethods() {
+        assertTrue(LockContentionMetrics.isIdleWaitMethod("java.util.concurrent.ThreadPoolExecutor", "getTask"));
+        assertTrue(LockContentionMetrics.isIdleWaitMethod("java.util.concurrent.LinkedBlockingQueue", "poll"));
+        assertTrue(LockContentionMetrics.isIdleWaitMethod("java.util.concurrent.ForkJoinPool", "awaitWork"));
+        assertFalse(LockContentionMetrics.isIdleWaitMethod("java.util.concurrent.LinkedBlockingQueue", "put"));
+        assertFalse(LockContentionMetrics.isIdleWaitMethod("com.acme.LinkedBlockingQueue", "take"));
+    }
+
+    @Test
+    void shouldSkipLockImplementationFrames() {
+        assertTrue(LockContentionMetrics.isSkipped("java.util.concurrent.locks.LockSupport"));
+        assertTrue(LockContentionMetrics.isSkipped("jdk.internal.misc.Unsafe"));
+        assertTrue(LockContentionMetrics.isSkipped("java.lang.VirtualThread"));
+        assertFalse(LockContentionMetrics.isSkipped("java.util.concurrent.ArrayBlockingQueue"));
+    }
+}
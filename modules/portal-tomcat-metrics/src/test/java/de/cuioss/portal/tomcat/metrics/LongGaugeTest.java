@@ -0,0 +1,39 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.metrics.Gauge;
+import org.junit.jupiter.api.Test;
+
+class LongGaugeTest {
+
+    @Test
+    void shouldAdaptPrimitiveValue() {
+        final var value = new AtomicLong(42);
+        final LongGauge underTest = value::get;
+
+        assertEquals(42L, underTest.getLongValue());
+        final Gauge<Long> gauge = underTest;
+        assertEquals(Long.valueOf(42), gauge.getValue());
+
+        value.set(-1);
+        assertEquals(Long.valueOf(-1), gauge.getValue());
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+
+import org.easymock.EasyMock;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class MemoryPressureMetricsTest {
+
+    private static final String POOL = "Old Gen";
+
+    private final AtomicBoolean usageExceeded = new AtomicBoolean();
+    private final AtomicBoolean collectionExceeded = new AtomicBoolean();
+
+    private MetricRegistry registry;
+    private MemoryPoolMXBean pool;
+    private MemoryPressureMetrics underTest;
+
+    @BeforeEach
+    void bind() {
+        pool = EasyMock.niceMock(MemoryPoolMXBean.class);
+        EasyMock.expect(pool.getName()).andStubReturn(POOL);
+        EasyMock.expect(pool.getType()).andStubReturn(MemoryType.HEAP);
+        EasyMock.expect(pool.getUsage()).andStubReturn(new MemoryUsage(0, 50, 100, 100));
+        EasyMock.expect(pool.isUsageThresholdSupported()).andStubReturn(true);
+        EasyMock.expect(pool.isCollectionUsageThresholdSupported()).andStubReturn(true);
+        EasyMock.expect(pool.isUsageThresholdExceeded()).andStubAnswer(usageExceeded::get);
+        EasyMock.expect(pool.isCollectionUsageThresholdExceeded()).andStubAnswer(collectionExceeded::get);
+        pool.setUsageThreshold(90);
+        pool.setCollectionUsageThreshold(80);
+        EasyMock.replay(pool);
+
+        registry = new PortalTestMetricRegistry();
+        underTest = new MemoryPressureMetrics(EasyMock.niceMock(NotificationEmitter.class), List.of(pool), 0.9, 0.8,
+                true);
+        underTest.bindTo(registry);
+    }
+
+    @AfterEach
+    void close() {
+        underTest.close();
+    }
+
+    @Test
+    void shouldSetThresholds() {
+        EasyMock.verify(pool);
+        assertEquals(MemoryPressure.NORMAL, MemoryPressureMetrics.getCurrentPressure());
+    }
+
+    @Test
+    void shouldSkipYoungGenerationPools() {
+        final var eden = youngPool("G1 Eden Space");
+        final var survivor = youngPool("PS Survivor Space");
+        try (var metrics = new MemoryPressureMetrics(EasyMock.niceMock(NotificationEmitter.class),
+                List.of(eden, survivor), 0.9, 0.8, true)) {
+            metrics.bindTo(new PortalTestMetricRegistry());
+        }
+        // no threshold may be set or even checked
+        EasyMock.verify(eden, survivor);
+    }
+
+    @Test
+    void shouldIgnoreInvalidRatios() {
+        final var tenured = EasyMock.mock(MemoryPoolMXBean.class);
+        EasyMock.expect(tenured.getName()).andStubReturn("G1 Old Gen");
+        EasyMock.expect(tenured.getType()).andStubReturn(MemoryType.HEAP);
+        EasyMock.expect(tenured.getUsage()).andStubReturn(new MemoryUsage(0, 50, 100, 100));
+        EasyMock.expect(tenured.isUsageThresholdSupported()).andStubReturn(true);
+        EasyMock.expect(tenured.isCollectionUsageThresholdSupported()).andStubReturn(true);
+        EasyMock.expect(tenured.getUsageThreshold()).andStubReturn(0L);
+        EasyMock.expect(tenured.getCollectionUsageThreshold()).andStubReturn(0L);
+        EasyMock.replay(tenured);
+
+        try (var metrics = new MemoryPressureMetrics(EasyMock.niceMock(NotificationEmitter.class),
+                List.of(tenured), 1.5, 0.0, true)) {
+            metrics.bindTo(new PortalTestMetricRegistry());
+        }
+        // the strict mock rejects any threshold being set
+        EasyMock.verify(tenured);
+        assertEquals(1.0, MemoryPressureMetrics.checkRatio(1.0, MemoryPressureMetrics.TYPE_USAGE));
+        assertEquals(0.0, MemoryPressureMetrics.checkRatio(Double.NaN, MemoryPressureMetrics.TYPE_USAGE));
+    }
+
+    @Test
+    void shouldDetectTenuredPools() {
+        assertTrue(MemoryPressureMetrics.isTenured(pool));
+        assertTrue(MemoryPressureMetrics.isTenured(pool("Tenured Gen", MemoryType.HEAP)));
+        assertTrue(MemoryPressureMetrics.isTenured(pool("ZHeap", MemoryType.HEAP)));
+        assertFalse(MemoryPressureMetrics.isTenured(pool("Eden Space", MemoryType.HEAP)));
+        assertFalse(MemoryPressureMetrics.isTenured(pool("ZGC Young Generation", MemoryType.HEAP)));
+        assertFalse(MemoryPressureMetrics.isTenured(pool("nursery-allocate", MemoryType.HEAP)));
+        assertFalse(MemoryPressureMetrics.isTenured(pool("Metaspace", MemoryType.NON_HEAP)));
+    }
+
+    @Test
+    void shouldRaiseAndRelievePressure() throws Exception {
+        usageExceeded.set(true);
+        underTest.handleNotification(notification(MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED, 1), null);
+        assertEquals(MemoryPressure.ELEVATED, MemoryPressureMetrics.getCurrentPressure());
+        assertEquals(1, registry.getCounters()
+                .get(new MetricID("jvm.memory.threshold.exceeded", new Tag("id", POOL), new Tag("type", "usage")))
+                .getCount());
+
+        collectionExceeded.set(true);
+        underTest.handleNotification(notification(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED, 3),
+                null);
+        assertEquals(MemoryPressure.CRITICAL, underTest.getPressure());
+        assertEquals(2L, registry.getGauges().get(new MetricID("jvm.memory.pressure")).getValue());
+
+        collectionExceeded.set(false);
+        assertEquals(MemoryPressure.ELEVATED, underTest.getPressure());
+        usageExceeded.set(false);
+        assertEquals(MemoryPressure.NORMAL, underTest.getPressure());
+    }
+
+    private static MemoryPoolMXBean pool(final String name, final MemoryType type) {
+        final var mock = EasyMock.niceMock(MemoryPoolMXBean.class);
+        EasyMock.expect(mock.getName()).andStubReturn(name);
+        EasyMock.expect(mock.getType()).andStubReturn(type);
+        EasyMock.replay(mock);
+        return mock;
+    }
+
+    private static MemoryPoolMXBean youngPool(final String name) {
+        final var mock = EasyMock.mock(MemoryPoolMXBean.class);
+        EasyMock.expect(mock.getName()).andStubReturn(name);
+        EasyMock.expect(mock.getType()).andStubReturn(MemoryType.HEAP);
+        EasyMock.replay(mock);
+        return mock;
+    }
+
+    private static Notification notification(final String type, final long count) throws Exception {
+        // the JDK offers no way to create the composite data of a MemoryNotificationInfo
+        final var usage = (CompositeData) ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName(ManagementFactory.MEMORY_MXBEAN_NAME), "HeapMemoryUsage");
+        final var compositeType = new CompositeType(MemoryNotificationInfo.class.getName(), "memory notification",
+                new String[] { "poolName", "usage", "count" }, new String[] { "poolName", "usage", "count" },
+                new OpenType<?>[] { SimpleType.STRING, usage.getCompositeType(), SimpleType.LONG });
+        final var notification = new Notification(type, "test", count);
+        notification.setUserData(new CompositeDataSupport(compositeType, new String[] { "poolName", "usage", "count" },
+                new Object[] { POOL, usage, count }));
+        return notification;
+    }
+}
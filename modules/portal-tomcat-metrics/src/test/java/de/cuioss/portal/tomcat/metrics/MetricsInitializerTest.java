@@ -18,9 +18,12 @@ package de.cuioss.portal.tomcat.metrics;
 import static de.cuioss.portal.configuration.MetricsConfigKeys.PORTAL_METRICS_ENABLED;
 import static de.cuioss.portal.configuration.MetricsConfigKeys.PORTAL_METRICS_OS_SUN_ENABLED;
 import static de.cuioss.portal.configuration.MetricsConfigKeys.PORTAL_METRICS_TOMCAT_ENABLED;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_ALLOCATION_ENABLED;
+import static de.cuioss.portal.tomcat.metrics.TomcatMetricsConfigKeys.PORTAL_METRICS_JFR_ENABLED;
 import static de.cuioss.tools.collect.CollectionLiterals.mutableList;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import javax.inject.Inject;
 
@@ -100,4 +103,21 @@ class MetricsInitializerTest {
         underTest.initialize();
         assertFalse(baseRegistry.getMetricIDs().stream().anyMatch(id -> id.getName().startsWith("tomcat")));
     }
+
+    @Test
+    void jfrMetrics() {
+        assumeTrue(JfrMetrics.isAvailable());
+        configuration.put(PORTAL_METRICS_ENABLED, "true");
+        configuration.put(PORTAL_METRICS_JFR_ENABLED, "true");
+        configuration.put(PORTAL_METRICS_JFR_ALLOCATION_ENABLED, "true");
+        configuration.fireEvent();
+        underTest.initialize();
+        assertTrue(baseRegistry.getMetricIDs().stream().anyMatch(id -> id.getName().startsWith("jvm.jfr.")));
+        assertTrue(LockContentionMetrics.getActive().isPresent());
+        assertTrue(RouteTracker.isEnabled());
+
+        underTest.destroy();
+        assertFalse(LockContentionMetrics.getActive().isPresent());
+        assertFalse(RouteTracker.isEnabled());
+    }
 }
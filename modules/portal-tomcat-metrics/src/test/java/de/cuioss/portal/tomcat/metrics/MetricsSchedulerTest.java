@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class MetricsSchedulerTest {
+
+    @Test
+    void shouldSkipNonPositiveIntervals() {
+        try (var scheduler = new MetricsScheduler()) {
+            assertNull(scheduler.schedule("zero", () -> {
+            }, 0, TimeUnit.SECONDS));
+            assertNull(scheduler.schedule("negative", () -> {
+            }, 10, -1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void shouldScheduleTask() {
+        try (var scheduler = new MetricsScheduler()) {
+            final var future = scheduler.schedule("task", () -> {
+            }, 1, TimeUnit.HOURS);
+            assertNotNull(future);
+            future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class NativeMemoryMetricsTest {
+
+    private static final String SUMMARY = """
+            Native Memory Tracking:
+
+            (Omitting categories weighting less than 1KB)
+
+            Total: reserved=2000KB, committed=1000KB
+                   malloc: 4615KB #18619
+                   mmap:   reserved=1500KB, committed=700KB
+
+            -                 Java Heap (reserved=1000KB, committed=500KB)
+                                        (mmap: reserved=1000KB, committed=500KB)
+
+            -                    Thread (reserved=300KB, committed=30KB)
+                                        (thread #20)
+                                        (stack: reserved=290KB, committed=20KB)
+
+            -                 Metaspace (reserved=200KB, committed=100KB)
+                                        (malloc=1KB #3)
+            """;
+
+    private final MetricRegistry registry = new PortalTestMetricRegistry();
+
+    private final MetricsScheduler scheduler = new MetricsScheduler();
+
+    @AfterEach
+    void closeScheduler() {
+        scheduler.close();
+    }
+
+    @Test
+    void shouldParseSummary() {
+        final var parsed = NativeMemoryMetrics.parse(SUMMARY);
+        assertEquals(4, parsed.size());
+        assertArrayEquals(new long[] { 2000 * 1024, 1000 * 1024 }, parsed.get(NativeMemoryMetrics.TOTAL));
+        assertArrayEquals(new long[] { 300 * 1024, 30 * 1024 }, parsed.get("Thread"));
+        assertArrayEquals(new long[] { 1000 * 1024, 500 * 1024 }, parsed.get("Java Heap"));
+    }
+
+    @Test
+    void shouldExportCachedSummary() {
+        final var summary = new AtomicReference<>(SUMMARY);
+        final var underTest = new NativeMemoryMetrics(summary::get, false);
+        underTest.bindTo(registry);
+        assertTrue(registry.getGauges().isEmpty());
+        underTest.refresh();
+
+        final var committed = new MetricID("jvm.memory.native.committed", new Tag("category", "Metaspace"));
+        assertEquals(100L * 1024, registry.getGauges().get(committed).getValue());
+
+        summary.set(SUMMARY.replace("committed=100KB", "committed=150KB"));
+        assertEquals(100L * 1024, registry.getGauges().get(committed).getValue());
+        underTest.refresh();
+        assertEquals(150L * 1024, registry.getGauges().get(committed).getValue());
+    }
+
+    @Test
+    void shouldSkipIfNotEnabled() {
+        final var calls = new AtomicInteger();
+        final var underTest = new NativeMemoryMetrics(() -> {
+            calls.incrementAndGet();
+            return "Native memory tracking is not enabled\n";
+        }, false);
+        underTest.bindTo(registry);
+        underTest.refresh();
+        underTest.refresh();
+        assertTrue(registry.getMetrics().isEmpty());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void shouldRegisterOnScheduler() throws InterruptedException {
+        final var initThread = Thread.currentThread();
+        final var summaryThread = new AtomicReference<Thread>();
+        new NativeMemoryMetrics(() -> {
+            summaryThread.set(Thread.currentThread());
+            return SUMMARY;
+        }, false).bindTo(registry, scheduler, 3600);
+
+        final var deadline = System.currentTimeMillis() + 10_000;
+        while (registry.getGauges().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(8, registry.getGauges().size());
+        assertNotSame(initThread, summaryThread.get());
+    }
+
+    @Test
+    void shouldNotScheduleIfDisabled() {
+        final var calls = new AtomicInteger();
+        new NativeMemoryMetrics(() -> {
+            calls.incrementAndGet();
+            return SUMMARY;
+        }, false).bindTo(registry, scheduler, 0);
+        assertTrue(registry.getMetrics().isEmpty());
+        assertEquals(0, calls.get());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static de.cuioss.portal.tomcat.metrics.ProcFileReader.MISSING;
+import static de.cuioss.portal.tomcat.metrics.ProcFileReader.key;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProcFileReaderTest {
+
+    @TempDir
+    Path dir;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private ProcFileReader reader(final String content) throws IOException {
+        final var file = dir.resolve("file");
+        Files.writeString(file, content);
+        return new ProcFileReader(file, 16, 100, clock::get);
+    }
+
+    @Test
+    void shouldParseKeyedValues() throws IOException {
+        try (var underTest = reader("Name:\tjava\nVmRSS:\t  123456 kB\nThreads:\t42\n")) {
+            assertEquals(123456, underTest.getKeyed(key("VmRSS")));
+            assertEquals(42, underTest.getKeyed(key("Threads")));
+            assertEquals(MISSING, underTest.getKeyed(key("Name")));
+            assertEquals(MISSING, underTest.getKeyed(key("VmSwap")));
+            // prefix of another key must not match
+            assertEquals(MISSING, underTest.getKeyed(key("Vm")));
+        }
+    }
+
+    @Test
+    void shouldParseAttributes() throws IOException {
+        try (var underTest = reader("some avg10=1.00 avg60=0.50 avg300=0.10 total=1234\n"
+                + "full avg10=0.00 avg60=0.00 avg300=0.00 total=56\n")) {
+            assertEquals(1234, underTest.getKeyedAttribute(key("some"), key("total=")));
+            assertEquals(56, underTest.getKeyedAttribute(key("full"), key("total=")));
+            assertEquals(MISSING, underTest.getKeyedAttribute(key("full"), key("other=")));
+        }
+    }
+
+    @Test
+    void shouldParseFields() throws IOException {
+        try (var underTest = reader("1234 (java (1)) S 1 1234 1234 0 -1 4194560 2000 0 3 0\n")) {
+            assertEquals(1234, underTest.getField(0));
+            assertEquals(MISSING, underTest.getField(2));
+            assertEquals(1, underTest.getFieldAfterLast((byte) ')', 1));
+            assertEquals(-1, underTest.getFieldAfterLast((byte) ')', 5));
+            assertEquals(2000, underTest.getFieldAfterLast((byte) ')', 7));
+            assertEquals(MISSING, underTest.getFieldAfterLast((byte) ')', 20));
+        }
+    }
+
+    @Test
+    void shouldParseColumns() throws IOException {
+        try (var underTest = reader("TcpExt: SyncookiesSent ListenOverflows ListenDrops\n"
+                + "TcpExt: 0 17 23\n" + "IpExt: InNoRoutes ListenDrops\n" + "IpExt: 1 2\n")) {
+            assertEquals(17, underTest.getColumn(key("TcpExt:"), key("ListenOverflows")));
+            assertEquals(23, underTest.getColumn(key("TcpExt:"), key("ListenDrops")));
+            assertEquals(2, underTest.getColumn(key("IpExt:"), key("ListenDrops")));
+            assertEquals(MISSING, underTest.getColumn(key("TcpExt:"), key("Listen")));
+            assertEquals(MISSING, underTest.getColumn(key("MptcpExt:"), key("ListenDrops")));
+        }
+    }
+
+    @Test
+    void shouldHandleNonNumericValues() throws IOException {
+        try (var underTest = reader("max 100000\n")) {
+            assertEquals(MISSING, underTest.getValue());
+            assertEquals(100000, underTest.getField(1));
+        }
+    }
+
+    @Test
+    void shouldReadOncePerTimeToLive() throws IOException {
+        try (var underTest = reader("1\n")) {
+            assertEquals(1, underTest.getValue());
+            Files.writeString(dir.resolve("file"), "2\n");
+            assertEquals(1, underTest.getValue());
+            clock.addAndGet(100);
+            assertEquals(2, underTest.getValue());
+        }
+    }
+
+    @Test
+    void shouldReturnMissingForAbsentFile() {
+        try (var underTest = new ProcFileReader(dir.resolve("absent"))) {
+            assertFalse(underTest.isReadable());
+            assertEquals(MISSING, underTest.getValue());
+            assertEquals(MISSING, underTest.getKeyed(key("any")));
+        }
+    }
+}
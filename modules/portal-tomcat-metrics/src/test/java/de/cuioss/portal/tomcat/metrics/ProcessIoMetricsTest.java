@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class ProcessIoMetricsTest {
+
+    @TempDir
+    Path procSelf;
+
+    private final MetricRegistry registry = new PortalTestMetricRegistry();
+
+    private final MetricsScheduler scheduler = new MetricsScheduler();
+
+    @AfterEach
+    void closeScheduler() {
+        scheduler.close();
+    }
+
+    @Test
+    void shouldReadCounters() throws IOException {
+        Files.writeString(procSelf.resolve("io"), "rchar: 5000\nwchar: 6000\nsyscr: 12\nsyscw: 34\n"
+                + "read_bytes: 4096\nwrite_bytes: 8192\ncancelled_write_bytes: 0\n");
+
+        try (var underTest = new ProcessIoMetrics(procSelf, false)) {
+            underTest.bindTo(registry, scheduler, 60);
+
+            assertEquals(4096, registry.getCounters().get(new MetricID("process.io.read.bytes")).getCount());
+            assertEquals(8192, registry.getCounters().get(new MetricID("process.io.write.bytes")).getCount());
+            assertEquals(12, registry.getCounters().get(new MetricID("process.io.read.calls")).getCount());
+            assertEquals(34, registry.getCounters().get(new MetricID("process.io.write.calls")).getCount());
+            assertTrue(registry.getGauges().containsKey(new MetricID("process.io.write.bytes.rate")));
+        }
+    }
+
+    @Test
+    void shouldSkipMissingFile() {
+        try (var underTest = new ProcessIoMetrics(procSelf, false)) {
+            underTest.bindTo(registry, scheduler, 60);
+            assertTrue(registry.getMetrics().isEmpty());
+        }
+    }
+}
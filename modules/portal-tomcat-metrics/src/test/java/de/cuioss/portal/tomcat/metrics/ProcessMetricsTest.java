@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class ProcessMetricsTest {
+
+    @TempDir
+    Path procSelf;
+
+    private final MetricRegistry registry = new PortalTestMetricRegistry();
+
+    @Test
+    void shouldReadStatusAndStat() throws IOException {
+        Files.writeString(procSelf.resolve("status"), "Name:\tjava\nVmSize:\t 2048 kB\nVmRSS:\t 1024 kB\n"
+                + "Threads:\t17\nvoluntary_ctxt_switches:\t100\nnonvoluntary_ctxt_switches:\t5\n");
+        Files.writeString(procSelf.resolve("stat"), "42 (my (java) app) S 1 42 42 0 -1 4194560 3000 0 12 0 10 5\n");
+
+        try (var underTest = new ProcessMetrics(procSelf, false)) {
+            underTest.bindTo(registry);
+
+            assertEquals(1024L * 1024, registry.getGauges().get(new MetricID("process.memory.rss")).getValue());
+            assertEquals(2048L * 1024, registry.getGauges().get(new MetricID("process.memory.virtual")).getValue());
+            assertEquals(17L, registry.getGauges().get(new MetricID("process.threads")).getValue());
+            assertEquals(100, registry.getCounters()
+                    .get(new MetricID("process.context.switches", new Tag("type", "voluntary"))).getCount());
+            assertEquals(5, registry.getCounters()
+                    .get(new MetricID("process.context.switches", new Tag("type", "involuntary"))).getCount());
+            assertEquals(3000, registry.getCounters()
+                    .get(new MetricID("process.page.faults", new Tag("type", "minor"))).getCount());
+            assertEquals(12, registry.getCounters()
+                    .get(new MetricID("process.page.faults", new Tag("type", "major"))).getCount());
+        }
+    }
+
+    @Test
+    void shouldSkipMissingFiles() {
+        try (var underTest = new ProcessMetrics(procSelf, false)) {
+            underTest.bindTo(registry);
+            assertTrue(registry.getMetrics().isEmpty());
+        }
+    }
+}
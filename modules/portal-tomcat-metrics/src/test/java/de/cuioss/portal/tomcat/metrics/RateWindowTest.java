@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class RateWindowTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final RateWindow underTest = new RateWindow(10 * SECOND, 4, clock::get);
+
+    @Test
+    void shouldRequireTwoSamples() {
+        assertTrue(Double.isNaN(underTest.getRate()));
+        underTest.record(100);
+        assertTrue(Double.isNaN(underTest.getRate()));
+    }
+
+    @Test
+    void shouldComputeRateWithinWindow() {
+        underTest.record(100);
+        clock.addAndGet(5 * SECOND);
+        underTest.record(600);
+        assertEquals(100.0, underTest.getRate(), 0.001);
+
+        clock.addAndGet(5 * SECOND);
+        underTest.record(700);
+        assertEquals(60.0, underTest.getRate(), 0.001);
+
+        // the first sample drops out of the window
+        clock.addAndGet(1);
+        assertEquals(20.0, underTest.getRate(), 0.001);
+    }
+
+    @Test
+    void shouldRestartOnDecreasingValue() {
+        underTest.record(100);
+        clock.addAndGet(SECOND);
+        underTest.record(50);
+        assertTrue(Double.isNaN(underTest.getRate()));
+        clock.addAndGet(SECOND);
+        underTest.record(60);
+        assertEquals(10.0, underTest.getRate(), 0.001);
+    }
+
+    @Test
+    void shouldReportNegativeRateOfGauge() {
+        final var gauge = RateWindow.ofGauge(10 * SECOND, 4, clock::get);
+        gauge.record(100);
+        clock.addAndGet(SECOND);
+        gauge.record(50);
+        assertEquals(-50.0, gauge.getRate(), 0.001);
+        clock.addAndGet(SECOND);
+        gauge.record(160);
+        assertEquals(30.0, gauge.getRate(), 0.001);
+    }
+
+    @Test
+    void shouldReportNothingIfSamplingStopped() {
+        underTest.record(100);
+        clock.addAndGet(SECOND);
+        underTest.record(200);
+        clock.addAndGet(20 * SECOND);
+        assertTrue(Double.isNaN(underTest.getRate()));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.cuioss.portal.tomcat.metrics.RouteTracker.Route;
+
+class RouteTrackerTest {
+
+    private static final Route FOO = new Route("/app", "foo");
+    private static final Route BAR = new Route("/app", "bar");
+
+    @AfterEach
+    void disable() {
+        RouteTracker.setEnabled(false);
+    }
+
+    @Test
+    void shouldLookupRouteAtTime() {
+        RouteTracker.setEnabled(true);
+        final var threadId = Thread.currentThread().getId();
+
+        final var beforeFoo = now();
+        RouteTracker.enter(FOO);
+        final var duringFoo = now();
+        RouteTracker.exit();
+        RouteTracker.enter(BAR);
+        final var duringBar = now();
+
+        assertNull(RouteTracker.lookup(threadId, beforeFoo - 1));
+        assertEquals(FOO, RouteTracker.lookup(threadId, duringFoo));
+        assertEquals(BAR, RouteTracker.lookup(threadId, duringBar));
+        assertEquals(BAR, RouteTracker.lookup(threadId, Long.MAX_VALUE - 1));
+        RouteTracker.exit();
+
+        // finished spans do not cover later points in time
+        assertNull(RouteTracker.lookup(threadId, Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    void shouldForgetOldestSpans() {
+        RouteTracker.setEnabled(true);
+        final var threadId = Thread.currentThread().getId();
+        final var beforeFoo = now();
+        RouteTracker.enter(FOO);
+        RouteTracker.exit();
+        for (var i = 0; i < RouteTracker.SPANS_PER_THREAD; i++) {
+            RouteTracker.enter(BAR);
+            RouteTracker.exit();
+        }
+        assertNull(RouteTracker.lookup(threadId, beforeFoo - 1));
+    }
+
+    @Test
+    void shouldPruneTerminatedThreads() {
+        RouteTracker.setEnabled(true);
+        final var threadId = Thread.currentThread().getId();
+        RouteTracker.enter(FOO);
+
+        RouteTracker.prune(new long[] { threadId });
+        assertEquals(FOO, RouteTracker.lookup(threadId, Long.MAX_VALUE - 1));
+
+        RouteTracker.prune(new long[0]);
+        assertNull(RouteTracker.lookup(threadId, Long.MAX_VALUE - 1));
+        RouteTracker.exit();
+    }
+
+    private static long now() {
+        return RouteTracker.epochNanos(Instant.now());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SafeGaugeTest {
+
+    @AfterEach
+    void resetOpenCount() {
+        GaugeCircuitBreaker.resetOpenCount();
+    }
+
+    @Test
+    void shouldConvertNumbersToLong() {
+        assertEquals(7L, SafeGauge.longGauge(() -> 7).getLongValue());
+        assertEquals(7L, SafeGauge.longGauge(() -> 7.9d).getLongValue());
+        assertEquals(Long.MAX_VALUE, SafeGauge.longGauge(() -> Long.MAX_VALUE).getLongValue());
+        assertEquals(12L, SafeGauge.longGauge(() -> BigInteger.valueOf(12)).getLongValue());
+    }
+
+    @Test
+    void shouldConvertNumbersToDouble() {
+        assertEquals(7.0, SafeGauge.doubleGauge(() -> 7).getDoubleValue());
+        assertEquals(0.5, SafeGauge.doubleGauge(() -> 0.5f).getDoubleValue());
+        assertEquals(3.0, SafeGauge.doubleGauge(() -> 3L).getDoubleValue());
+    }
+
+    @Test
+    void shouldFallBackOnFailure() {
+        final var failing = SafeGauge.doubleGauge(() -> {
+            throw new IllegalStateException("boom");
+        });
+        assertTrue(Double.isNaN(failing.getDoubleValue()));
+        assertTrue(failing.getValue().isNaN());
+
+        assertEquals(0L, SafeGauge.longGauge(() -> {
+            throw new IllegalStateException("boom");
+        }).getLongValue());
+    }
+
+    @Test
+    void shouldFallBackOnNonNumericValue() {
+        assertTrue(Double.isNaN(SafeGauge.doubleGauge(() -> "text").getDoubleValue()));
+        assertEquals(0L, SafeGauge.longGauge(() -> null).getLongValue());
+    }
+}
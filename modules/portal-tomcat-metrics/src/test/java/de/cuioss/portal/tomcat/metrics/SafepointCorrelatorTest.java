@@ -0,0 +1,55 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+class SafepointCorrelatorTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final SafepointCorrelator underTest = new SafepointCorrelator();
+
+    @Test
+    void shouldMeasureFromBeginUntilEnd() {
+        underTest.begin(1, START);
+        underTest.begin(2, START.plusMillis(5));
+
+        assertEquals(Duration.ofMillis(12), underTest.end(2, START.plusMillis(17)));
+        assertEquals(Duration.ofMillis(20), underTest.end(1, START.plusMillis(20)));
+        assertNull(underTest.end(1, START.plusMillis(30)));
+    }
+
+    @Test
+    void shouldIgnoreEndWithoutBegin() {
+        assertNull(underTest.end(3, START));
+    }
+
+    @Test
+    void shouldLimitPendingSafepoints() {
+        for (var id = 0; id <= SafepointCorrelator.MAX_PENDING; id++) {
+            underTest.begin(id, START);
+        }
+        assertNull(underTest.end(0, START));
+        assertEquals(Duration.ZERO, underTest.end(SafepointCorrelator.MAX_PENDING, START));
+    }
+}
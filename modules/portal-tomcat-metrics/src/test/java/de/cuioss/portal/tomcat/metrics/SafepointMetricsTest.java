@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.Test;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class SafepointMetricsTest {
+
+    @Test
+    void shouldCountThreadDumpSafepoints() throws InterruptedException {
+        assumeTrue(JfrMetrics.isAvailable());
+        final MetricRegistry registry = new PortalTestMetricRegistry();
+        try (var jfrMetrics = new JfrMetrics(false, Duration.ofMillis(10), 1000)) {
+            new SafepointMetrics(false).bindTo(registry, jfrMetrics);
+            assertTrue(registry.getHistograms().containsKey(new MetricID("jvm.jfr.safepoint.sync")));
+            jfrMetrics.start();
+
+            final var threadDumps = new MetricID("jvm.jfr.safepoint.operations", new Tag("operation", "ThreadDump"));
+            final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (!registry.getCounters().containsKey(threadDumps) && System.nanoTime() < deadline) {
+                ManagementFactory.getThreadMXBean().dumpAllThreads(false, false);
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+            assertTrue(registry.getCounters().containsKey(threadDumps));
+            assertTrue(registry.getCounters().get(new MetricID("jvm.safepoint.count")).getCount() > 0);
+            // the total time includes the time to safepoint
+            assertTrue(registry.getCounters().get(new MetricID("jvm.safepoint.time")).getCount() >= registry
+                    .getCounters().get(new MetricID("jvm.safepoint.sync.time")).getCount());
+        }
+    }
+}
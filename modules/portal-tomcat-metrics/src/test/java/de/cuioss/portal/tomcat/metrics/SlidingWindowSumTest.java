@@ -0,0 +1,62 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowSumTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final SlidingWindowSum underTest = new SlidingWindowSum(100, 10, clock::get);
+
+    @Test
+    void shouldSumWithinWindow() {
+        underTest.add(3);
+        clock.addAndGet(50);
+        underTest.add(4);
+        assertEquals(7, underTest.getSum());
+        assertEquals(50, underTest.getEffectiveWindowNanos());
+    }
+
+    @Test
+    void shouldExpireOldValues() {
+        underTest.add(3);
+        clock.addAndGet(50);
+        underTest.add(4);
+
+        clock.addAndGet(50);
+        assertEquals(4, underTest.getSum());
+        assertEquals(100, underTest.getEffectiveWindowNanos());
+
+        clock.addAndGet(50);
+        assertEquals(0, underTest.getSum());
+    }
+
+    @Test
+    void shouldResetAfterLongIdleTime() {
+        underTest.add(3);
+        clock.addAndGet(1_000);
+        assertEquals(0, underTest.getSum());
+        underTest.add(1);
+        assertEquals(1, underTest.getSum());
+        assertEquals(100, underTest.getEffectiveWindowNanos());
+    }
+}
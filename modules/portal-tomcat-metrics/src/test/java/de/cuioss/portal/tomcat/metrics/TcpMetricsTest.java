@@ -0,0 +1,134 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class TcpMetricsTest {
+
+    private static final String HEADER = "  sl  local_address rem_address   st tx_queue rx_queue tr tm->when retrnsmt"
+            + "   uid  timeout inode\n";
+
+    @TempDir
+    Path procNet;
+
+    private final MetricRegistry registry = new PortalTestMetricRegistry();
+
+    private final MetricsScheduler scheduler = new MetricsScheduler();
+
+    @AfterEach
+    void closeScheduler() {
+        scheduler.close();
+    }
+
+    @Test
+    void shouldCountSocketsPerState() throws IOException {
+        // port 8080 = 0x1F90, port 8443 = 0x20FB
+        Files.writeString(procNet.resolve("tcp"), HEADER
+                + "   0: 00000000:1F90 00000000:0000 0A 00000000:00000003 00:00000000 00000000  1000        0 1\n"
+                + "   1: 0100007F:1F90 0100007F:C350 01 00000000:00000000 00:00000000 00000000  1000        0 2\n"
+                + "   2: 0100007F:1F90 0100007F:C351 01 00000000:00000000 00:00000000 00000000  1000        0 3\n"
+                + "   3: 0100007F:1F90 0100007F:C352 06 00000000:00000000 03:00000F9E 00000000     0        0 0\n"
+                + "   4: 0100007F:C350 0100007F:1F90 01 00000000:00000000 00:00000000 00000000  1000        0 4\n"
+                + "   5: 0100007F:20FB 0100007F:C353 08 00000000:00000000 00:00000000 00000000  1000        0 5\n");
+        Files.writeString(procNet.resolve("tcp6"), HEADER
+                + "   0: 00000000000000000000000000000000:20FB 00000000000000000000000000000000:0000 0A "
+                + "00000000:00000001 00:00000000 00000000  1000        0 6\n"
+                + "   1: 0000000000000000FFFF00000100007F:1F90 0000000000000000FFFF00000100007F:C354 01 "
+                + "00000000:00000000 00:00000000 00000000  1000        0 7\n");
+        Files.writeString(procNet.resolve("netstat"), "TcpExt: SyncookiesSent ListenOverflows ListenDrops\n"
+                + "TcpExt: 0 17 23\n");
+
+        try (var underTest = new TcpMetrics(procNet, Set.of(8443, 8080), false)) {
+            underTest.bindTo(registry, scheduler, 60);
+            underTest.scan();
+
+            assertEquals(3L, connections("8080", "established").getValue());
+            assertEquals(1L, connections("8080", "time_wait").getValue());
+            assertEquals(0L, connections("8080", "close_wait").getValue());
+            assertEquals(3L, acceptQueue("8080").getValue());
+            assertEquals(0L, connections("8443", "established").getValue());
+            assertEquals(1L, connections("8443", "close_wait").getValue());
+            assertEquals(1L, acceptQueue("8443").getValue());
+            assertEquals(17, counter("tcp.listen.overflows").getCount());
+            assertEquals(23, counter("tcp.listen.drops").getCount());
+        }
+    }
+
+    @Test
+    void shouldParseAcrossBufferBoundaries() throws IOException {
+        final var content = new StringBuilder(HEADER);
+        for (var i = 0; i < 2000; i++) {
+            content.append(String.format("%4d: 0100007F:1F90 0100007F:%04X 01 00000000:00000000 00:00000000 "
+                    + "00000000  1000        0 %d\n", i, i, i));
+        }
+        Files.writeString(procNet.resolve("tcp"), content);
+
+        try (var underTest = new TcpMetrics(procNet, List.of(8080), false)) {
+            underTest.scan();
+            assertEquals(2000, underTest.getCount(8080, TcpMetrics.ESTABLISHED));
+        }
+    }
+
+    @Test
+    void shouldSkipMissingFiles() {
+        try (var underTest = new TcpMetrics(procNet, List.of(8080), false)) {
+            underTest.bindTo(registry, scheduler, 60);
+            assertTrue(registry.getMetrics().isEmpty());
+        }
+    }
+
+    @Test
+    void shouldSkipWithoutPorts() throws IOException {
+        Files.writeString(procNet.resolve("tcp"), HEADER);
+        try (var underTest = new TcpMetrics(procNet, List.of(), false)) {
+            underTest.bindTo(registry, scheduler, 60);
+            assertFalse(registry.getGauges().keySet().stream().anyMatch(id -> id.getName().startsWith("tcp.")));
+        }
+    }
+
+    private Gauge<?> connections(final String port, final String state) {
+        return registry.getGauges()
+                .get(new MetricID("tcp.connections", new Tag("port", port), new Tag("state", state)));
+    }
+
+    private Gauge<?> acceptQueue(final String port) {
+        return registry.getGauges().get(new MetricID("tcp.accept.queue", new Tag("port", port)));
+    }
+
+    private Counter counter(final String name) {
+        return registry.getCounters().get(new MetricID(name));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class ThreadContentionMetricsTest {
+
+    private PortalTestMetricRegistry registry;
+    private MetricsScheduler scheduler;
+    private ThreadContentionMetrics underTest;
+
+    @BeforeEach
+    void bind() {
+        registry = new PortalTestMetricRegistry();
+        scheduler = new MetricsScheduler();
+        underTest = new ThreadContentionMetrics(ManagementFactory.getThreadMXBean(), true);
+        underTest.bindTo(registry, scheduler, TimeUnit.HOURS.toSeconds(1));
+    }
+
+    @AfterEach
+    void close() {
+        underTest.close();
+        scheduler.close();
+    }
+
+    @Test
+    void shouldDetectDeadlock() throws InterruptedException {
+        final var first = new ReentrantLock();
+        final var second = new ReentrantLock();
+        final var bothLocked = new CountDownLatch(2);
+        final var t1 = startLocking(first, second, bothLocked);
+        final var t2 = startLocking(second, first, bothLocked);
+        try {
+            awaitState(t1, Thread.State.WAITING);
+            awaitState(t2, Thread.State.WAITING);
+
+            underTest.scan();
+
+            assertEquals(2L, registry.getGauges().get(new MetricID("jvm.threads.deadlocked")).getValue());
+        } finally {
+            t1.interrupt();
+            t2.interrupt();
+            t1.join();
+            t2.join();
+        }
+    }
+
+    @Test
+    void shouldAccumulateBlockedThreads() throws InterruptedException {
+        final Counter blockedCount = registry.getCounters().get(new MetricID("jvm.threads.blocked.count"));
+        underTest.scan();
+        final var before = blockedCount.getCount();
+
+        final var monitor = new Object();
+        final Thread blocked;
+        synchronized (monitor) {
+            blocked = new Thread(() -> {
+                synchronized (monitor) {
+                    monitor.notifyAll();
+                }
+            });
+            blocked.start();
+            awaitState(blocked, Thread.State.BLOCKED);
+
+            underTest.scan();
+
+            final var info = ManagementFactory.getThreadMXBean().getThreadInfo(blocked.getId());
+            assertEquals(1, info.getBlockedCount());
+            // other threads of the JVM may have been blocked in the meantime as well
+            assertTrue(blockedCount.getCount() - before >= info.getBlockedCount());
+        }
+        blocked.join();
+        final var whileBlocked = blockedCount.getCount();
+
+        // the blocked thread is terminated, its blocking must not get lost
+        underTest.scan();
+        assertTrue(blockedCount.getCount() >= whileBlocked);
+    }
+
+    private static Thread startLocking(final ReentrantLock first, final ReentrantLock second,
+            final CountDownLatch bothLocked) {
+        final var thread = new Thread(() -> {
+            first.lock();
+            try {
+                bothLocked.countDown();
+                bothLocked.await();
+                second.lockInterruptibly();
+                second.unlock();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                first.unlock();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitState(final Thread thread, final Thread.State state) {
+        while (state != thread.getState()) {
+            Thread.onSpinWait();
+        }
+    }
+}
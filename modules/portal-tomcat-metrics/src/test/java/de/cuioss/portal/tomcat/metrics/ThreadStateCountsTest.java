@@ -0,0 +1,146 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import de.cuioss.tools.logging.CuiLogger;
+
+class ThreadStateCountsTest {
+
+    private static final CuiLogger LOGGER = new CuiLogger(ThreadStateCountsTest.class);
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    @Test
+    void shouldCountAllLiveThreads() {
+        final var underTest = new ThreadStateCounts(threadBean);
+
+        var sum = 0L;
+        for (final Thread.State state : Thread.State.values()) {
+            sum += underTest.getCount(state);
+        }
+        assertTrue(sum > 0);
+        assertTrue(underTest.getCount(Thread.State.RUNNABLE) > 0);
+    }
+
+    @Test
+    void shouldReuseSnapshotWithinTtl() throws InterruptedException {
+        final var clock = new AtomicLong(0);
+        final var underTest = new ThreadStateCounts(threadBean, 1000L, clock::get);
+        final var waitingBefore = underTest.getCount(Thread.State.WAITING);
+
+        final var release = new CountDownLatch(1);
+        final var waiting = startWaitingThreads(3, release);
+        try {
+            assertEquals(waitingBefore, underTest.getCount(Thread.State.WAITING));
+
+            clock.addAndGet(1000L);
+            assertTrue(underTest.getCount(Thread.State.WAITING) > waitingBefore);
+        } finally {
+            release.countDown();
+            for (final Thread thread : waiting) {
+                thread.join();
+            }
+        }
+    }
+
+    /**
+     * Compares the cost of one scrape of all state gauges, i.e. one thread
+     * snapshot per {@link Thread.State} as before, with a single shared
+     * snapshot. Run with {@code -Dportal.metrics.benchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "portal.metrics.benchmark", matches = "true")
+    void benchmarkScrape() throws InterruptedException {
+        final var release = new CountDownLatch(1);
+        final var waiting = startWaitingThreads(800, release);
+        try {
+            final var iterations = 200;
+            final var states = Thread.State.values();
+
+            final var perState = measure(iterations, () -> {
+                for (final Thread.State state : states) {
+                    Arrays.stream(threadBean.getThreadInfo(threadBean.getAllThreadIds())).filter(Objects::nonNull)
+                            .filter(threadInfo -> threadInfo.getThreadState() == state).count();
+                }
+            });
+            final var shared = measure(iterations, () -> {
+                final var underTest = new ThreadStateCounts(threadBean);
+                for (final Thread.State state : states) {
+                    underTest.getCount(state);
+                }
+            });
+            LOGGER.info("Thread states per scrape with {} threads: snapshot per state {}us, shared snapshot {}us",
+                    threadBean.getThreadCount(), perState / 1000, shared / 1000);
+        } finally {
+            release.countDown();
+            for (final Thread thread : waiting) {
+                thread.join();
+            }
+        }
+    }
+
+    private static long measure(final int iterations, final Runnable scrape) {
+        for (var i = 0; i < iterations; i++) {
+            scrape.run();
+        }
+        final var start = System.nanoTime();
+        for (var i = 0; i < iterations; i++) {
+            scrape.run();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static List<Thread> startWaitingThreads(final int count, final CountDownLatch release)
+            throws InterruptedException {
+        final var started = new CountDownLatch(count);
+        final List<Thread> threads = new ArrayList<>(count);
+        for (var i = 0; i < count; i++) {
+            final var thread = new Thread(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "thread-state-counts-test-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        started.await();
+        for (final Thread thread : threads) {
+            while (Thread.State.WAITING != thread.getState()) {
+                Thread.onSpinWait();
+            }
+        }
+        return threads;
+    }
+}
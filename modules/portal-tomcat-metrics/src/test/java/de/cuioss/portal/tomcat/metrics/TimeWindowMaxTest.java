@@ -0,0 +1,65 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class TimeWindowMaxTest {
+
+    private static final long WINDOW = 3_000;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final TimeWindowMax underTest = new TimeWindowMax(WINDOW, clock::get);
+
+    @Test
+    void shouldReportMaximumWithinWindow() {
+        assertEquals(0, underTest.poll());
+        underTest.record(5);
+        underTest.record(3);
+        assertEquals(5, underTest.poll());
+
+        clock.addAndGet(WINDOW - 1);
+        assertEquals(5, underTest.poll());
+    }
+
+    @Test
+    void shouldDecayAfterWindow() {
+        underTest.record(5);
+        clock.addAndGet(WINDOW / 3);
+        underTest.record(2);
+
+        clock.addAndGet(WINDOW / 3 * 2);
+        // the window of the first value has passed, the second is still present
+        assertEquals(2, underTest.poll());
+
+        clock.addAndGet(WINDOW / 3);
+        assertEquals(0, underTest.poll());
+    }
+
+    @Test
+    void shouldResetAfterLongIdleTime() {
+        underTest.record(5);
+        clock.addAndGet(WINDOW * 10);
+        assertEquals(0, underTest.poll());
+        underTest.record(1);
+        assertEquals(1, underTest.poll());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TopKTest {
+
+    @Test
+    void shouldAggregateAndOrderByWeight() {
+        final var underTest = new TopK<String>(3);
+        underTest.add("a", 1);
+        underTest.add("b", 5);
+        underTest.add("a", 2);
+        underTest.add("c", 4);
+
+        final var top = underTest.top(10);
+        assertEquals(3, top.size());
+        assertEquals(new TopK.Entry<>("b", 5, 1, 0), top.get(0));
+        assertEquals(new TopK.Entry<>("c", 4, 1, 0), top.get(1));
+        assertEquals(new TopK.Entry<>("a", 3, 2, 0), top.get(2));
+
+        assertEquals(1, underTest.top(1).size());
+    }
+
+    @Test
+    void shouldEvictMinimum() {
+        final var underTest = new TopK<String>(2);
+        underTest.add("a", 10);
+        underTest.add("b", 1);
+        underTest.add("c", 2);
+
+        final var top = underTest.top(10);
+        assertEquals(2, top.size());
+        assertEquals(new TopK.Entry<>("a", 10, 1, 0), top.get(0));
+        // c inherits the weight of the evicted b as error
+        assertEquals(new TopK.Entry<>("c", 3, 1, 1), top.get(1));
+    }
+
+    @Test
+    void shouldKeepHeavyHitters() {
+        final var underTest = new TopK<Integer>(10);
+        for (var i = 0; i < 10_000; i++) {
+            underTest.add(i % 3 == 0 ? -1 : i, 1);
+        }
+        final var hottest = underTest.top(1).get(0);
+        assertEquals(-1, hottest.key());
+        assertTrue(hottest.weight() - hottest.error() <= 3334);
+        assertTrue(hottest.weight() >= 3334);
+    }
+
+    @Test
+    void shouldClear() {
+        final var underTest = new TopK<String>(2);
+        underTest.add("a", 1);
+        underTest.clear();
+        assertTrue(underTest.top(10).isEmpty());
+    }
+
+    @Test
+    void shouldRejectInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new TopK<String>(0));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.time.Duration;
+
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class VirtualThreadMetricsTest {
+
+    private final MetricRegistry registry = new PortalTestMetricRegistry();
+
+    @Test
+    void shouldSkipMissingSchedulerMBean() {
+        new VirtualThreadMetrics(false).bindTo(registry, MBeanServerFactory.newMBeanServer());
+        assertTrue(registry.getMetrics().isEmpty());
+    }
+
+    @Test
+    void shouldReadSchedulerMBean() throws Exception {
+        final var server = MBeanServerFactory.newMBeanServer();
+        server.registerMBean(new StandardMBean(new Scheduler(), SchedulerMBean.class),
+                new ObjectName(VirtualThreadMetrics.SCHEDULER_OBJECT_NAME));
+
+        new VirtualThreadMetrics(false).bindTo(registry, server);
+
+        assertEquals(8L, registry.getGauges().get(new MetricID("jvm.threads.virtual.scheduler.parallelism"))
+                .getValue());
+        assertEquals(3L, registry.getGauges().get(new MetricID("jvm.threads.virtual.queued")).getValue());
+    }
+
+    @Test
+    void shouldRegisterJfrMetrics() {
+        try (var jfrMetrics = new JfrMetrics(false, Duration.ofMillis(10), 100)) {
+            new VirtualThreadMetrics(false).bindTo(registry, jfrMetrics, false, eventType -> true);
+
+            assertTrue(registry.getHistograms().containsKey(new MetricID("jvm.threads.virtual.pinned")));
+            assertTrue(registry.getCounters().containsKey(new MetricID("jvm.threads.virtual.submit.failed")));
+            assertFalse(registry.getCounters().containsKey(new MetricID("jvm.threads.virtual.started")));
+        }
+    }
+
+    @Test
+    void shouldRegisterLifecycleCounters() {
+        try (var jfrMetrics = new JfrMetrics(false, Duration.ofMillis(10), 100)) {
+            new VirtualThreadMetrics(false).bindTo(registry, jfrMetrics, true, eventType -> true);
+
+            assertEquals(0, registry.getCounters().get(new MetricID("jvm.threads.virtual.started")).getCount());
+            assertEquals(0, registry.getCounters().get(new MetricID("jvm.threads.virtual.ended")).getCount());
+        }
+    }
+
+    @Test
+    void shouldSkipUnknownEventTypes() {
+        try (var jfrMetrics = new JfrMetrics(false, Duration.ofMillis(10), 100)) {
+            new VirtualThreadMetrics(false).bindTo(registry, jfrMetrics, true, eventType -> false);
+
+            assertTrue(registry.getHistograms().isEmpty());
+            assertTrue(registry.getCounters().isEmpty());
+        }
+    }
+
+    @Test
+    void shouldDetectEventTypes() {
+        assumeTrue(JfrMetrics.isAvailable());
+        assertTrue(JfrMetrics.hasEventType(JfrMetrics.SAFEPOINT_BEGIN));
+        assertFalse(JfrMetrics.hasEventType("jdk.NotExisting"));
+    }
+
+    public interface SchedulerMBean {
+
+        int getParallelism();
+
+        int getPoolSize();
+
+        int getMountedVirtualThreadCount();
+
+        long getQueuedVirtualThreadCount();
+    }
+
+    public static class Scheduler implements SchedulerMBean {
+
+        @Override
+        public int getParallelism() {
+            return 8;
+        }
+
+        @Override
+        public int getPoolSize() {
+            return 4;
+        }
+
+        @Override
+        public int getMountedVirtualThreadCount() {
+            return 2;
+        }
+
+        @Override
+        public long getQueuedVirtualThreadCount() {
+            return 3;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2023 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.cuioss.portal.tomcat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.management.StandardMBean;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.cuioss.portal.core.test.mocks.microprofile.PortalTestMetricRegistry;
+
+class WebappClassLoaderMetricsTest {
+
+    private final MetricRegistry registry = new PortalTestMetricRegistry();
+
+    private final MetricsScheduler scheduler = new MetricsScheduler();
+
+    private final MBeanServer server = MBeanServerFactory.newMBeanServer();
+
+    private final AtomicLong metaspace = new AtomicLong(1000);
+
+    @BeforeEach
+    @AfterEach
+    void clearProperties() {
+        for (final String context : List.of("/portal", "/other")) {
+            System.clearProperty(WebappClassLoaderMetrics.scoped(WebappClassLoaderMetrics.METASPACE_BASELINE_PROPERTY,
+                    context));
+            System.clearProperty(WebappClassLoaderMetrics.scoped(WebappClassLoaderMetrics.REDEPLOYS_PROPERTY,
+                    context));
+        }
+    }
+
+    @AfterEach
+    void closeScheduler() {
+        scheduler.close();
+    }
+
+    @Test
+    void shouldCountStoppedLoaders() throws InterruptedException {
+        try (var underTest = new WebappClassLoaderMetrics(server, metaspace::get, false)) {
+            var loader = new WebappClassLoader();
+            underTest.bindTo(registry, scheduler, 60);
+            underTest.track(loader);
+            underTest.scan();
+            assertEquals(0, underTest.getStoppedLoaders());
+
+            loader.state = "STOPPED";
+            underTest.scan();
+            assertEquals(1, underTest.getStoppedLoaders());
+            assertEquals(1L, registry.getGauges().get(new MetricID("tomcat.webapp.classloaders.stopped")).getValue());
+
+            loader = null;
+            for (var i = 0; i < 10 && underTest.getStoppedLoaders() > 0; i++) {
+                System.gc();
+                Thread.sleep(50);
+                underTest.scan();
+            }
+            assertEquals(0, underTest.getStoppedLoaders());
+        }
+    }
+
+    @Test
+    void shouldDiscoverLoadersOfThreads() throws InterruptedException {
+        try (var underTest = new WebappClassLoaderMetrics(server, metaspace::get, false)) {
+            final var loader = new WebappClassLoader();
+            loader.state = "DESTROYED";
+            final var release = new CountDownLatch(1);
+            final var thread = new Thread(() -> {
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.setContextClassLoader(loader);
+            thread.start();
+            try {
+                underTest.scan();
+                assertEquals(1, underTest.getStoppedLoaders());
+            } finally {
+                release.countDown();
+                thread.join();
+            }
+        }
+    }
+
+    @Test
+    void shouldTrackLoadersOfRegisteredContexts() throws JMException {
+        final var early = new WebappClassLoader("/early");
+        registerWebModule("/early", early);
+        registerLoader(loaderName("/early"));
+        final var loader = new WebappClassLoader("/app");
+        registerWebModule("/app", loader);
+        try (var underTest = new WebappClassLoaderMetrics(server, metaspace::get, false)) {
+            underTest.bindTo(registry, scheduler, 60);
+            registerLoader(loaderName("/app"));
+            // no web module to resolve the loader from
+            registerLoader(loaderName("/unknown"));
+
+            early.state = "DESTROYED";
+            loader.state = "STOPPED";
+            underTest.scan();
+            assertEquals(2, underTest.getStoppedLoaders());
+        }
+    }
+
+    @Test
+    void shouldCountRedeploysOfOtherContexts() throws JMException {
+        final var app = loaderName("/app");
+        try (var underTest = new WebappClassLoaderMetrics(server, metaspace::get, new WebappClassLoader("/portal"),
+                false)) {
+            underTest.bindTo(registry, scheduler, 60);
+            registerLoader(app);
+            registerLoader(loaderName("/unrelated"));
+            assertEquals(0, underTest.getRedeploys("/app"));
+
+            server.unregisterMBean(app);
+            registerLoader(app);
+            // a registration without a preceding unregistration of the same context is no redeploy
+            registerLoader(loaderName("/new"));
+
+            assertEquals(1, underTest.getRedeploys("/app"));
+            assertEquals(0, underTest.getRedeploys("/new"));
+            assertEquals(1, registry.getCounters()
+                    .get(new MetricID("tomcat.webapp.redeploys", new Tag("context", "/app"))).getCount());
+            assertEquals(0, underTest.getOwnRedeploys());
+        }
+    }
+
+    @Test
+    void shouldCountRedeployOfOwnWebapp() throws JMException {
+        new WebappClassLoaderMetrics(server, metaspace::get, new WebappClassLoader("/portal"), false)
+                .bindTo(registry, scheduler, 60);
+        // the listener of the previous deployment is still active, but must not count its own context
+        server.unregisterMBean(registerLoader(loaderName("/portal")));
+        registerLoader(loaderName("/portal"));
+        metaspace.set(1500);
+        final var ownRegistry = new PortalTestMetricRegistry();
+        try (var underTest = new WebappClassLoaderMetrics(server, metaspace::get, new WebappClassLoader("portal"),
+                false)) {
+            underTest.bindTo(ownRegistry, scheduler, 60);
+            assertEquals(1, underTest.getOwnRedeploys());
+            assertEquals(1, ownRegistry.getCounters()
+                    .get(new MetricID("tomcat.webapp.redeploys", new Tag("context", "/portal"))).getCount());
+            assertEquals(500.0, underTest.getMetaspaceGrowthPerRedeploy(), 0.001);
+        }
+    }
+
+    @Test
+    void shouldNotCountFirstDeployOfOtherWebappAsRedeploy() {
+        new WebappClassLoaderMetrics(server, metaspace::get, new WebappClassLoader("/portal"), false)
+                .bindTo(registry, scheduler, 60);
+        try (var underTest = new WebappClassLoaderMetrics(server, metaspace::get, new WebappClassLoader("/other"),
+                false)) {
+            underTest.bindTo(new PortalTestMetricRegistry(), scheduler, 60);
+            assertEquals(0, underTest.getOwnRedeploys());
+            assertTrue(Double.isNaN(underTest.getMetaspaceGrowthPerRedeploy()));
+        }
+    }
+
+    @Test
+    void shouldReadContextName() {
+        assertEquals("/portal", WebappClassLoaderMetrics.contextName(new WebappClassLoader("portal")));
+        assertEquals("/", WebappClassLoaderMetrics.contextName(new WebappClassLoader("")));
+        assertNull(WebappClassLoaderMetrics.contextName(new URLClassLoader(new URL[0])));
+    }
+
+    private static ObjectName loaderName(final String context) throws MalformedObjectNameException {
+        return new ObjectName("Catalina:type=ParallelWebappClassLoader,host=localhost,context=" + context);
+    }
+
+    private void registerWebModule(final String context, final ClassLoader classLoader) throws JMException {
+        final var loader = new WebappLoader(classLoader);
+        server.registerMBean(new DynamicMBean() {
+
+            @Override
+            public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+                if ("loader".equals(attribute)) {
+                    return loader;
+                }
+                throw new AttributeNotFoundException(attribute);
+            }
+
+            @Override
+            public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+                throw new AttributeNotFoundException(attribute.getName());
+            }
+
+            @Override
+            public AttributeList getAttributes(final String[] attributes) {
+                return new AttributeList();
+            }
+
+            @Override
+            public AttributeList setAttributes(final AttributeList attributes) {
+                return new AttributeList();
+            }
+
+            @Override
+            public Object invoke(final String actionName, final Object[] params, final String[] signature)
+                    throws ReflectionException {
+                throw new ReflectionException(new NoSuchMethodException(actionName));
+            }
+
+            @Override
+            public MBeanInfo getMBeanInfo() {
+                return new MBeanInfo(WebappLoader.class.getName(), "web module", null, null, null, null);
+            }
+        }, new ObjectName("Catalina:j2eeType=WebModule,name=//localhost" + context
+                + ",J2EEApplication=none,J2EEServer=none"));
+    }
+
+    private ObjectName registerLoader(final ObjectName name) throws JMException {
+        server.registerMBean(new StandardMBean((Runnable) () -> {
+        }, Runnable.class), name);
+        return name;
+    }
+
+    @Test
+    void shouldDetectWebappClassLoaders() {
+        assertTrue(WebappClassLoaderMetrics.isWebappClassLoader(new WebappClassLoader()));
+        assertFalse(WebappClassLoaderMetrics.isWebappClassLoader(new URLClassLoader(new URL[0])));
+        assertFalse(WebappClassLoaderMetrics.isWebappClassLoader(null));
+    }
+
+    static class WebappLoader {
+
+        private final ClassLoader classLoader;
+
+        WebappLoader(final ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        public ClassLoader getClassLoader() {
+            return classLoader;
+        }
+    }
+
+    static class WebappClassLoader extends URLClassLoader {
+
+        volatile String state = "STARTED";
+
+        private final String contextName;
+
+        WebappClassLoader() {
+            this("/app");
+        }
+
+        WebappClassLoader(final String contextName) {
+            super(new URL[0]);
+            this.contextName = contextName;
+        }
+
+        public String getStateName() {
+            return state;
+        }
+
+        public String getContextName() {
+            return contextName;
+        }
+    }
+}